@@ -0,0 +1,159 @@
+package benchmark;
+
+import estructura.Almacenamiento;
+import estructura.Catalogo;
+import estructura.ModoBalanceo;
+import modelo.Libro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas sobre un {@link Catalogo} ya armado: búsquedas por autor, por ISBN, por
+ * prefijo y por subcadena, recorridos y filtros. Cada operación se mide en operaciones por
+ * unidad de tiempo y con muestras de latencia (percentiles); las búsquedas puntuales
+ * recorren consultas precalculadas con la distribución elegida.
+ * <p>
+ * Con {@code -p almacenamiento=COMPACTO} conviene limitar los modos a
+ * {@code -p modo=AVL,NINGUNO}: el almacenamiento compacto no admite splay.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsultasBenchmark {
+
+    @Param({"ALEATORIA", "ORDENADA", "SESGADA"})
+    private Distribucion distribucion;
+
+    @Param({"1000", "100000", "1000000"})
+    private int tamanio;
+
+    @Param({"AVL", "NINGUNO", "SPLAY"})
+    private ModoBalanceo modo;
+
+    @Param({"NODOS"})
+    private Almacenamiento almacenamiento;
+
+    private Catalogo catalogo;
+    private String[] autores;
+    private String[] ausentes;
+    private String[] isbns;
+    private String[] prefijos;
+    private String[] subcadenas;
+    private int siguiente;
+
+    @Setup
+    public void armar() {
+        List<Libro> libros = distribucion.generar(tamanio, SuiteBenchmark.SEMILLA);
+        catalogo = DatosBenchmark.armar(almacenamiento, modo, distribucion, libros);
+        Libro[] consultados = DatosBenchmark.consultados(distribucion, libros);
+        autores = new String[consultados.length];
+        ausentes = new String[consultados.length];
+        isbns = new String[consultados.length];
+        prefijos = new String[consultados.length];
+        subcadenas = new String[consultados.length];
+        for (int i = 0; i < consultados.length; i++) {
+            String autor = consultados[i].getAutor();
+            autores[i] = autor;
+            ausentes[i] = autor + " (inexistente)";
+            isbns[i] = consultados[i].getIsbn();
+            // Sin las dos últimas letras: unos pocos autores por consulta en todas las distribuciones
+            prefijos[i] = autor.substring(0, autor.length() - 2);
+            subcadenas[i] = autor.substring(autor.length() - 4);
+        }
+        // El primer uso arma el índice de trigramas; no se cuenta en las consultas
+        catalogo.buscarPorAutorParcial("xyz");
+    }
+
+    private int siguiente() {
+        return siguiente++ & (DatosBenchmark.CONSULTAS - 1);
+    }
+
+    // =========================================================
+    //  BÚSQUEDAS PUNTUALES
+    // =========================================================
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Libro buscar() {
+        return catalogo.buscar(autores[siguiente()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Libro buscarInexistente() {
+        return catalogo.buscar(ausentes[siguiente()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Libro buscarPorIsbn() {
+        return catalogo.buscarPorIsbn(isbns[siguiente()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Libro> buscarPorPrefijoAutor() {
+        return catalogo.buscarPorPrefijoAutor(prefijos[siguiente()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Libro> buscarPorAutorParcial() {
+        return catalogo.buscarPorAutorParcial(subcadenas[siguiente()]);
+    }
+
+    // =========================================================
+    //  RECORRIDOS Y FILTROS (todo el catálogo)
+    // =========================================================
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Libro> recorridoInOrden() {
+        return catalogo.recorridoInOrden();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Libro> recorridoPreOrden() {
+        return catalogo.recorridoPreOrden();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Libro> recorridoPostOrden() {
+        return catalogo.recorridoPostOrden();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iteradorInOrden(Blackhole sumidero) {
+        for (Iterator<Libro> it = catalogo.iterator(); it.hasNext(); ) sumidero.consume(it.next());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Libro> listarDisponibles() {
+        return catalogo.listarDisponibles();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Libro> buscarPorCategoria() {
+        return catalogo.buscarPorCategoria("novela");
+    }
+}
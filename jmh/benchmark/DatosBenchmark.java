@@ -0,0 +1,52 @@
+package benchmark;
+
+import estructura.Almacenamiento;
+import estructura.Catalogo;
+import estructura.ModoBalanceo;
+import modelo.Libro;
+import java.util.List;
+
+/**
+ * Catálogos y consultas compartidos por las mediciones con JMH, con las mismas semillas
+ * que {@link SuiteBenchmark}.
+ */
+final class DatosBenchmark {
+
+    /** Consultas precalculadas por medición; potencia de 2 para recorrerlas con una máscara. */
+    static final int CONSULTAS = 1 << 16;
+
+    private DatosBenchmark() {
+    }
+
+    /**
+     * Catálogo con los libros dados. Como en {@link SuiteBenchmark}, en modo AVL se arma
+     * con la carga masiva y sin balanceo y en splay con inserciones en orden de llegada,
+     * porque la carga masiva siempre deja un árbol perfectamente balanceado. La excepción
+     * son los autores ordenados sin balanceo por encima de
+     * {@link SuiteBenchmark#MAXIMO_DEGENERADO}, que degenerarían en una lista (O(n²)).
+     */
+    static Catalogo armar(Almacenamiento almacenamiento, ModoBalanceo modo,
+                          Distribucion distribucion, List<Libro> libros) {
+        Catalogo catalogo = almacenamiento.crear(modo);
+        if (modo == ModoBalanceo.AVL || degenera(modo, distribucion, libros.size())) {
+            catalogo.cargarMasivo(libros);
+        } else {
+            for (Libro libro : libros) catalogo.insertar(libro);
+        }
+        return catalogo;
+    }
+
+    /** Si insertar uno a uno {@code cantidad} libros dejaría una lista. */
+    static boolean degenera(ModoBalanceo modo, Distribucion distribucion, int cantidad) {
+        return modo == ModoBalanceo.NINGUNO && distribucion == Distribucion.ORDENADA
+            && cantidad > SuiteBenchmark.MAXIMO_DEGENERADO;
+    }
+
+    /** Libros consultados, en el orden de {@link Distribucion#consultas}. */
+    static Libro[] consultados(Distribucion distribucion, List<Libro> libros) {
+        int[] indices = distribucion.consultas(libros.size(), CONSULTAS, SuiteBenchmark.SEMILLA + 1);
+        Libro[] consultados = new Libro[indices.length];
+        for (int i = 0; i < indices.length; i++) consultados[i] = libros.get(indices[i]);
+        return consultados;
+    }
+}
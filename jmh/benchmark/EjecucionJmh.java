@@ -0,0 +1,50 @@
+package benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada del jar de mediciones con JMH. Acepta las mismas opciones que JMH
+ * ({@code -h} las lista) y agrega siempre el perfilador de GC, que informa los bytes
+ * asignados por operación ({@code gc.alloc.rate.norm}) y la tasa de asignación:
+ * <pre>
+ * java -jar target/biblioteca-bst-1.0-benchmarks.jar ConsultasBenchmark.buscar -p tamanio=1000
+ * </pre>
+ */
+public final class EjecucionJmh {
+
+    private EjecucionJmh() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linea;
+        try {
+            linea = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (linea.shouldHelp() || linea.shouldList() || linea.shouldListWithParams()
+                || linea.shouldListProfilers() || linea.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        OptionsBuilder opciones = new OptionsBuilder();
+        opciones.parent(linea);
+        boolean conGc = linea.getProfilers().stream()
+            .anyMatch(p -> p.getKlass().equals("gc") || p.getKlass().equals(GCProfiler.class.getName()));
+        if (!conGc) opciones.addProfiler(GCProfiler.class);
+        try {
+            new Runner(opciones.build()).run();
+        } catch (RunnerException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package benchmark;
+
+import estructura.Almacenamiento;
+import estructura.Catalogo;
+import estructura.ModoBalanceo;
+import estructura.ResultadoCarga;
+import modelo.Libro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserción, carga masiva y eliminación de todos los libros de un catálogo. Cada
+ * invocación modifica el catálogo completo y se mide una vez ({@link Mode#SingleShotTime}),
+ * sobre un catálogo que se vuelve a armar antes de cada iteración; los tiempos y las
+ * asignaciones son por catálogo, no por libro.
+ * <p>
+ * Sin balanceo, insertar uno a uno autores ordenados degenera en una lista (O(n²)): por
+ * encima de {@link SuiteBenchmark#MAXIMO_DEGENERADO} libros {@link #insertar} rechaza esa
+ * combinación y JMH la informa como fallida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ModificacionesBenchmark {
+
+    @Param({"ALEATORIA", "ORDENADA", "SESGADA"})
+    private Distribucion distribucion;
+
+    @Param({"1000", "100000", "1000000"})
+    private int tamanio;
+
+    @Param({"AVL", "NINGUNO", "SPLAY"})
+    private ModoBalanceo modo;
+
+    @Param({"NODOS"})
+    private Almacenamiento almacenamiento;
+
+    private List<Libro> libros;
+
+    @Setup
+    public void generar() {
+        libros = distribucion.generar(tamanio, SuiteBenchmark.SEMILLA);
+    }
+
+    /** Catálogo vacío para cada iteración de {@link #insertar} y {@link #cargarMasivo}. */
+    @State(Scope.Benchmark)
+    public static class CatalogoVacio {
+        Catalogo catalogo;
+
+        @Setup(Level.Iteration)
+        public void armar(ModificacionesBenchmark datos) {
+            catalogo = datos.almacenamiento.crear(datos.modo);
+        }
+    }
+
+    /** Catálogo con todos los libros para cada iteración de {@link #eliminar}. */
+    @State(Scope.Benchmark)
+    public static class CatalogoLleno {
+        Catalogo catalogo;
+
+        @Setup(Level.Iteration)
+        public void armar(ModificacionesBenchmark datos) {
+            catalogo = DatosBenchmark.armar(datos.almacenamiento, datos.modo, datos.distribucion, datos.libros);
+        }
+    }
+
+    /** Inserta los libros uno a uno en el orden de llegada. */
+    @Benchmark
+    public Catalogo insertar(CatalogoVacio vacio) {
+        if (DatosBenchmark.degenera(modo, distribucion, tamanio))
+            throw new IllegalArgumentException("Sin balanceo, insertar " + tamanio
+                + " autores ordenados degenera en una lista; use hasta "
+                + SuiteBenchmark.MAXIMO_DEGENERADO + " libros.");
+        for (Libro libro : libros) vacio.catalogo.insertar(libro);
+        return vacio.catalogo;
+    }
+
+    @Benchmark
+    public ResultadoCarga cargarMasivo(CatalogoVacio vacio) {
+        return vacio.catalogo.cargarMasivo(libros);
+    }
+
+    /** Elimina los libros en el orden en que se generaron, hasta vaciar el catálogo. */
+    @Benchmark
+    public int eliminar(CatalogoLleno lleno) {
+        int eliminados = 0;
+        for (Libro libro : libros) {
+            if (lleno.catalogo.eliminar(libro.getAutor())) eliminados++;
+        }
+        return eliminados;
+    }
+}
@@ -0,0 +1,115 @@
+package benchmark;
+
+import estructura.Almacenamiento;
+import estructura.ModoBalanceo;
+import modelo.Libro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import servicio.BibliotecaService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Búsquedas por autor y por ISBN a través de {@link BibliotecaService}, con un solo hilo
+ * y con cuatro hilos consultando mientras otro presta y devuelve libros (grupo
+ * {@code concurrente}, como en {@link SuiteBenchmark}). Los lectores no toman cerrojos
+ * para buscar por autor, así que sus latencias no deberían crecer por los préstamos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServicioBenchmark {
+
+    private static final int LECTORES = 500;
+
+    @Param({"ALEATORIA", "ORDENADA", "SESGADA"})
+    private Distribucion distribucion;
+
+    @Param({"1000", "100000", "1000000"})
+    private int tamanio;
+
+    @Param({"NODOS", "COMPACTO"})
+    private Almacenamiento almacenamiento;
+
+    private BibliotecaService servicio;
+    private String[] autores;
+    private String[] isbns;
+    private final String[] lectores = new String[LECTORES];
+
+    @Setup
+    public void armar() {
+        List<Libro> libros = distribucion.generar(tamanio, SuiteBenchmark.SEMILLA);
+        servicio = new BibliotecaService(ModoBalanceo.AVL, almacenamiento);
+        servicio.cargarLibros(libros);
+        Libro[] consultados = DatosBenchmark.consultados(distribucion, libros);
+        autores = new String[consultados.length];
+        isbns = new String[consultados.length];
+        for (int i = 0; i < consultados.length; i++) {
+            autores[i] = consultados[i].getAutor();
+            isbns[i] = consultados[i].getIsbn();
+        }
+        for (int i = 0; i < LECTORES; i++) lectores[i] = "Lector " + i;
+    }
+
+    /** Posición de cada hilo en las consultas; cada uno empieza en un lugar distinto. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private static final AtomicInteger HILOS = new AtomicInteger();
+        private int siguiente = HILOS.getAndIncrement() * 7919;
+
+        int siguiente() {
+            return siguiente++ & (DatosBenchmark.CONSULTAS - 1);
+        }
+    }
+
+    @Benchmark
+    public Libro buscarPorAutor(Cursor cursor) {
+        return servicio.buscarPorAutor(autores[cursor.siguiente()]);
+    }
+
+    @Benchmark
+    public Libro buscarPorIsbn(Cursor cursor) {
+        return servicio.buscarPorIsbn(isbns[cursor.siguiente()]);
+    }
+
+    // =========================================================
+    //  LECTORES CON UN ESCRITOR
+    // =========================================================
+
+    @Benchmark
+    @Group("concurrente")
+    @GroupThreads(4)
+    public Libro lectura(Cursor cursor) {
+        int i = cursor.siguiente();
+        return (i & 1) == 0 ? servicio.buscarPorAutor(autores[i]) : servicio.buscarPorIsbn(isbns[i]);
+    }
+
+    @Benchmark
+    @Group("concurrente")
+    @GroupThreads(1)
+    public void prestamoYDevolucion(Cursor cursor) {
+        int i = cursor.siguiente();
+        String autor = autores[(i * 31) & (DatosBenchmark.CONSULTAS - 1)];
+        try {
+            servicio.registrarPrestamo(autor, lectores[i % LECTORES]);
+            servicio.registrarDevolucion(autor);
+        } catch (IllegalStateException e) {
+            // El libro ya estaba prestado por los datos de prueba: se cuenta igual
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import modelo.Libro;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Distribución de los autores en los datos de las mediciones. Los datos salen de una
+ * semilla fija, así que dos corridas con los mismos parámetros miden lo mismo.
+ */
+public enum Distribucion {
+
+    /** Autores distintos en orden aleatorio. */
+    ALEATORIA,
+    /** Autores insertados en orden alfabético: el peor caso de un BST sin balanceo. */
+    ORDENADA,
+    /**
+     * Apellidos con distribución de Zipf (pocos apellidos muy comunes), en orden
+     * aleatorio. Muchos autores comparten prefijo, como en un catálogo real.
+     */
+    SESGADA;
+
+    private static final String[] APELLIDOS = {
+        "García", "Rodríguez", "González", "Fernández", "López", "Martínez", "Sánchez", "Pérez",
+        "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz", "Álvarez",
+        "Romero", "Alonso", "Gutiérrez", "Navarro", "Torres", "Domínguez", "Vázquez", "Ramos",
+        "Gil", "Ramírez", "Serrano", "Blanco", "Molina", "Morales", "Suárez", "Ortega", "Delgado",
+        "Castro", "Ortiz", "Rubio", "Marín", "Sanz", "Núñez", "Iglesias", "Medina", "Garrido",
+        "Cortés", "Castillo", "Santos", "Lozano", "Guerrero", "Cano", "Prieto", "Méndez", "Cruz",
+        "Calvo", "Gallego", "Vidal", "León", "Márquez", "Herrera", "Peña", "Flores", "Cabrera",
+        "Campos", "Vega", "Fuentes", "Carrasco", "Diez", "Caballero", "Reyes", "Nieto", "Aguilar"
+    };
+    private static final String[] CATEGORIAS = {
+        "Novela", "Ciencia", "Historia", "Poesía", "Ensayo", "Infantil", "Arte", "Filosofía",
+        "Tecnología", "Biografía", "Teatro", "Viajes"
+    };
+    private static final int EDITORIALES = 300;
+
+    /** Genera {@code cantidad} libros con autores e ISBN distintos. */
+    public List<Libro> generar(int cantidad, long semilla) {
+        Random azar = new Random(semilla);
+        double[] acumulada = this == SESGADA ? zipf(APELLIDOS.length, 1.1) : null;
+        List<Libro> libros = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            String apellido = acumulada == null
+                ? APELLIDOS[i % APELLIDOS.length]
+                : APELLIDOS[muestra(acumulada, azar)];
+            // El número al final hace único al autor; con ceros a la izquierda el orden
+            // alfabético coincide con el de generación.
+            String autor = this == ORDENADA
+                ? String.format("Autor %09d", i)
+                : apellido + ", " + Integer.toString(azar.nextInt(1 << 30), 36) + " " + i;
+            libros.add(new Libro(String.format("978%010d", i), "Título " + i, autor,
+                                 "Editorial " + azar.nextInt(EDITORIALES), 1900 + azar.nextInt(125),
+                                 CATEGORIAS[azar.nextInt(CATEGORIAS.length)]));
+        }
+        if (this != ORDENADA) Collections.shuffle(libros, azar);
+        return libros;
+    }
+
+    /**
+     * Índices de consulta sobre {@code cantidad} libros. Con la distribución sesgada se
+     * consultan mucho más unos pocos libros (Zipf); con las demás, todos por igual.
+     */
+    public int[] consultas(int cantidad, int total, long semilla) {
+        Random azar = new Random(semilla);
+        int[] indices = new int[total];
+        if (this == SESGADA) {
+            double[] acumulada = zipf(Math.min(cantidad, 100_000), 1.0);
+            for (int i = 0; i < total; i++) indices[i] = muestra(acumulada, azar);
+        } else {
+            for (int i = 0; i < total; i++) indices[i] = azar.nextInt(cantidad);
+        }
+        return indices;
+    }
+
+    /** Distribución acumulada de Zipf con exponente {@code s} sobre {@code n} rangos. */
+    static double[] zipf(int n, double s) {
+        double[] acumulada = new double[n];
+        double suma = 0;
+        for (int i = 0; i < n; i++) {
+            suma += 1.0 / Math.pow(i + 1, s);
+            acumulada[i] = suma;
+        }
+        for (int i = 0; i < n; i++) acumulada[i] /= suma;
+        return acumulada;
+    }
+
+    static int muestra(double[] acumulada, Random azar) {
+        double u = azar.nextDouble();
+        int desde = 0, hasta = acumulada.length - 1;
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (acumulada[medio] < u) desde = medio + 1;
+            else hasta = medio;
+        }
+        return desde;
+    }
+}
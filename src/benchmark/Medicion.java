@@ -0,0 +1,125 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resultado de medir una operación: cantidad de operaciones, tiempo total, latencia de
+ * cada muestra y bytes asignados en el heap.
+ * <p>
+ * Las asignaciones se miden por hilo con {@code com.sun.management.ThreadMXBean} (el
+ * mismo contador que usa el perfilador de GC de JMH); en una JVM que no lo ofrezca se
+ * informan como no disponibles. El arreglo de muestras se reserva antes de empezar para
+ * no contarlo como asignación de la operación.
+ */
+final class Medicion {
+
+    private static final ThreadMXBean HILOS = ManagementFactory.getThreadMXBean();
+    private static final boolean MIDE_ASIGNACIONES = asignacionesDisponibles();
+
+    private final String nombre;
+    private final long[] muestras;
+    private int cantidadMuestras;
+    private long operaciones;
+    private long nanos;
+    private long bytes;
+    private long inicioNanos;
+    private long inicioBytes;
+
+    Medicion(String nombre, int maximoMuestras) {
+        this.nombre = nombre;
+        this.muestras = new long[maximoMuestras];
+    }
+
+    private static boolean asignacionesDisponibles() {
+        if (!(HILOS instanceof com.sun.management.ThreadMXBean)) return false;
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) HILOS;
+        try {
+            if (!hilos.isThreadAllocatedMemoryEnabled()) hilos.setThreadAllocatedMemoryEnabled(true);
+            return hilos.isThreadAllocatedMemorySupported();
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static long bytesAsignados() {
+        if (!MIDE_ASIGNACIONES) return 0;
+        return ((com.sun.management.ThreadMXBean) HILOS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // =========================================================
+    //  REGISTRO
+    // =========================================================
+
+    /** Empieza a medir en el hilo actual. */
+    void iniciar() {
+        inicioBytes = bytesAsignados();
+        inicioNanos = System.nanoTime();
+    }
+
+    /** Anota la latencia de una operación; las que exceden la capacidad solo se cuentan. */
+    void registrar(long latenciaNanos) {
+        if (cantidadMuestras < muestras.length) muestras[cantidadMuestras++] = latenciaNanos;
+        operaciones++;
+    }
+
+    /** Anota {@code cantidad} operaciones hechas dentro de una muestra de {@code latenciaNanos}. */
+    void registrarLote(long latenciaNanos, long cantidad) {
+        if (cantidadMuestras < muestras.length) muestras[cantidadMuestras++] = latenciaNanos;
+        operaciones += cantidad;
+    }
+
+    /** Termina de medir; debe llamarse desde el mismo hilo que {@link #iniciar}. */
+    void detener() {
+        nanos += System.nanoTime() - inicioNanos;
+        bytes += bytesAsignados() - inicioBytes;
+    }
+
+    /** Junta las mediciones de varios hilos que corrieron a la vez. */
+    static Medicion combinar(String nombre, List<Medicion> partes) {
+        int total = 0;
+        for (Medicion parte : partes) total += parte.cantidadMuestras;
+        Medicion resultado = new Medicion(nombre, total);
+        for (Medicion parte : partes) {
+            System.arraycopy(parte.muestras, 0, resultado.muestras, resultado.cantidadMuestras, parte.cantidadMuestras);
+            resultado.cantidadMuestras += parte.cantidadMuestras;
+            resultado.operaciones += parte.operaciones;
+            resultado.nanos = Math.max(resultado.nanos, parte.nanos);
+            resultado.bytes += parte.bytes;
+        }
+        return resultado;
+    }
+
+    // =========================================================
+    //  INFORME
+    // =========================================================
+
+    static String encabezado() {
+        return String.format("%-34s %12s %10s %10s %10s %10s %12s",
+            "operación", "ops/s", "p50 µs", "p90 µs", "p99 µs", "máx µs", "B/op");
+    }
+
+    @Override
+    public String toString() {
+        long[] ordenadas = Arrays.copyOf(muestras, cantidadMuestras);
+        Arrays.sort(ordenadas);
+        double porSegundo = nanos == 0 ? 0 : operaciones * 1e9 / nanos;
+        return String.format("%-34s %12.0f %10s %10s %10s %10s %12s",
+            nombre, porSegundo,
+            microsegundos(percentil(ordenadas, 0.50)), microsegundos(percentil(ordenadas, 0.90)),
+            microsegundos(percentil(ordenadas, 0.99)),
+            microsegundos(ordenadas.length == 0 ? -1 : ordenadas[ordenadas.length - 1]),
+            !MIDE_ASIGNACIONES || operaciones == 0 ? "n/d" : String.format("%.0f", (double) bytes / operaciones));
+    }
+
+    private static long percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) return -1;
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1)];
+    }
+
+    private static String microsegundos(long nanos) {
+        return nanos < 0 ? "-" : String.format("%.2f", nanos / 1000.0);
+    }
+}
@@ -0,0 +1,370 @@
+package benchmark;
+
+import estructura.ArbolBST;
+import estructura.ModoBalanceo;
+import metricas.Histograma;
+import modelo.Libro;
+import servicio.BibliotecaService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Mediciones de rendimiento de {@link ArbolBST} y {@link BibliotecaService}.
+ * <p>
+ * Para cada tamaño, distribución de autores y modo de balanceo arma el árbol y mide
+ * inserción, carga masiva, búsquedas (por autor, por ISBN, por prefijo y por
+ * subcadena), recorridos, filtros y eliminación. Las consultas se hacen sobre el árbol
+ * que deja la carga masiva en modo AVL y sobre el que dejan las inserciones en orden de
+ * llegada sin balanceo y en modo splay, porque la carga masiva siempre arma un árbol
+ * perfectamente balanceado y ocultaría la diferencia entre esos modos. Informa operaciones por segundo,
+ * percentiles de latencia y bytes asignados por operación. Al final de cada tamaño y
+ * distribución mide el servicio con varios hilos consultando mientras otro presta y
+ * devuelve libros (la corrección de ese escenario la comprueba
+ * {@link verificacion.VerificacionConcurrencia}). Para las búsquedas por autor
+ * informa además cuántas claves compara cada una, lo que muestra cuánto acerca a la raíz
+ * el modo splay a los autores más consultados con la distribución sesgada (Zipf).
+ * <p>
+ * Cada operación se ejecuta primero sin medir para que el JIT la compile. Las latencias
+ * de las operaciones puntuales incluyen el costo de {@link System#nanoTime()} (unas
+ * decenas de nanosegundos). Para catálogos grandes conviene dar más memoria a la JVM:
+ * <pre>
+ * java -Xmx8g -cp out benchmark.SuiteBenchmark --tamanios 1000,100000,1000000,10000000
+ * </pre>
+ * Opciones (todas opcionales):
+ * {@code --tamanios 1000,100000,1000000}, {@code --distribuciones ALEATORIA,ORDENADA,SESGADA},
+ * {@code --modos AVL,NINGUNO,SPLAY}, {@code --consultas 100000}, {@code --hilos 4},
+ * {@code --segundos 3}.
+ */
+public class SuiteBenchmark {
+
+    /** Por encima de este tamaño no se mide la inserción ordenada sin balanceo (O(n²)). */
+    static final int MAXIMO_DEGENERADO = 10_000;
+    static final long SEMILLA = 20240501L;
+
+    private int[] tamanios = {1_000, 100_000, 1_000_000};
+    private Distribucion[] distribuciones = Distribucion.values();
+    private ModoBalanceo[] modos = {ModoBalanceo.AVL, ModoBalanceo.NINGUNO, ModoBalanceo.SPLAY};
+    private int consultas = 100_000;
+    private int hilos = 4;
+    private int segundos = 3;
+
+    /** Evita que el JIT descarte resultados que no se usan. */
+    private static volatile long sumidero;
+
+    public static void main(String[] args) {
+        SuiteBenchmark suite = new SuiteBenchmark();
+        try {
+            suite.leerOpciones(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.exit(2);
+        }
+        suite.ejecutar();
+    }
+
+    private void leerOpciones(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) throw new IllegalArgumentException("Falta el valor de la opción '" + args[i] + "'.");
+            String valor = args[++i];
+            switch (args[i - 1]) {
+                case "--tamanios":
+                    tamanios = Arrays.stream(valor.split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+                    break;
+                case "--distribuciones":
+                    distribuciones = Arrays.stream(valor.split(","))
+                        .map(s -> constante(Distribucion.class, s)).toArray(Distribucion[]::new);
+                    break;
+                case "--modos":
+                    modos = Arrays.stream(valor.split(","))
+                        .map(s -> constante(ModoBalanceo.class, s)).toArray(ModoBalanceo[]::new);
+                    break;
+                case "--consultas": consultas = Integer.parseInt(valor); break;
+                case "--hilos":     hilos = Integer.parseInt(valor); break;
+                case "--segundos":  segundos = Integer.parseInt(valor); break;
+                default: throw new IllegalArgumentException("Opción desconocida: '" + args[i - 1] + "'.");
+            }
+        }
+        for (int tamanio : tamanios) {
+            if (tamanio < 1) throw new IllegalArgumentException("Los tamaños deben ser mayores que 0.");
+        }
+        if (consultas < 1 || hilos < 1 || segundos < 1)
+            throw new IllegalArgumentException("Las consultas, los hilos y los segundos deben ser mayores que 0.");
+    }
+
+    /** Constante de {@code tipo} con el nombre {@code texto}, sin distinguir mayúsculas. */
+    private static <E extends Enum<E>> E constante(Class<E> tipo, String texto) {
+        try {
+            return Enum.valueOf(tipo, texto.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Valor desconocido: '" + texto.trim() + "'. Valores permitidos: "
+                + Arrays.toString(tipo.getEnumConstants()) + ".");
+        }
+    }
+
+    private void ejecutar() {
+        System.out.printf("JVM %s, %d procesador(es), heap máximo %d MB%n",
+            System.getProperty("java.version"), Runtime.getRuntime().availableProcessors(),
+            Runtime.getRuntime().maxMemory() >> 20);
+        for (int tamanio : tamanios) {
+            for (Distribucion distribucion : distribuciones) {
+                List<Libro> libros = distribucion.generar(tamanio, SEMILLA);
+                int[] indices = distribucion.consultas(tamanio, consultas, SEMILLA + 1);
+                for (ModoBalanceo modo : modos) {
+                    System.out.printf("%n=== %,d libros · %s · %s ===%n", tamanio, distribucion, modo);
+                    System.out.println(Medicion.encabezado());
+                    medirArbol(libros, indices, modo, distribucion);
+                }
+                System.out.printf("%n=== %,d libros · %s · servicio con %d hilo(s) de consulta ===%n",
+                    tamanio, distribucion, hilos);
+                System.out.println(Medicion.encabezado());
+                medirServicioConcurrente(libros, indices);
+            }
+        }
+    }
+
+    // =========================================================
+    //  ÁRBOL
+    // =========================================================
+
+    private void medirArbol(List<Libro> libros, int[] indices, ModoBalanceo modo, Distribucion distribucion) {
+        int n = libros.size();
+
+        ArbolBST insertado = null;
+        if (modo == ModoBalanceo.NINGUNO && distribucion == Distribucion.ORDENADA && n > MAXIMO_DEGENERADO) {
+            System.out.printf("%-34s omitido: sin balanceo el árbol degenera en una lista%n", "insertar");
+        } else {
+            insertado = medirInsercion(libros, modo);
+        }
+
+        Medicion carga = new Medicion("cargarMasivo", 16);
+        ArbolBST arbol = null;
+        for (int ronda = 0; ronda < 2; ronda++) {
+            arbol = new ArbolBST(modo);
+            if (ronda == 1) carga.iniciar();
+            long inicio = System.nanoTime();
+            arbol.cargarMasivo(libros);
+            if (ronda == 1) {
+                carga.registrarLote(System.nanoTime() - inicio, n);
+                carga.detener();
+            }
+        }
+        System.out.println(carga);
+        System.out.printf("%-34s %d%n", "altura tras cargarMasivo", arbol.altura());
+
+        // Sin balanceo y en splay se consulta el árbol que dejan las inserciones
+        if (modo != ModoBalanceo.AVL && insertado != null) arbol = insertado;
+        System.out.printf("%-34s árbol de %s (altura %d)%n", "consultas sobre",
+            arbol == insertado ? "insertar en orden de llegada" : "cargarMasivo", arbol.altura());
+
+        String[] autores = new String[indices.length];
+        String[] isbns = new String[indices.length];
+        String[] ausentes = new String[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            Libro libro = libros.get(indices[i]);
+            autores[i] = libro.getAutor();
+            isbns[i] = libro.getIsbn();
+            ausentes[i] = libro.getAutor() + " (inexistente)";
+        }
+        ArbolBST a = arbol;
+        medirPuntual("buscar", autores, autor -> a.buscar(autor) != null ? 1 : 0);
+        medirComparaciones(a, autores);
+        medirPuntual("buscar (inexistente)", ausentes, autor -> a.buscar(autor) != null ? 1 : 0);
+        medirPuntual("buscarPorIsbn", isbns, isbn -> a.buscarPorIsbn(isbn) != null ? 1 : 0);
+
+        String[] prefijos = new String[Math.min(indices.length, 10_000)];
+        // Sin las dos últimas letras: unos pocos autores por consulta en todas las distribuciones
+        for (int i = 0; i < prefijos.length; i++) prefijos[i] = autores[i].substring(0, autores[i].length() - 2);
+        medirPuntual("buscarPorPrefijoAutor", prefijos, p -> a.buscarPorPrefijoAutor(p).size());
+
+        int repeticiones = Math.max(3, Math.min(1_000, 2_000_000 / n));
+        medirRecorrido("recorridoInOrden", repeticiones, n, () -> a.recorridoInOrden().size());
+        medirRecorrido("iterador InOrden", repeticiones, n, () -> {
+            long total = 0;
+            for (Iterator<Libro> it = a.iterator(); it.hasNext(); ) total += it.next().getAnioPublicacion();
+            return total;
+        });
+        medirRecorrido("recorridoPostOrden", repeticiones, n, () -> a.recorridoPostOrden().size());
+        medirRecorrido("listarDisponibles", repeticiones, n, () -> a.listarDisponibles().size());
+        medirRecorrido("buscarPorCategoria", repeticiones, n, () -> a.buscarPorCategoria("novela").size());
+        // El primer uso arma el índice de trigramas; se mide aparte de las consultas
+        Medicion armado = new Medicion("índice de subcadenas (libros)", 1);
+        armado.iniciar();
+        long inicioArmado = System.nanoTime();
+        sumidero += a.buscarPorAutorParcial("xyz").size();
+        armado.registrarLote(System.nanoTime() - inicioArmado, n);
+        armado.detener();
+        System.out.println(armado);
+        String[] subcadenas = new String[Math.min(indices.length, 1_000)];
+        for (int i = 0; i < subcadenas.length; i++) {
+            subcadenas[i] = autores[i].substring(autores[i].length() - 4);
+        }
+        medirPuntual("buscarPorAutorParcial (4 letras)", subcadenas, s -> a.buscarPorAutorParcial(s).size());
+
+        String[] aEliminar = new String[Math.min(n, consultas)];
+        for (int i = 0; i < aEliminar.length; i++) aEliminar[i] = libros.get(i).getAutor();
+        medirPuntual("eliminar", aEliminar, autor -> a.eliminar(autor) ? 1 : 0, false);
+    }
+
+    /** Mide la inserción uno a uno en el orden de la lista y retorna el árbol resultante. */
+    private ArbolBST medirInsercion(List<Libro> libros, ModoBalanceo modo) {
+        // Ronda de calentamiento con una parte del lote
+        ArbolBST previo = new ArbolBST(modo);
+        for (Libro libro : libros.subList(0, Math.min(libros.size(), 20_000))) previo.insertar(libro);
+
+        ArbolBST arbol = new ArbolBST(modo);
+        Medicion medicion = new Medicion("insertar", libros.size());
+        medicion.iniciar();
+        for (Libro libro : libros) {
+            long inicio = System.nanoTime();
+            arbol.insertar(libro);
+            medicion.registrar(System.nanoTime() - inicio);
+        }
+        medicion.detener();
+        System.out.println(medicion);
+        System.out.printf("%-34s %d%n", "altura tras insertar", arbol.altura());
+        return arbol;
+    }
+
+    // =========================================================
+    //  SERVICIO CON VARIOS HILOS
+    // =========================================================
+
+    /**
+     * Varios hilos buscan por autor y por ISBN mientras uno presta y devuelve libros,
+     * durante el tiempo configurado. Los lectores no toman cerrojos para buscar por autor,
+     * así que sus latencias no deberían crecer por los préstamos.
+     */
+    private void medirServicioConcurrente(List<Libro> libros, int[] indices) {
+        BibliotecaService servicio = new BibliotecaService();
+        servicio.cargarLibros(libros);
+        AtomicBoolean fin = new AtomicBoolean();
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Medicion> lecturas = new ArrayList<>();
+        Medicion escrituras = new Medicion("préstamo + devolución", 1 << 20);
+        List<Thread> trabajadores = new ArrayList<>();
+
+        for (int h = 0; h < hilos; h++) {
+            Medicion medicion = new Medicion("lectura", 1 << 20);
+            lecturas.add(medicion);
+            int desplazamiento = h * 7919;
+            trabajadores.add(new Thread(() -> {
+                esperar(largada);
+                long total = 0;
+                medicion.iniciar();
+                for (int i = desplazamiento; !fin.get(); i++) {
+                    Libro libro = libros.get(indices[i % indices.length]);
+                    long inicio = System.nanoTime();
+                    Libro encontrado = (i & 1) == 0 ? servicio.buscarPorAutor(libro.getAutor())
+                                                    : servicio.buscarPorIsbn(libro.getIsbn());
+                    medicion.registrar(System.nanoTime() - inicio);
+                    if (encontrado != null) total++;
+                }
+                medicion.detener();
+                sumidero += total;
+            }, "lector-" + h));
+        }
+        trabajadores.add(new Thread(() -> {
+            esperar(largada);
+            escrituras.iniciar();
+            for (int i = 0; !fin.get(); i++) {
+                String autor = libros.get(indices[(i * 31) % indices.length]).getAutor();
+                long inicio = System.nanoTime();
+                try {
+                    servicio.registrarPrestamo(autor, "Lector " + (i % 500));
+                    servicio.registrarDevolucion(autor);
+                } catch (IllegalStateException e) {
+                    // El libro ya estaba prestado por los datos de prueba: se cuenta igual
+                }
+                escrituras.registrarLote(System.nanoTime() - inicio, 2);
+            }
+            escrituras.detener();
+        }, "escritor"));
+
+        trabajadores.forEach(Thread::start);
+        largada.countDown();
+        try {
+            Thread.sleep(segundos * 1000L);
+            fin.set(true);
+            for (Thread t : trabajadores) t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        System.out.println(Medicion.combinar("lecturas (autor/ISBN)", lecturas));
+        System.out.println(escrituras);
+    }
+
+    private static void esperar(CountDownLatch largada) {
+        try {
+            largada.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // =========================================================
+    //  AUXILIARES
+    // =========================================================
+
+    /**
+     * Mide una operación por argumento, después de una pasada de calentamiento sin medir.
+     * Las operaciones que modifican el árbol se miden sin calentamiento.
+     */
+    private static void medirPuntual(String nombre, String[] argumentos, ToLongFunction<String> operacion) {
+        medirPuntual(nombre, argumentos, operacion, true);
+    }
+
+    private static void medirPuntual(String nombre, String[] argumentos, ToLongFunction<String> operacion,
+                                     boolean calentar) {
+        long total = 0;
+        if (calentar) {
+            for (String argumento : argumentos) total += operacion.applyAsLong(argumento);
+        }
+        Medicion medicion = new Medicion(nombre, argumentos.length);
+        medicion.iniciar();
+        for (String argumento : argumentos) {
+            long inicio = System.nanoTime();
+            total += operacion.applyAsLong(argumento);
+            medicion.registrar(System.nanoTime() - inicio);
+        }
+        medicion.detener();
+        sumidero += total;
+        System.out.println(medicion);
+    }
+
+    /** Claves comparadas por búsqueda en una pasada más sobre las mismas consultas. */
+    private static void medirComparaciones(ArbolBST arbol, String[] autores) {
+        Histograma pasos = new Histograma();
+        arbol.medirComparaciones(pasos);
+        for (String autor : autores) sumidero += arbol.buscar(autor) != null ? 1 : 0;
+        arbol.medirComparaciones(null);
+        System.out.printf("%-34s media %.1f · p50 %d · p99 %d · máx %d%n", "comparaciones por búsqueda",
+            pasos.getMedia(), pasos.percentil(0.50), pasos.percentil(0.99), pasos.getMaximo());
+    }
+
+    /**
+     * Mide una operación que recorre todo el árbol. Cada repetición es una muestra; el
+     * rendimiento se informa en libros por segundo.
+     */
+    private static void medirRecorrido(String nombre, int repeticiones, int libros, LongSupplier operacion) {
+        long total = 0;
+        for (int i = 0; i < Math.min(repeticiones, 3); i++) total += operacion.getAsLong();
+        Medicion medicion = new Medicion(nombre + " (libros)", repeticiones);
+        medicion.iniciar();
+        for (int i = 0; i < repeticiones; i++) {
+            long inicio = System.nanoTime();
+            total += operacion.getAsLong();
+            medicion.registrarLote(System.nanoTime() - inicio, libros);
+        }
+        medicion.detener();
+        sumidero += total;
+        System.out.println(medicion);
+    }
+}
@@ -0,0 +1,21 @@
+package estructura;
+
+/**
+ * Forma en que el {@link Catalogo} guarda los libros en memoria.
+ */
+public enum Almacenamiento {
+    /** {@link ArbolBST}: un nodo y un {@link modelo.Libro} por libro; admite todos los modos de balanceo. */
+    NODOS,
+    /**
+     * {@link ArbolCompacto}: nodos y campos en arreglos de enteros y referencias, sin un
+     * objeto por libro. Ocupa bastante menos memoria y presiona menos al recolector con
+     * catálogos grandes, a cambio de crear una copia de cada libro que entrega y de buscar
+     * subcadenas recorriendo el catálogo. No admite {@link ModoBalanceo#SPLAY}.
+     */
+    COMPACTO;
+
+    /** Catálogo vacío con este almacenamiento y el modo indicado. */
+    public Catalogo crear(ModoBalanceo modo) {
+        return this == COMPACTO ? new ArbolCompacto(modo) : new ArbolBST(modo);
+    }
+}
@@ -1,20 +1,91 @@
 package estructura;
 
+import metricas.Histograma;
+import modelo.ClaveAutor;
 import modelo.Libro;
 import modelo.NodoBST;
+import modelo.TablaSimbolos;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Implementación del Árbol Binario de Búsqueda (BST) para gestión de libros.
- * El criterio de ordenamiento es el apellido del autor (comparación alfabética).
+ * El criterio de ordenamiento es el apellido del autor, comparado mediante la clave de
+ * intercalación en español que cada nodo guarda (ver {@link ClaveAutor}).
+ * En modo {@link ModoBalanceo#AVL} el árbol se rebalancea tras cada inserción y
+ * eliminación, de modo que la altura se mantiene en O(log n) sin importar el orden
+ * en que lleguen los libros. En modo {@link ModoBalanceo#SPLAY} cada operación sube el
+ * nodo usado a la raíz, de modo que los autores más consultados quedan a pocos pasos.
+ * Además del orden por autor, el árbol mantiene un índice hash por ISBN que se
+ * actualiza en cada inserción y eliminación, junto con el total de libros y el
+ * conteo por categoría, para que las estadísticas no tengan que recorrer el árbol, y un
+ * índice de trigramas del autor para las búsquedas por subcadena.
+ * Cada nodo guarda el tamaño de su subárbol, lo que permite consultas por posición
+ * (k-ésimo autor, posición de un autor y páginas del listado alfabético) en O(log n).
+ * Los recorridos se ofrecen también como iteradores y {@link Stream}s perezosos.
+ * <p>
+ * El árbol es persistente: cada inserción o eliminación copia solo los nodos del camino
+ * modificado y publica la nueva raíz con una {@link AtomicReference}. Las consultas del
+ * árbol trabajan sobre una {@link InstantaneaArbol} y no necesitan cerrojos; las
+ * modificaciones y los índices auxiliares (ISBN, trigramas, categorías) suponen un único
+ * escritor a la vez, coordinado por quien use el árbol.
  */
-public class ArbolBST {
-
-    private NodoBST raiz;
+public class ArbolBST implements Catalogo {
+
+    private final AtomicReference<NodoBST> raiz;
+    private final ModoBalanceo modo;
+    private final Map<String, Libro> indiceIsbn;
+    /** Editoriales y categorías compartidas entre los libros, con el conteo por categoría. */
+    private final TablaSimbolos simbolos;
+    /** Se construye en la primera búsqueda por subcadena (ver {@link #indiceTrigramas()}). */
+    private volatile IndiceTrigramas indiceTrigramas;
+    /** Ver {@link #medirComparaciones}. */
+    private volatile Histograma comparaciones;
 
     public ArbolBST() {
-        this.raiz = null;
+        this(ModoBalanceo.NINGUNO);
+    }
+
+    public ArbolBST(ModoBalanceo modo) {
+        if (modo == null) throw new IllegalArgumentException("El modo de balanceo no puede ser nulo.");
+        this.raiz = new AtomicReference<>(null);
+        this.modo = modo;
+        this.indiceIsbn = new HashMap<>();
+        this.simbolos = new TablaSimbolos();
+    }
+
+    public ModoBalanceo getModo() {
+        return modo;
+    }
+
+    /**
+     * Retorna una vista inmutable de la versión actual del árbol. Puede usarse desde
+     * cualquier hilo y no se ve afectada por inserciones o eliminaciones posteriores.
+     */
+    public InstantaneaArbol instantanea() {
+        return new InstantaneaArbol(raiz.get(), comparaciones, simbolos);
+    }
+
+    /**
+     * Anota en {@code histograma} cuántas claves compara cada búsqueda por autor, incluidas
+     * las hechas sobre instantáneas abiertas desde ahora. Con null deja de medir.
+     */
+    public void medirComparaciones(Histograma histograma) {
+        this.comparaciones = histograma;
     }
 
     // =========================================================
@@ -22,29 +93,199 @@ public class ArbolBST {
     // =========================================================
 
     /**
-     * Inserta un nuevo libro en el BST ordenado por autor.
-     * @throws IllegalArgumentException si ya existe un libro con ese autor.
+     * Inserta un nuevo libro en el BST ordenado por autor y lo registra en el índice de ISBN.
+     * @throws IllegalArgumentException si ya existe un libro con ese autor o con ese ISBN.
      */
     public void insertar(Libro libro) {
         if (libro == null) throw new IllegalArgumentException("El libro no puede ser nulo.");
         if (libro.getAutor() == null || libro.getAutor().trim().isEmpty())
             throw new IllegalArgumentException("El autor no puede estar vacío.");
-        raiz = insertarRecursivo(raiz, libro);
+        if (libro.getIsbn() == null || libro.getIsbn().trim().isEmpty())
+            throw new IllegalArgumentException("El ISBN no puede estar vacío.");
+        String claveIsbn = normalizarIsbn(libro.getIsbn());
+        if (indiceIsbn.containsKey(claveIsbn))
+            throw new IllegalArgumentException(
+                "Ya existe un libro con ISBN '" + libro.getIsbn() + "' en el catálogo.");
+        NodoBST nuevo = new NodoBST(libro);
+        NodoBST nuevaRaiz = modo == ModoBalanceo.SPLAY ? insertarSplay(raiz.get(), nuevo) : insertarIterativo(raiz.get(), nuevo);
+        // Los símbolos compartidos se asignan antes de publicar el libro
+        simbolos.registrar(libro);
+        raiz.set(nuevaRaiz);
+        indiceIsbn.put(claveIsbn, libro);
+        if (indiceTrigramas != null) indiceTrigramas.agregar(libro);
     }
 
-    private NodoBST insertarRecursivo(NodoBST nodo, Libro libro) {
-        if (nodo == null) return new NodoBST(libro);
+    /**
+     * Baja hasta la hoja donde va {@code nuevo} guardando el camino en un arreglo en lugar de
+     * recursión (sin balanceo la altura no está acotada) y lo rearma con {@link #subirCamino}.
+     */
+    private NodoBST insertarIterativo(NodoBST raiz, NodoBST nuevo) {
+        if (raiz == null) return nuevo;
+        NodoBST[] camino = new NodoBST[raiz.altura];
+        boolean[] izquierda = new boolean[raiz.altura];
+        int d = 0;
+        for (NodoBST nodo = raiz; nodo != null; d++) {
+            int cmp = nuevo.clave.compareTo(nodo.clave);
+            if (cmp == 0) throw autorRepetido(nuevo);
+            camino[d] = nodo;
+            izquierda[d] = cmp < 0;
+            nodo = cmp < 0 ? nodo.izquierdo : nodo.derecho;
+        }
+        return subirCamino(camino, izquierda, d, nuevo);
+    }
 
-        int cmp = libro.getAutor().compareToIgnoreCase(nodo.libro.getAutor());
-        if (cmp < 0) {
-            nodo.izquierdo = insertarRecursivo(nodo.izquierdo, libro);
-        } else if (cmp > 0) {
-            nodo.derecho = insertarRecursivo(nodo.derecho, libro);
-        } else {
-            throw new IllegalArgumentException(
-                "Ya existe un libro del autor '" + libro.getAutor() + "' en el catálogo.");
+    /**
+     * Rearma de abajo hacia arriba los {@code d} nodos de {@code camino}: el más profundo recibe
+     * {@code subarbol} como hijo del lado indicado en {@code izquierda}, y cada copia se
+     * rebalancea antes de colgarla de la anterior. Retorna la nueva raíz.
+     */
+    private NodoBST subirCamino(NodoBST[] camino, boolean[] izquierda, int d, NodoBST subarbol) {
+        while (d > 0) {
+            NodoBST padre = camino[--d];
+            subarbol = izquierda[d]
+                ? rebalancear(padre, subarbol, padre.derecho)
+                : rebalancear(padre, padre.izquierdo, subarbol);
         }
-        return nodo;
+        return subarbol;
+    }
+
+    private static IllegalArgumentException autorRepetido(NodoBST nuevo) {
+        return new IllegalArgumentException(
+            "Ya existe un libro del autor '" + nuevo.libro.getAutor() + "' en el catálogo.");
+    }
+
+    // =========================================================
+    //  CARGA MASIVA
+    // =========================================================
+
+    /**
+     * Carga un lote de libros de una sola vez. El lote se ordena por autor (O(k) si ya
+     * viene ordenado), se descartan los autores o ISBN repetidos y el árbol resultante se
+     * construye perfectamente balanceado en tiempo lineal a partir de la secuencia ordenada.
+     * Si el catálogo ya tiene libros, el lote se intercala con ellos en una sola pasada;
+     * cuando el lote es pequeño frente al catálogo conviene más insertar uno a uno y así
+     * se hace. Los libros inválidos o repetidos no interrumpen la carga: se informan
+     * todos juntos en el {@link ResultadoCarga}.
+     */
+    public ResultadoCarga cargarMasivo(Collection<Libro> libros) {
+        return cargarMasivo(libros, libro -> { });
+    }
+
+    /**
+     * Como {@link #cargarMasivo(Collection)}, con una validación adicional por libro: los
+     * libros para los que {@code validacion} lanza {@link IllegalArgumentException} se
+     * rechazan con su mensaje, antes de modificar el árbol.
+     */
+    public ResultadoCarga cargarMasivo(Collection<Libro> libros, Consumer<Libro> validacion) {
+        if (libros == null) throw new IllegalArgumentException("El lote de libros no puede ser nulo.");
+        ResultadoCarga resultado = new ResultadoCarga();
+
+        List<NodoBST> validos = new ArrayList<>(libros.size());
+        for (Libro libro : libros) {
+            if (libro == null)
+                resultado.rechazar(null, "El libro no puede ser nulo.");
+            else if (libro.getAutor() == null || libro.getAutor().trim().isEmpty())
+                resultado.rechazar(libro, "El autor no puede estar vacío.");
+            else if (libro.getIsbn() == null || libro.getIsbn().trim().isEmpty())
+                resultado.rechazar(libro, "El ISBN no puede estar vacío.");
+            else if (!rechazadoPor(validacion, libro, resultado))
+                validos.add(new NodoBST(libro));
+        }
+
+        int actuales = contarNodos();
+        if (actuales > 0 && validos.size() * (long) (32 - Integer.numberOfLeadingZeros(actuales)) < actuales) {
+            for (NodoBST hoja : validos) {
+                try {
+                    insertar(hoja.libro);
+                    resultado.aceptar(hoja.libro);
+                } catch (IllegalArgumentException e) {
+                    resultado.rechazar(hoja.libro, e.getMessage());
+                }
+            }
+            return resultado;
+        }
+
+        // Los repetidos dentro del lote se descartan en el orden de entrada: gana el primero
+        List<NodoBST> unicos = new ArrayList<>(validos.size());
+        Set<String> isbnLote = new HashSet<>();
+        Set<String> clavesLote = new HashSet<>();
+        for (NodoBST hoja : validos) {
+            String isbn = normalizarIsbn(hoja.libro.getIsbn());
+            if (indiceIsbn.containsKey(isbn) || isbnLote.contains(isbn)) {
+                resultado.rechazar(hoja.libro,
+                    "Ya existe un libro con ISBN '" + hoja.libro.getIsbn() + "' en el catálogo.");
+            } else if (!clavesLote.add(hoja.clave)) {
+                resultado.rechazar(hoja.libro,
+                    "Ya existe un libro del autor '" + hoja.libro.getAutor() + "' en el catálogo.");
+            } else {
+                isbnLote.add(isbn);
+                unicos.add(hoja);
+            }
+        }
+
+        NodoBST[] lote = unicos.toArray(new NodoBST[0]);
+        Arrays.sort(lote, (a, b) -> a.clave.compareTo(b.clave));
+        NodoBST[] existentes = nodosInOrden(raiz.get(), actuales);
+
+        // Intercalación de los libros existentes con el lote, ambos ordenados por clave
+        NodoBST[] combinados = new NodoBST[actuales + lote.length];
+        int n = 0, i = 0;
+        for (NodoBST hoja : lote) {
+            while (i < existentes.length && existentes[i].clave.compareTo(hoja.clave) < 0) combinados[n++] = existentes[i++];
+            if (i < existentes.length && existentes[i].clave.equals(hoja.clave)) {
+                resultado.rechazar(hoja.libro,
+                    "Ya existe un libro del autor '" + hoja.libro.getAutor() + "' en el catálogo.");
+            } else {
+                combinados[n++] = hoja;
+            }
+        }
+        while (i < existentes.length) combinados[n++] = existentes[i++];
+
+        NodoBST nuevaRaiz = construirBalanceado(combinados, 0, n - 1);
+        for (int j = 0, k = 0; j < n; j++) {
+            // Los nodos del lote son hojas nuevas; los existentes ya están indexados
+            if (k < existentes.length && combinados[j] == existentes[k]) { k++; continue; }
+            Libro libro = combinados[j].libro;
+            indiceIsbn.put(normalizarIsbn(libro.getIsbn()), libro);
+            if (indiceTrigramas != null) indiceTrigramas.agregar(libro);
+            simbolos.registrar(libro);
+            resultado.aceptar(libro);
+        }
+        raiz.set(nuevaRaiz);
+        return resultado;
+    }
+
+    static boolean rechazadoPor(Consumer<Libro> validacion, Libro libro, ResultadoCarga resultado) {
+        try {
+            validacion.accept(libro);
+            return false;
+        } catch (IllegalArgumentException e) {
+            resultado.rechazar(libro, e.getMessage());
+            return true;
+        }
+    }
+
+    /** Nodos del subárbol en orden, con pila explícita. */
+    private static NodoBST[] nodosInOrden(NodoBST raiz, int tamanio) {
+        NodoBST[] nodos = new NodoBST[tamanio];
+        Deque<NodoBST> pila = new ArrayDeque<>();
+        int n = 0;
+        NodoBST nodo = raiz;
+        while (nodo != null || !pila.isEmpty()) {
+            for (; nodo != null; nodo = nodo.izquierdo) pila.push(nodo);
+            NodoBST actual = pila.pop();
+            nodos[n++] = actual;
+            nodo = actual.derecho;
+        }
+        return nodos;
+    }
+
+    /** Árbol perfectamente balanceado (y por tanto AVL) a partir de nodos ordenados: O(n). */
+    private static NodoBST construirBalanceado(NodoBST[] nodos, int desde, int hasta) {
+        if (desde > hasta) return null;
+        int medio = (desde + hasta) >>> 1;
+        return nodos[medio].conHijos(construirBalanceado(nodos, desde, medio - 1),
+                                     construirBalanceado(nodos, medio + 1, hasta));
     }
 
     // =========================================================
@@ -52,22 +293,18 @@ public class ArbolBST {
     // =========================================================
 
     /**
-     * Busca un libro por el apellido/nombre del autor.
+     * Busca un libro por el apellido/nombre del autor. En modo {@link ModoBalanceo#SPLAY}
+     * además sube el nodo encontrado a la raíz (ver {@link #buscarSplay}).
      * @return El libro encontrado o null si no existe.
      */
     public Libro buscar(String autor) {
-        if (autor == null || autor.trim().isEmpty())
-            throw new IllegalArgumentException("El autor de búsqueda no puede estar vacío.");
-        NodoBST resultado = buscarRecursivo(raiz, autor.trim());
-        return resultado != null ? resultado.libro : null;
+        if (modo == ModoBalanceo.SPLAY) return buscarSplay(autor);
+        return instantanea().buscar(autor);
     }
 
-    private NodoBST buscarRecursivo(NodoBST nodo, String autor) {
-        if (nodo == null) return null;
-        int cmp = autor.compareToIgnoreCase(nodo.libro.getAutor());
-        if (cmp < 0) return buscarRecursivo(nodo.izquierdo, autor);
-        if (cmp > 0) return buscarRecursivo(nodo.derecho, autor);
-        return nodo;
+    /** Busca varios autores en una sola pasada; ver {@link InstantaneaArbol#buscarClaves}. */
+    public Libro[] buscarClaves(String[] claves) {
+        return instantanea().buscarClaves(claves);
     }
 
     // =========================================================
@@ -83,126 +320,294 @@ public class ArbolBST {
     public boolean eliminar(String autor) {
         if (autor == null || autor.trim().isEmpty())
             throw new IllegalArgumentException("El autor no puede estar vacío.");
-        int[] eliminado = {0};
-        raiz = eliminarRecursivo(raiz, autor.trim(), eliminado);
-        return eliminado[0] == 1;
+        Libro[] eliminado = {null};
+        NodoBST nuevaRaiz = modo == ModoBalanceo.SPLAY
+            ? eliminarSplay(raiz.get(), ClaveAutor.de(autor), eliminado)
+            : eliminarIterativo(raiz.get(), ClaveAutor.de(autor), eliminado);
+        if (eliminado[0] == null) return false;
+        raiz.set(nuevaRaiz);
+        indiceIsbn.remove(normalizarIsbn(eliminado[0].getIsbn()));
+        if (indiceTrigramas != null) indiceTrigramas.quitar(eliminado[0]);
+        simbolos.liberar(eliminado[0]);
+        return true;
+    }
+
+    private NodoBST eliminarIterativo(NodoBST raiz, String clave, Libro[] eliminado) {
+        if (raiz == null) return null;
+        NodoBST[] camino = new NodoBST[raiz.altura];
+        boolean[] izquierda = new boolean[raiz.altura];
+        int d = 0;
+        NodoBST nodo = raiz;
+        while (nodo != null) {
+            int cmp = clave.compareTo(nodo.clave);
+            if (cmp == 0) break;
+            camino[d] = nodo;
+            izquierda[d++] = cmp < 0;
+            nodo = cmp < 0 ? nodo.izquierdo : nodo.derecho;
+        }
+        if (nodo == null) return raiz;
+
+        eliminado[0] = nodo.libro;
+        NodoBST reemplazo;
+        if (nodo.izquierdo == null) {
+            // Casos 1 y 2: nodo hoja o solo con hijo derecho
+            reemplazo = nodo.derecho;
+        } else if (nodo.derecho == null) {
+            // Caso 2: solo con hijo izquierdo
+            reemplazo = nodo.izquierdo;
+        } else {
+            // Caso 3: Dos hijos → sucesor inorden (mínimo del subárbol derecho) ocupa su lugar
+            NodoBST sucesor = nodo.derecho;
+            while (sucesor.izquierdo != null) sucesor = sucesor.izquierdo;
+            reemplazo = rebalancear(sucesor, nodo.izquierdo, eliminarMinimo(nodo.derecho));
+        }
+        return subirCamino(camino, izquierda, d, reemplazo);
     }
 
-    private NodoBST eliminarRecursivo(NodoBST nodo, String autor, int[] eliminado) {
-        if (nodo == null) return null;
+    /** Copia de {@code nodo} sin su mínimo, rearmando el camino por la izquierda sin recursión. */
+    private NodoBST eliminarMinimo(NodoBST nodo) {
+        NodoBST[] camino = new NodoBST[nodo.altura];
+        boolean[] izquierda = new boolean[nodo.altura];
+        int d = 0;
+        for (; nodo.izquierdo != null; nodo = nodo.izquierdo) {
+            camino[d] = nodo;
+            izquierda[d++] = true;
+        }
+        return subirCamino(camino, izquierda, d, nodo.derecho);
+    }
 
-        int cmp = autor.compareToIgnoreCase(nodo.libro.getAutor());
+    // =========================================================
+    //  BALANCEO AVL
+    // =========================================================
 
-        if (cmp < 0) {
-            nodo.izquierdo = eliminarRecursivo(nodo.izquierdo, autor, eliminado);
-        } else if (cmp > 0) {
-            nodo.derecho = eliminarRecursivo(nodo.derecho, autor, eliminado);
-        } else {
-            eliminado[0] = 1;
-            // Caso 1: Nodo hoja
-            if (nodo.izquierdo == null && nodo.derecho == null) return null;
-            // Caso 2: Un solo hijo
-            if (nodo.izquierdo == null) return nodo.derecho;
-            if (nodo.derecho == null) return nodo.izquierdo;
-            // Caso 3: Dos hijos → sucesor inorden (mínimo del subárbol derecho)
-            NodoBST sucesor = encontrarMinimoNodo(nodo.derecho);
-            nodo.libro = sucesor.libro;
-            nodo.derecho = eliminarRecursivo(nodo.derecho, sucesor.libro.getAutor(), new int[]{0});
+    private int factorBalance(NodoBST nodo) {
+        return NodoBST.alturaDe(nodo.izquierdo) - NodoBST.alturaDe(nodo.derecho);
+    }
+
+    /**
+     * Construye la copia de {@code base} con los hijos dados y, en modo AVL, aplica la
+     * rotación simple o doble que corresponda. Retorna la nueva raíz del subárbol.
+     */
+    private NodoBST rebalancear(NodoBST base, NodoBST izquierdo, NodoBST derecho) {
+        NodoBST nodo = base.conHijos(izquierdo, derecho);
+        if (modo != ModoBalanceo.AVL) return nodo;
+
+        int balance = factorBalance(nodo);
+        if (balance > 1) {
+            // Caso izquierda-derecha: primero rotar el hijo a la izquierda
+            if (factorBalance(izquierdo) < 0) nodo = base.conHijos(rotarIzquierda(izquierdo), derecho);
+            return rotarDerecha(nodo);
+        }
+        if (balance < -1) {
+            // Caso derecha-izquierda: primero rotar el hijo a la derecha
+            if (factorBalance(derecho) > 0) nodo = base.conHijos(izquierdo, rotarDerecha(derecho));
+            return rotarIzquierda(nodo);
         }
         return nodo;
     }
 
+    private NodoBST rotarDerecha(NodoBST nodo) {
+        NodoBST nuevaRaiz = nodo.izquierdo;
+        return nuevaRaiz.conHijos(nuevaRaiz.izquierdo, nodo.conHijos(nuevaRaiz.derecho, nodo.derecho));
+    }
+
+    private NodoBST rotarIzquierda(NodoBST nodo) {
+        NodoBST nuevaRaiz = nodo.derecho;
+        return nuevaRaiz.conHijos(nodo.conHijos(nodo.izquierdo, nuevaRaiz.izquierdo), nuevaRaiz.derecho);
+    }
+
     // =========================================================
-    //  4-6. RECORRIDOS
+    //  AUTOAJUSTE SPLAY
     // =========================================================
 
-    /** Recorrido InOrden (izq → raíz → der): lista libros alfabéticamente. */
-    public List<Libro> recorridoInOrden() {
-        List<Libro> lista = new ArrayList<>();
-        inOrdenRecursivo(raiz, lista);
-        return lista;
+    /**
+     * Búsqueda que sube el nodo encontrado (o el último visitado, si el autor no está) a la
+     * raíz. La nueva raíz se publica con compareAndSet: si entretanto otra búsqueda o una
+     * modificación publicó otra versión, el ajuste se descarta, así que las búsquedas no
+     * necesitan cerrojos y nunca pisan una inserción o eliminación. Perder un ajuste solo
+     * afecta la forma del árbol, no los libros que contiene.
+     */
+    private Libro buscarSplay(String autor) {
+        if (autor == null || autor.trim().isEmpty())
+            throw new IllegalArgumentException("El autor de búsqueda no puede estar vacío.");
+        String clave = ClaveAutor.de(autor);
+        NodoBST actual = raiz.get();
+        NodoBST nueva = splay(actual, clave, comparaciones);
+        if (nueva != actual) raiz.compareAndSet(actual, nueva);
+        return nueva != null && nueva.clave.equals(clave) ? nueva.libro : null;
     }
 
-    private void inOrdenRecursivo(NodoBST nodo, List<Libro> lista) {
-        if (nodo == null) return;
-        inOrdenRecursivo(nodo.izquierdo, lista);
-        lista.add(nodo.libro);
-        inOrdenRecursivo(nodo.derecho, lista);
+    /** Inserción splay: sube a la raíz el vecino de la clave nueva y la pone por encima de él. */
+    private static NodoBST insertarSplay(NodoBST nodo, NodoBST nuevo) {
+        if (nodo == null) return nuevo;
+        NodoBST vecino = splay(nodo, nuevo.clave, null);
+        int cmp = nuevo.clave.compareTo(vecino.clave);
+        if (cmp == 0) throw autorRepetido(nuevo);
+        if (cmp < 0) return nuevo.conHijos(vecino.izquierdo, vecino.conHijos(null, vecino.derecho));
+        return nuevo.conHijos(vecino.conHijos(vecino.izquierdo, null), vecino.derecho);
     }
 
-    /** Recorrido PreOrden (raíz → izq → der): muestra estructura jerárquica. */
-    public List<Libro> recorridoPreOrden() {
-        List<Libro> lista = new ArrayList<>();
-        preOrdenRecursivo(raiz, lista);
-        return lista;
+    /**
+     * Eliminación splay: sube el nodo a la raíz y une sus subárboles subiendo el máximo del
+     * izquierdo, que queda sin hijo derecho.
+     */
+    private static NodoBST eliminarSplay(NodoBST nodo, String clave, Libro[] eliminado) {
+        NodoBST encontrado = splay(nodo, clave, null);
+        if (encontrado == null || !encontrado.clave.equals(clave)) return encontrado;
+        eliminado[0] = encontrado.libro;
+        if (encontrado.izquierdo == null) return encontrado.derecho;
+        // La clave es mayor que todo el subárbol izquierdo: el splay sube su máximo
+        NodoBST maximo = splay(encontrado.izquierdo, clave, null);
+        return maximo.conHijos(maximo.izquierdo, encontrado.derecho);
     }
 
-    private void preOrdenRecursivo(NodoBST nodo, List<Libro> lista) {
-        if (nodo == null) return;
-        lista.add(nodo.libro);
-        preOrdenRecursivo(nodo.izquierdo, lista);
-        preOrdenRecursivo(nodo.derecho, lista);
+    /**
+     * Sube a la raíz el nodo de {@code clave} o, si no está, el último nodo visitado al
+     * buscarla, con rotaciones zig, zig-zig y zig-zag de abajo hacia arriba. Guarda el
+     * camino en un arreglo en lugar de recursión (la altura de un árbol splay no está
+     * acotada) y copia solo los nodos del camino. Retorna la nueva raíz.
+     */
+    private static NodoBST splay(NodoBST raiz, String clave, Histograma comparaciones) {
+        if (raiz == null) {
+            if (comparaciones != null) comparaciones.registrar(0);
+            return null;
+        }
+        NodoBST[] camino = new NodoBST[raiz.altura];
+        int d = 0;
+        for (NodoBST nodo = raiz; nodo != null; ) {
+            camino[d++] = nodo;
+            int cmp = clave.compareTo(nodo.clave);
+            nodo = cmp < 0 ? nodo.izquierdo : cmp > 0 ? nodo.derecho : null;
+        }
+        if (comparaciones != null) comparaciones.registrar(d);
+
+        NodoBST x = camino[--d];
+        for (; d >= 2; d -= 2) {
+            NodoBST padre = camino[d - 1], abuelo = camino[d - 2];
+            boolean xIzquierdo = x.clave.compareTo(padre.clave) < 0;
+            boolean padreIzquierdo = padre.clave.compareTo(abuelo.clave) < 0;
+            if (xIzquierdo && padreIzquierdo) {            // zig-zig
+                x = x.conHijos(x.izquierdo, padre.conHijos(x.derecho, abuelo.conHijos(padre.derecho, abuelo.derecho)));
+            } else if (!xIzquierdo && !padreIzquierdo) {   // zag-zag
+                x = x.conHijos(padre.conHijos(abuelo.conHijos(abuelo.izquierdo, padre.izquierdo), x.izquierdo), x.derecho);
+            } else if (!xIzquierdo) {                      // zig-zag
+                x = x.conHijos(padre.conHijos(padre.izquierdo, x.izquierdo), abuelo.conHijos(x.derecho, abuelo.derecho));
+            } else {                                       // zag-zig
+                x = x.conHijos(abuelo.conHijos(abuelo.izquierdo, x.izquierdo), padre.conHijos(x.derecho, padre.derecho));
+            }
+        }
+        if (d == 1) {                                      // zig final con la raíz
+            NodoBST padre = camino[0];
+            x = x.clave.compareTo(padre.clave) < 0
+                ? x.conHijos(x.izquierdo, padre.conHijos(x.derecho, padre.derecho))
+                : x.conHijos(padre.conHijos(padre.izquierdo, x.izquierdo), x.derecho);
+        }
+        return x;
     }
 
-    /** Recorrido PostOrden (izq → der → raíz): útil para operaciones de limpieza. */
-    public List<Libro> recorridoPostOrden() {
-        List<Libro> lista = new ArrayList<>();
-        postOrdenRecursivo(raiz, lista);
-        return lista;
+    // =========================================================
+    //  PRÉSTAMOS
+    // =========================================================
+
+    /** El árbol guarda los mismos objetos que entrega: basta cambiar el estado del libro. */
+    public void prestar(Libro libro, String prestatario, LocalDate fecha) {
+        libro.prestar(prestatario, fecha);
     }
 
-    private void postOrdenRecursivo(NodoBST nodo, List<Libro> lista) {
-        if (nodo == null) return;
-        postOrdenRecursivo(nodo.izquierdo, lista);
-        postOrdenRecursivo(nodo.derecho, lista);
-        lista.add(nodo.libro);
+    public void devolver(Libro libro) {
+        libro.devolver();
     }
 
     // =========================================================
-    //  7-8. MÍNIMO Y MÁXIMO
+    //  4-6. RECORRIDOS
     // =========================================================
 
-    /** Retorna el libro con el autor alfabéticamente primero. */
-    public Libro encontrarMinimo() {
-        if (raiz == null) return null;
-        return encontrarMinimoNodo(raiz).libro;
+    /** Recorrido InOrden (izq → raíz → der): lista libros alfabéticamente. */
+    public List<Libro> recorridoInOrden()   { return instantanea().recorridoInOrden(); }
+
+    /** Recorrido PreOrden (raíz → izq → der): muestra estructura jerárquica. */
+    public List<Libro> recorridoPreOrden()  { return instantanea().recorridoPreOrden(); }
+
+    /** Recorrido PostOrden (izq → der → raíz): útil para operaciones de limpieza. */
+    public List<Libro> recorridoPostOrden() { return instantanea().recorridoPostOrden(); }
+
+    /** Iterador perezoso sobre la versión actual del árbol, con pila explícita. */
+    public Iterator<Libro> iterador(Recorrido orden) {
+        return instantanea().iterador(orden);
     }
 
-    private NodoBST encontrarMinimoNodo(NodoBST nodo) {
-        while (nodo.izquierdo != null) nodo = nodo.izquierdo;
-        return nodo;
+    /** Iterador InOrden, de modo que el árbol puede usarse en un for-each. */
+    @Override
+    public Iterator<Libro> iterator() {
+        return iterador(Recorrido.IN_ORDEN);
     }
 
-    /** Retorna el libro con el autor alfabéticamente último. */
-    public Libro encontrarMaximo() {
-        if (raiz == null) return null;
-        NodoBST nodo = raiz;
-        while (nodo.derecho != null) nodo = nodo.derecho;
-        return nodo.libro;
+    /** Vista {@link Stream} perezosa del recorrido sobre la versión actual del árbol. */
+    public Stream<Libro> stream(Recorrido orden) {
+        return instantanea().stream(orden);
     }
 
+    public Stream<Libro> streamInOrden()   { return stream(Recorrido.IN_ORDEN); }
+    public Stream<Libro> streamPreOrden()  { return stream(Recorrido.PRE_ORDEN); }
+    public Stream<Libro> streamPostOrden() { return stream(Recorrido.POST_ORDEN); }
+
+    // =========================================================
+    //  7-8. MÍNIMO Y MÁXIMO
+    // =========================================================
+
+    /** Retorna el libro con el autor alfabéticamente primero. */
+    public Libro encontrarMinimo() { return instantanea().encontrarMinimo(); }
+
+    /** Retorna el libro con el autor alfabéticamente último. */
+    public Libro encontrarMaximo() { return instantanea().encontrarMaximo(); }
+
     // =========================================================
     //  9-10. CONTAR Y ALTURA
     // =========================================================
 
-    /** Retorna el número total de libros en el catálogo. */
+    /** Retorna el número total de libros en el catálogo (tamaño guardado en la raíz, O(1)). */
     public int contarNodos() {
-        return contarRecursivo(raiz);
+        return NodoBST.tamanioDe(raiz.get());
     }
 
-    private int contarRecursivo(NodoBST nodo) {
-        if (nodo == null) return 0;
-        return 1 + contarRecursivo(nodo.izquierdo) + contarRecursivo(nodo.derecho);
+    /** Retorna cuántos libros hay de una categoría, sin distinguir mayúsculas. */
+    public int contarPorCategoria(String categoria) {
+        return simbolos.contarCategoria(categoria);
     }
 
-    /** Calcula la altura del árbol. */
+    /** Retorna el conteo de libros por categoría, ordenado alfabéticamente. */
+    public Map<String, Integer> conteoPorCategoria() {
+        return simbolos.conteoCategorias();
+    }
+
+    /** Retorna la altura del árbol, mantenida en cada nodo durante inserciones y eliminaciones. */
     public int altura() {
-        return alturaRecursiva(raiz);
+        return NodoBST.alturaDe(raiz.get());
     }
 
-    private int alturaRecursiva(NodoBST nodo) {
-        if (nodo == null) return 0;
-        return 1 + Math.max(alturaRecursiva(nodo.izquierdo), alturaRecursiva(nodo.derecho));
+    // =========================================================
+    //  CONSULTAS POR POSICIÓN Y RANGO (ORDEN ALFABÉTICO)
+    // =========================================================
+
+    /** Libro en la posición indicada del orden alfabético (base 0); ver {@link InstantaneaArbol#seleccionar}. */
+    public Libro seleccionar(int posicion)  { return instantanea().seleccionar(posicion); }
+
+    /** Posición (base 0) del autor en el orden alfabético, o -1 si no existe. */
+    public int posicion(String autor)       { return instantanea().posicion(autor); }
+
+    /** Hasta {@code cantidad} libros en orden alfabético desde la posición {@code desde}: O(log n + cantidad). */
+    public List<Libro> rangoInOrden(int desde, int cantidad) {
+        return instantanea().rangoInOrden(desde, cantidad);
+    }
+
+    /** Libros con autor entre {@code desde} y {@code hasta} (inclusive), podando subárboles: O(log n + k). */
+    public List<Libro> buscarRangoAutores(String desde, String hasta) {
+        return instantanea().buscarRangoAutores(desde, hasta);
+    }
+
+    /** Libros cuyo autor empieza por {@code prefijo}, resuelto como rango: O(log n + k). */
+    public List<Libro> buscarPorPrefijoAutor(String prefijo) {
+        return instantanea().buscarPorPrefijoAutor(prefijo);
     }
 
     // =========================================================
@@ -211,40 +616,28 @@ public class ArbolBST {
 
     /** Imprime el árbol en consola con formato gráfico. */
     public void imprimirArbol() {
-        if (raiz == null) {
-            System.out.println("  (árbol vacío)");
-            return;
-        }
-        imprimirArbolRecursivo(raiz, "", true);
-    }
-
-    private void imprimirArbolRecursivo(NodoBST nodo, String prefijo, boolean esUltimo) {
-        if (nodo == null) return;
-        System.out.println(prefijo + (esUltimo ? "└── " : "├── ") + nodo.libro.getAutor());
-        String nuevoPrefijo = prefijo + (esUltimo ? "    " : "│   ");
-        if (nodo.izquierdo != null || nodo.derecho != null) {
-            if (nodo.derecho != null) imprimirArbolRecursivo(nodo.derecho, nuevoPrefijo, nodo.izquierdo == null);
-            if (nodo.izquierdo != null) imprimirArbolRecursivo(nodo.izquierdo, nuevoPrefijo, true);
-        }
+        instantanea().imprimirArbol();
     }
 
     // =========================================================
-    //  BÚSQUEDA POR ISBN (recorrido completo)
+    //  BÚSQUEDA POR ISBN (índice hash)
     // =========================================================
 
-    /** Busca un libro por ISBN recorriendo todo el árbol. */
+    /** Busca un libro por ISBN en el índice hash, en O(1) promedio. */
     public Libro buscarPorIsbn(String isbn) {
         if (isbn == null || isbn.trim().isEmpty())
             throw new IllegalArgumentException("El ISBN no puede estar vacío.");
-        return buscarIsbnRecursivo(raiz, isbn.trim());
+        return indiceIsbn.get(normalizarIsbn(isbn));
     }
 
-    private Libro buscarIsbnRecursivo(NodoBST nodo, String isbn) {
-        if (nodo == null) return null;
-        if (nodo.libro.getIsbn().equalsIgnoreCase(isbn)) return nodo.libro;
-        Libro izq = buscarIsbnRecursivo(nodo.izquierdo, isbn);
-        if (izq != null) return izq;
-        return buscarIsbnRecursivo(nodo.derecho, isbn);
+    /** Indica si ya hay un libro registrado con ese ISBN. */
+    public boolean existeIsbn(String isbn) {
+        return isbn != null && indiceIsbn.containsKey(normalizarIsbn(isbn));
+    }
+
+    /** Clave del índice: sin espacios laterales y sin distinguir mayúsculas (p. ej. el dígito "X"). */
+    static String normalizarIsbn(String isbn) {
+        return isbn.trim().toUpperCase(Locale.ROOT);
     }
 
     // =========================================================
@@ -252,57 +645,53 @@ public class ArbolBST {
     // =========================================================
 
     /** Retorna todos los libros disponibles. */
-    public List<Libro> listarDisponibles() {
-        List<Libro> resultado = new ArrayList<>();
-        filtrarRecursivo(raiz, resultado, true, null);
-        return resultado;
-    }
+    public List<Libro> listarDisponibles() { return instantanea().listarDisponibles(); }
 
     /** Retorna todos los libros prestados. */
-    public List<Libro> listarPrestados() {
-        List<Libro> resultado = new ArrayList<>();
-        filtrarRecursivo(raiz, resultado, false, null);
-        return resultado;
-    }
+    public List<Libro> listarPrestados()   { return instantanea().listarPrestados(); }
 
     /** Retorna libros de una categoría específica. */
     public List<Libro> buscarPorCategoria(String categoria) {
-        if (categoria == null || categoria.trim().isEmpty())
-            throw new IllegalArgumentException("La categoría no puede estar vacía.");
-        List<Libro> resultado = new ArrayList<>();
-        filtrarCategoria(raiz, resultado, categoria.trim());
-        return resultado;
+        return instantanea().buscarPorCategoria(categoria);
     }
 
-    /** Búsqueda parcial por subcadena del nombre del autor. */
-    public List<Libro> buscarPorAutorParcial(String subcadena) {
-        List<Libro> resultado = new ArrayList<>();
-        buscarParcialRecursivo(raiz, subcadena.toLowerCase(), resultado);
-        return resultado;
-    }
-
-    private void buscarParcialRecursivo(NodoBST nodo, String sub, List<Libro> resultado) {
-        if (nodo == null) return;
-        if (nodo.libro.getAutor().toLowerCase().contains(sub)) resultado.add(nodo.libro);
-        buscarParcialRecursivo(nodo.izquierdo, sub, resultado);
-        buscarParcialRecursivo(nodo.derecho, sub, resultado);
+    /** Libros de una categoría, sin distinguir mayúsculas, como stream perezoso en PreOrden. */
+    public Stream<Libro> streamPorCategoria(String categoria) {
+        return instantanea().streamPorCategoria(categoria);
     }
 
-    private void filtrarRecursivo(NodoBST nodo, List<Libro> lista, boolean disponible, String categoria) {
-        if (nodo == null) return;
-        if (nodo.libro.isDisponible() == disponible) lista.add(nodo.libro);
-        filtrarRecursivo(nodo.izquierdo, lista, disponible, categoria);
-        filtrarRecursivo(nodo.derecho, lista, disponible, categoria);
+    /**
+     * Búsqueda parcial por subcadena del nombre del autor, resuelta con el índice de
+     * trigramas. Los resultados se entregan en orden alfabético.
+     */
+    public List<Libro> buscarPorAutorParcial(String subcadena) {
+        if (subcadena == null || subcadena.isEmpty())
+            throw new IllegalArgumentException("La subcadena de búsqueda no puede estar vacía.");
+        return indiceTrigramas().buscar(subcadena);
     }
 
-    private void filtrarCategoria(NodoBST nodo, List<Libro> lista, String categoria) {
-        if (nodo == null) return;
-        if (nodo.libro.getCategoria().equalsIgnoreCase(categoria)) lista.add(nodo.libro);
-        filtrarCategoria(nodo.izquierdo, lista, categoria);
-        filtrarCategoria(nodo.derecho, lista, categoria);
+    /**
+     * Retorna el índice de trigramas, armándolo con todo el catálogo la primera vez que se
+     * necesita. Así una carga masiva o un arranque desde disco no pagan su costo (la parte
+     * más cara de indexar un libro) si nunca se busca por subcadena. Desde entonces se
+     * mantiene al día con cada alta y baja.
+     */
+    private IndiceTrigramas indiceTrigramas() {
+        IndiceTrigramas indice = indiceTrigramas;
+        if (indice == null) {
+            synchronized (this) {
+                indice = indiceTrigramas;
+                if (indice == null) {
+                    indice = new IndiceTrigramas();
+                    for (Libro libro : instantanea()) indice.agregar(libro);
+                    indiceTrigramas = indice;
+                }
+            }
+        }
+        return indice;
     }
 
     public boolean isEmpty() {
-        return raiz == null;
+        return raiz.get() == null;
     }
 }
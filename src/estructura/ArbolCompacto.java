@@ -0,0 +1,904 @@
+package estructura;
+
+import metricas.Histograma;
+import modelo.ClaveAutor;
+import modelo.Libro;
+import modelo.TablaSimbolos;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Catálogo por autor con el mismo comportamiento que {@link ArbolBST} en modo
+ * {@link ModoBalanceo#AVL} o {@link ModoBalanceo#NINGUNO}, pero sin un objeto por libro:
+ * los nodos son posiciones en arreglos de enteros (hijos, tamaño, altura y fila) y los
+ * campos de cada libro son una fila en arreglos por columna, repartidos en bloques de
+ * {@value #TAMANIO_BLOQUE} para crecer sin copiar. La editorial y la categoría son
+ * símbolos de la {@link TablaSimbolos} del catálogo, y el índice por ISBN es una tabla
+ * de direccionamiento abierto de números de fila. Así un catálogo grande ocupa menos
+ * memoria y el recolector tiene muchos menos objetos que recorrer; a cambio, cada
+ * {@link Libro} entregado es una copia armada en el momento y la búsqueda por subcadena
+ * recorre el catálogo en lugar de usar un índice de trigramas.
+ * <p>
+ * Como el árbol de nodos, es persistente: cada inserción o eliminación escribe nodos
+ * nuevos para el camino modificado y publica la raíz en un campo {@code volatile}, así que
+ * las consultas y las {@link InstantaneaCompacta instantáneas} no toman cerrojos. El
+ * estado de préstamo de cada fila se reemplaza entero y con publicación segura
+ * ({@link #prestar}, {@link #devolver}).
+ * <p>
+ * Los nodos y filas que una modificación deja fuera del árbol se reutilizan con
+ * recuperación por épocas: cada lectura anota su época en un contador mientras dura, y el
+ * escritor reutiliza lo que retiró en una época recién cuando ya no queda ninguna lectura
+ * de ella. Una instantánea abierta retiene esa memoria hasta que se cierra o el recolector
+ * la descarta. Las modificaciones suponen un único escritor a la vez, como en {@link ArbolBST}.
+ */
+public final class ArbolCompacto implements Catalogo {
+
+    /** Posición de nodo o de fila que indica "ninguno". */
+    static final int NULO = -1;
+    static final int BITS_BLOQUE = 12;
+    static final int TAMANIO_BLOQUE = 1 << BITS_BLOQUE;
+    static final int MASCARA = TAMANIO_BLOQUE - 1;
+    private static final VarHandle PRESTAMO = MethodHandles.arrayElementVarHandle(Libro.EstadoPrestamo[].class);
+    /** Distancia entre los contadores de lecturas, para que no compartan línea de caché. */
+    private static final int SEPARACION = 16;
+    private static final int VACIO = -1;
+    private static final int BORRADO = -2;
+
+    private final ModoBalanceo modo;
+    private volatile int raiz = NULO;
+    private volatile Bloques bloques = new Bloques();
+    private final TablaSimbolos simbolos = new TablaSimbolos();
+    /** Ver {@link #medirComparaciones}. */
+    private volatile Histograma comparaciones;
+
+    private int nodosCreados;
+    private int filasCreadas;
+    private final PilaEnteros nodosLibres = new PilaEnteros();
+    private final PilaEnteros filasLibres = new PilaEnteros();
+
+    // Índice por ISBN: fila de cada posición (VACIO, BORRADO o número de fila) y hash de su clave
+    private int[] isbnFilas = nuevaTablaIsbn(16);
+    private int[] isbnHashes = new int[16];
+    private int isbnOcupadas;
+
+    // Recuperación por épocas
+    private volatile long epoca;
+    private final AtomicIntegerArray lectores = new AtomicIntegerArray(3 * SEPARACION);
+    private final PilaEnteros[] nodosRetirados = {new PilaEnteros(), new PilaEnteros(), new PilaEnteros()};
+    private final PilaEnteros[] filasRetiradas = {new PilaEnteros(), new PilaEnteros(), new PilaEnteros()};
+    /** Nodos que la modificación en curso deja fuera del árbol; se retiran al publicarla. */
+    private final PilaEnteros reemplazados = new PilaEnteros();
+
+    public ArbolCompacto() {
+        this(ModoBalanceo.AVL);
+    }
+
+    public ArbolCompacto(ModoBalanceo modo) {
+        if (modo == null) throw new IllegalArgumentException("El modo de balanceo no puede ser nulo.");
+        if (modo == ModoBalanceo.SPLAY)
+            throw new IllegalArgumentException(
+                "El almacenamiento compacto no admite el modo SPLAY, cuyas búsquedas modifican el árbol.");
+        this.modo = modo;
+    }
+
+    public ModoBalanceo getModo() {
+        return modo;
+    }
+
+    /**
+     * Retorna una vista de la versión actual, que puede usarse desde cualquier hilo.
+     * Conviene cerrarla al terminar para que el catálogo reutilice antes la memoria.
+     */
+    public InstantaneaCompacta instantanea() {
+        return abrir(true);
+    }
+
+    /** Vista de la versión actual; sin {@code liberarSola} hay que cerrarla siempre. */
+    private InstantaneaCompacta abrir(boolean liberarSola) {
+        int contador = fijar();
+        int version = raiz;
+        return new InstantaneaCompacta(this, version, bloques, comparaciones, simbolos, contador, liberarSola);
+    }
+
+    /** Consulta de corta duración sobre la versión actual. */
+    private <T> T leer(Function<InstantaneaCompacta, T> consulta) {
+        try (InstantaneaCompacta vista = abrir(false)) {
+            return consulta.apply(vista);
+        }
+    }
+
+    public void medirComparaciones(Histograma histograma) {
+        this.comparaciones = histograma;
+    }
+
+    // =========================================================
+    //  INSERTAR
+    // =========================================================
+
+    /**
+     * Inserta un nuevo libro, copiando sus campos a una fila, y lo registra en el índice de ISBN.
+     * @throws IllegalArgumentException si ya existe un libro con ese autor o con ese ISBN.
+     */
+    public void insertar(Libro libro) {
+        if (libro == null) throw new IllegalArgumentException("El libro no puede ser nulo.");
+        if (libro.getAutor() == null || libro.getAutor().trim().isEmpty())
+            throw new IllegalArgumentException("El autor no puede estar vacío.");
+        if (libro.getIsbn() == null || libro.getIsbn().trim().isEmpty())
+            throw new IllegalArgumentException("El ISBN no puede estar vacío.");
+        String claveIsbn = ArbolBST.normalizarIsbn(libro.getIsbn());
+        if (buscarFilaIsbn(claveIsbn) != NULO)
+            throw new IllegalArgumentException(
+                "Ya existe un libro con ISBN '" + libro.getIsbn() + "' en el catálogo.");
+
+        String clave = ClaveAutor.de(libro.getAutor());
+        Bloques b = bloques;
+        int actual = raiz;
+        int[] camino = new int[b.altura(actual)];
+        boolean[] izquierda = new boolean[camino.length];
+        int d = 0;
+        for (int nodo = actual; nodo != NULO; d++) {
+            int cmp = clave.compareTo(b.clave(b.fila(nodo)));
+            if (cmp == 0) throw autorRepetido(libro);
+            camino[d] = nodo;
+            izquierda[d] = cmp < 0;
+            nodo = cmp < 0 ? b.izquierdo(nodo) : b.derecho(nodo);
+        }
+        int fila = nuevaFila(libro, clave);
+        publicar(subirCamino(camino, izquierda, d, nuevoNodo(fila, NULO, NULO)));
+        agregarIsbn(claveIsbn, fila);
+    }
+
+    /**
+     * Rearma de abajo hacia arriba los {@code d} nodos de {@code camino}, como en
+     * {@link ArbolBST}: el más profundo recibe {@code subarbol} del lado indicado en
+     * {@code izquierda} y cada nodo nuevo se rebalancea antes de colgarlo del anterior.
+     */
+    private int subirCamino(int[] camino, boolean[] izquierda, int d, int subarbol) {
+        Bloques b = bloques;
+        while (d > 0) {
+            int padre = camino[--d];
+            reemplazados.agregar(padre);
+            subarbol = izquierda[d]
+                ? rebalancear(b.fila(padre), subarbol, b.derecho(padre))
+                : rebalancear(b.fila(padre), b.izquierdo(padre), subarbol);
+        }
+        return subarbol;
+    }
+
+    private static IllegalArgumentException autorRepetido(Libro libro) {
+        return new IllegalArgumentException(
+            "Ya existe un libro del autor '" + libro.getAutor() + "' en el catálogo.");
+    }
+
+    // =========================================================
+    //  CARGA MASIVA
+    // =========================================================
+
+    /** Como {@link ArbolBST#cargarMasivo(Collection)}. */
+    public ResultadoCarga cargarMasivo(Collection<Libro> libros) {
+        return cargarMasivo(libros, libro -> { });
+    }
+
+    /** Como {@link ArbolBST#cargarMasivo(Collection, Consumer)}. */
+    public ResultadoCarga cargarMasivo(Collection<Libro> libros, Consumer<Libro> validacion) {
+        if (libros == null) throw new IllegalArgumentException("El lote de libros no puede ser nulo.");
+        ResultadoCarga resultado = new ResultadoCarga();
+
+        List<Libro> validos = new ArrayList<>(libros.size());
+        for (Libro libro : libros) {
+            if (libro == null)
+                resultado.rechazar(null, "El libro no puede ser nulo.");
+            else if (libro.getAutor() == null || libro.getAutor().trim().isEmpty())
+                resultado.rechazar(libro, "El autor no puede estar vacío.");
+            else if (libro.getIsbn() == null || libro.getIsbn().trim().isEmpty())
+                resultado.rechazar(libro, "El ISBN no puede estar vacío.");
+            else if (!ArbolBST.rechazadoPor(validacion, libro, resultado))
+                validos.add(libro);
+        }
+
+        int actuales = contarNodos();
+        if (actuales > 0 && validos.size() * (long) (32 - Integer.numberOfLeadingZeros(actuales)) < actuales) {
+            for (Libro libro : validos) {
+                try {
+                    insertar(libro);
+                    resultado.aceptar(libro);
+                } catch (IllegalArgumentException e) {
+                    resultado.rechazar(libro, e.getMessage());
+                }
+            }
+            return resultado;
+        }
+
+        // Los repetidos dentro del lote se descartan en el orden de entrada: gana el primero
+        List<Entrada> unicos = new ArrayList<>(validos.size());
+        Set<String> isbnLote = new HashSet<>();
+        Set<String> clavesLote = new HashSet<>();
+        for (Libro libro : validos) {
+            String isbn = ArbolBST.normalizarIsbn(libro.getIsbn());
+            String clave = ClaveAutor.de(libro.getAutor());
+            if (buscarFilaIsbn(isbn) != NULO || isbnLote.contains(isbn)) {
+                resultado.rechazar(libro, "Ya existe un libro con ISBN '" + libro.getIsbn() + "' en el catálogo.");
+            } else if (!clavesLote.add(clave)) {
+                resultado.rechazar(libro, "Ya existe un libro del autor '" + libro.getAutor() + "' en el catálogo.");
+            } else {
+                isbnLote.add(isbn);
+                unicos.add(new Entrada(libro, clave, isbn));
+            }
+        }
+
+        Entrada[] lote = unicos.toArray(new Entrada[0]);
+        Arrays.sort(lote, (a, c) -> a.clave.compareTo(c.clave));
+        Bloques b = bloques;
+        int[] existentes = nodosInOrden(b, raiz, actuales);
+
+        // Intercalación por clave de las filas existentes con las del lote, que se crean al aceptarlas
+        int[] combinadas = new int[actuales + lote.length];
+        List<Entrada> aceptadas = new ArrayList<>(lote.length);
+        int n = 0, i = 0;
+        for (Entrada entrada : lote) {
+            while (i < existentes.length && b.clave(b.fila(existentes[i])).compareTo(entrada.clave) < 0)
+                combinadas[n++] = b.fila(existentes[i++]);
+            if (i < existentes.length && b.clave(b.fila(existentes[i])).equals(entrada.clave)) {
+                resultado.rechazar(entrada.libro,
+                    "Ya existe un libro del autor '" + entrada.libro.getAutor() + "' en el catálogo.");
+            } else {
+                entrada.fila = nuevaFila(entrada.libro, entrada.clave);
+                combinadas[n++] = entrada.fila;
+                aceptadas.add(entrada);
+            }
+        }
+        while (i < existentes.length) combinadas[n++] = b.fila(existentes[i++]);
+
+        int nuevaRaiz = construirBalanceado(combinadas, 0, n - 1);
+        for (int nodo : existentes) reemplazados.agregar(nodo);
+        publicar(nuevaRaiz);
+        for (Entrada entrada : aceptadas) {
+            agregarIsbn(entrada.isbn, entrada.fila);
+            resultado.aceptar(entrada.libro);
+        }
+        return resultado;
+    }
+
+    /** Libro del lote con su clave y, una vez aceptado, su fila. */
+    private static final class Entrada {
+        final Libro libro;
+        final String clave;
+        final String isbn;
+        int fila = NULO;
+
+        Entrada(Libro libro, String clave, String isbn) {
+            this.libro = libro;
+            this.clave = clave;
+            this.isbn = isbn;
+        }
+    }
+
+    /** Nodos del subárbol en orden, con pila explícita. */
+    private static int[] nodosInOrden(Bloques b, int raiz, int tamanio) {
+        int[] nodos = new int[tamanio];
+        PilaEnteros pila = new PilaEnteros();
+        int n = 0;
+        int nodo = raiz;
+        while (nodo != NULO || !pila.vacia()) {
+            for (; nodo != NULO; nodo = b.izquierdo(nodo)) pila.agregar(nodo);
+            int actual = pila.quitar();
+            nodos[n++] = actual;
+            nodo = b.derecho(actual);
+        }
+        return nodos;
+    }
+
+    /** Árbol perfectamente balanceado con nodos nuevos para filas ordenadas: O(n). */
+    private int construirBalanceado(int[] filas, int desde, int hasta) {
+        if (desde > hasta) return NULO;
+        int medio = (desde + hasta) >>> 1;
+        int izquierdo = construirBalanceado(filas, desde, medio - 1);
+        int derecho = construirBalanceado(filas, medio + 1, hasta);
+        return nuevoNodo(filas[medio], izquierdo, derecho);
+    }
+
+    // =========================================================
+    //  BUSCAR POR AUTOR
+    // =========================================================
+
+    /** Copia del libro del autor, o null si no está. */
+    public Libro buscar(String autor) {
+        return leer(vista -> vista.buscar(autor));
+    }
+
+    /** Busca varios autores en una sola pasada; ver {@link InstantaneaArbol#buscarClaves}. */
+    public Libro[] buscarClaves(String[] claves) {
+        return leer(vista -> vista.buscarClaves(claves));
+    }
+
+    // =========================================================
+    //  ELIMINAR
+    // =========================================================
+
+    /** Elimina el libro del autor con los 3 casos clásicos, como {@link ArbolBST#eliminar}. */
+    public boolean eliminar(String autor) {
+        if (autor == null || autor.trim().isEmpty())
+            throw new IllegalArgumentException("El autor no puede estar vacío.");
+        String clave = ClaveAutor.de(autor);
+        Bloques b = bloques;
+        int actual = raiz;
+        int[] camino = new int[b.altura(actual)];
+        boolean[] izquierda = new boolean[camino.length];
+        int d = 0;
+        int nodo = actual;
+        while (nodo != NULO) {
+            int cmp = clave.compareTo(b.clave(b.fila(nodo)));
+            if (cmp == 0) break;
+            camino[d] = nodo;
+            izquierda[d++] = cmp < 0;
+            nodo = cmp < 0 ? b.izquierdo(nodo) : b.derecho(nodo);
+        }
+        if (nodo == NULO) return false;
+
+        int fila = b.fila(nodo);
+        reemplazados.agregar(nodo);
+        int reemplazo;
+        if (b.izquierdo(nodo) == NULO) {
+            reemplazo = b.derecho(nodo);
+        } else if (b.derecho(nodo) == NULO) {
+            reemplazo = b.izquierdo(nodo);
+        } else {
+            // Dos hijos: la fila del sucesor inorden ocupa su lugar
+            int sucesor = b.derecho(nodo);
+            while (b.izquierdo(sucesor) != NULO) sucesor = b.izquierdo(sucesor);
+            reemplazo = rebalancear(b.fila(sucesor), b.izquierdo(nodo), eliminarMinimo(b.derecho(nodo)));
+        }
+        publicar(subirCamino(camino, izquierda, d, reemplazo));
+        quitarIsbn(fila);
+        simbolos.liberarEditorial(b.editorial(fila));
+        simbolos.liberarCategoria(b.categoria(fila));
+        filasRetiradas[(int) (epoca % 3)].agregar(fila);
+        return true;
+    }
+
+    /** Subárbol de {@code nodo} sin su mínimo, rearmando el camino por la izquierda. */
+    private int eliminarMinimo(int nodo) {
+        Bloques b = bloques;
+        int[] camino = new int[b.altura(nodo)];
+        boolean[] izquierda = new boolean[camino.length];
+        int d = 0;
+        for (; b.izquierdo(nodo) != NULO; nodo = b.izquierdo(nodo)) {
+            camino[d] = nodo;
+            izquierda[d++] = true;
+        }
+        reemplazados.agregar(nodo);
+        return subirCamino(camino, izquierda, d, b.derecho(nodo));
+    }
+
+    // =========================================================
+    //  BALANCEO AVL
+    // =========================================================
+
+    /**
+     * Nodo nuevo para {@code fila} con los hijos dados y, en modo AVL, la rotación simple o
+     * doble que corresponda, como {@link ArbolBST}. Los nodos que la rotación reemplaza
+     * quedan anotados para retirarlos. Retorna la nueva raíz del subárbol.
+     */
+    private int rebalancear(int fila, int izquierdo, int derecho) {
+        if (modo == ModoBalanceo.AVL) {
+            Bloques b = bloques;
+            int balance = b.altura(izquierdo) - b.altura(derecho);
+            if (balance > 1) {
+                int exterior = b.izquierdo(izquierdo), interior = b.derecho(izquierdo);
+                reemplazados.agregar(izquierdo);
+                if (b.altura(exterior) >= b.altura(interior))
+                    return nuevoNodo(b.fila(izquierdo), exterior, nuevoNodo(fila, interior, derecho));
+                // Caso izquierda-derecha: el nieto interior sube a la raíz
+                reemplazados.agregar(interior);
+                return nuevoNodo(b.fila(interior),
+                                 nuevoNodo(b.fila(izquierdo), exterior, b.izquierdo(interior)),
+                                 nuevoNodo(fila, b.derecho(interior), derecho));
+            }
+            if (balance < -1) {
+                int exterior = b.derecho(derecho), interior = b.izquierdo(derecho);
+                reemplazados.agregar(derecho);
+                if (b.altura(exterior) >= b.altura(interior))
+                    return nuevoNodo(b.fila(derecho), nuevoNodo(fila, izquierdo, interior), exterior);
+                // Caso derecha-izquierda
+                reemplazados.agregar(interior);
+                return nuevoNodo(b.fila(interior),
+                                 nuevoNodo(fila, izquierdo, b.izquierdo(interior)),
+                                 nuevoNodo(b.fila(derecho), b.derecho(interior), exterior));
+            }
+        }
+        return nuevoNodo(fila, izquierdo, derecho);
+    }
+
+    // =========================================================
+    //  NODOS Y FILAS
+    // =========================================================
+
+    private int nuevoNodo(int fila, int izquierdo, int derecho) {
+        int nodo;
+        if (!nodosLibres.vacia()) {
+            nodo = nodosLibres.quitar();
+        } else {
+            nodo = nodosCreados++;
+            if (nodo >>> BITS_BLOQUE == bloques.izquierdos.length) bloques = bloques.conBloqueDeNodos();
+        }
+        Bloques b = bloques;
+        int i = nodo >>> BITS_BLOQUE, j = nodo & MASCARA;
+        b.izquierdos[i][j] = izquierdo;
+        b.derechos[i][j] = derecho;
+        b.filas[i][j] = fila;
+        b.tamanios[i][j] = b.tamanio(izquierdo) + b.tamanio(derecho) + 1;
+        b.alturas[i][j] = 1 + Math.max(b.altura(izquierdo), b.altura(derecho));
+        return nodo;
+    }
+
+    /** Copia los campos del libro a una fila nueva, con los símbolos compartidos del catálogo. */
+    private int nuevaFila(Libro libro, String clave) {
+        int fila;
+        if (!filasLibres.vacia()) {
+            fila = filasLibres.quitar();
+        } else {
+            fila = filasCreadas++;
+            if (fila >>> BITS_BLOQUE == bloques.claves.length) bloques = bloques.conBloqueDeFilas();
+        }
+        Bloques b = bloques;
+        int i = fila >>> BITS_BLOQUE, j = fila & MASCARA;
+        b.claves[i][j] = clave;
+        b.autores[i][j] = libro.getAutor();
+        b.isbns[i][j] = libro.getIsbn();
+        b.titulos[i][j] = libro.getTitulo();
+        b.editoriales[i][j] = simbolos.registrarEditorial(libro.getEditorial());
+        b.categorias[i][j] = simbolos.registrarCategoria(libro.getCategoria());
+        b.anios[i][j] = libro.getAnioPublicacion();
+        PRESTAMO.setRelease(b.prestamos[i], j, libro.getEstadoPrestamo());
+        return fila;
+    }
+
+    /** Suelta las referencias de una fila que ya nadie lee, para que el recolector las libere. */
+    private void vaciarFila(int fila) {
+        Bloques b = bloques;
+        int i = fila >>> BITS_BLOQUE, j = fila & MASCARA;
+        b.claves[i][j] = null;
+        b.autores[i][j] = null;
+        b.isbns[i][j] = null;
+        b.titulos[i][j] = null;
+        b.editoriales[i][j] = null;
+        b.categorias[i][j] = null;
+        PRESTAMO.setRelease(b.prestamos[i], j, (Libro.EstadoPrestamo) null);
+    }
+
+    // =========================================================
+    //  RECUPERACIÓN POR ÉPOCAS
+    // =========================================================
+
+    /**
+     * Anota una lectura en el contador de la época vigente y retorna el contador, que hay
+     * que pasar a {@link #soltar}. Si la época avanza mientras se anota, se reintenta en
+     * la nueva, así que una lectura nunca queda anotada en una época ya terminada.
+     */
+    int fijar() {
+        while (true) {
+            long e = epoca;
+            int contador = (int) (e % 3) * SEPARACION;
+            lectores.getAndIncrement(contador);
+            if (epoca == e) return contador;
+            lectores.getAndDecrement(contador);
+        }
+    }
+
+    void soltar(int contador) {
+        lectores.getAndDecrement(contador);
+    }
+
+    /**
+     * Publica la nueva raíz, retira en la época vigente los nodos que quedaron fuera e
+     * intenta avanzar de época.
+     */
+    private void publicar(int nuevaRaiz) {
+        raiz = nuevaRaiz;
+        PilaEnteros retirados = nodosRetirados[(int) (epoca % 3)];
+        while (!reemplazados.vacia()) retirados.agregar(reemplazados.quitar());
+        avanzarEpoca();
+    }
+
+    /**
+     * Pasa de la época e a la e+1 si no quedan lecturas de la e-1. Lo retirado en la e-1
+     * ya no era alcanzable desde la raíz publicada al empezar la e, y las lecturas de la e
+     * o posteriores leyeron esa raíz o una más nueva; así que se puede reutilizar.
+     */
+    private void avanzarEpoca() {
+        long e = epoca;
+        int anterior = (int) ((e + 2) % 3);
+        if (lectores.get(anterior * SEPARACION) != 0) return;
+        PilaEnteros nodos = nodosRetirados[anterior];
+        while (!nodos.vacia()) nodosLibres.agregar(nodos.quitar());
+        PilaEnteros filas = filasRetiradas[anterior];
+        while (!filas.vacia()) {
+            int fila = filas.quitar();
+            vaciarFila(fila);
+            filasLibres.agregar(fila);
+        }
+        epoca = e + 1;
+    }
+
+    // =========================================================
+    //  PRÉSTAMOS
+    // =========================================================
+
+    /** Reemplaza el estado de la fila del libro, que las consultas ven completo, y el de la copia. */
+    public void prestar(Libro libro, String prestatario, LocalDate fecha) {
+        int fila = filaDe(libro);
+        libro.prestar(prestatario, fecha);
+        Bloques b = bloques;
+        PRESTAMO.setRelease(b.prestamos[fila >>> BITS_BLOQUE], fila & MASCARA, libro.getEstadoPrestamo());
+    }
+
+    public void devolver(Libro libro) {
+        int fila = filaDe(libro);
+        libro.devolver();
+        Bloques b = bloques;
+        PRESTAMO.setRelease(b.prestamos[fila >>> BITS_BLOQUE], fila & MASCARA, libro.getEstadoPrestamo());
+    }
+
+    private int filaDe(Libro libro) {
+        String clave = ClaveAutor.de(libro.getAutor());
+        Bloques b = bloques;
+        int nodo = raiz;
+        while (nodo != NULO) {
+            int cmp = clave.compareTo(b.clave(b.fila(nodo)));
+            if (cmp == 0) return b.fila(nodo);
+            nodo = cmp < 0 ? b.izquierdo(nodo) : b.derecho(nodo);
+        }
+        throw new IllegalArgumentException("El libro de '" + libro.getAutor() + "' no está en el catálogo.");
+    }
+
+    // =========================================================
+    //  RECORRIDOS, POSICIONES Y RANGOS
+    // =========================================================
+
+    // Las consultas abren una instantánea y la cierran al terminar; las perezosas (iteradores
+    // y streams) la cierran al agotarse o al cerrar el stream, o la suelta el recolector.
+
+    public List<Libro> recorridoInOrden()   { return leer(InstantaneaCompacta::recorridoInOrden); }
+    public List<Libro> recorridoPreOrden()  { return leer(InstantaneaCompacta::recorridoPreOrden); }
+    public List<Libro> recorridoPostOrden() { return leer(InstantaneaCompacta::recorridoPostOrden); }
+
+    /** Iterador perezoso sobre la versión actual; suelta su instantánea al terminar. */
+    public Iterator<Libro> iterador(Recorrido orden) {
+        InstantaneaCompacta vista = instantanea();
+        Iterator<Libro> libros = vista.iterador(orden);
+        return new Iterator<Libro>() {
+            @Override
+            public boolean hasNext() {
+                boolean quedan = libros.hasNext();
+                if (!quedan) vista.close();
+                return quedan;
+            }
+
+            @Override
+            public Libro next() {
+                return libros.next();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Libro> iterator() {
+        return iterador(Recorrido.IN_ORDEN);
+    }
+
+    /** Vista {@link Stream} perezosa sobre la versión actual; cerrarla suelta su instantánea. */
+    public Stream<Libro> stream(Recorrido orden) {
+        InstantaneaCompacta vista = instantanea();
+        return vista.stream(orden).onClose(vista::close);
+    }
+
+    public Stream<Libro> streamInOrden()   { return stream(Recorrido.IN_ORDEN); }
+    public Stream<Libro> streamPreOrden()  { return stream(Recorrido.PRE_ORDEN); }
+    public Stream<Libro> streamPostOrden() { return stream(Recorrido.POST_ORDEN); }
+
+    public Libro encontrarMinimo() { return leer(InstantaneaCompacta::encontrarMinimo); }
+    public Libro encontrarMaximo() { return leer(InstantaneaCompacta::encontrarMaximo); }
+
+    /** Total de libros, guardado en la raíz: O(1). */
+    public int contarNodos() {
+        int contador = fijar();
+        try {
+            return bloques.tamanio(raiz);
+        } finally {
+            soltar(contador);
+        }
+    }
+
+    public int contarPorCategoria(String categoria) {
+        return simbolos.contarCategoria(categoria);
+    }
+
+    public Map<String, Integer> conteoPorCategoria() {
+        return simbolos.conteoCategorias();
+    }
+
+    public int altura() {
+        int contador = fijar();
+        try {
+            return bloques.altura(raiz);
+        } finally {
+            soltar(contador);
+        }
+    }
+
+    public boolean isEmpty() {
+        return raiz == NULO;
+    }
+
+    public Libro seleccionar(int posicion) { return leer(vista -> vista.seleccionar(posicion)); }
+    public int posicion(String autor)      { return leer(vista -> vista.posicion(autor)); }
+
+    public List<Libro> rangoInOrden(int desde, int cantidad) {
+        return leer(vista -> vista.rangoInOrden(desde, cantidad));
+    }
+
+    public List<Libro> buscarRangoAutores(String desde, String hasta) {
+        return leer(vista -> vista.buscarRangoAutores(desde, hasta));
+    }
+
+    public List<Libro> buscarPorPrefijoAutor(String prefijo) {
+        return leer(vista -> vista.buscarPorPrefijoAutor(prefijo));
+    }
+
+    public void imprimirArbol() {
+        leer(vista -> {
+            vista.imprimirArbol();
+            return null;
+        });
+    }
+
+    // =========================================================
+    //  FILTROS Y SUBCADENA
+    // =========================================================
+
+    public List<Libro> listarDisponibles() { return leer(InstantaneaCompacta::listarDisponibles); }
+    public List<Libro> listarPrestados()   { return leer(InstantaneaCompacta::listarPrestados); }
+
+    public List<Libro> buscarPorCategoria(String categoria) {
+        return leer(vista -> vista.buscarPorCategoria(categoria));
+    }
+
+    public Stream<Libro> streamPorCategoria(String categoria) {
+        InstantaneaCompacta vista = instantanea();
+        try {
+            return vista.streamPorCategoria(categoria).onClose(vista::close);
+        } catch (IllegalArgumentException e) {
+            vista.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Búsqueda parcial por subcadena del autor, en orden alfabético. Sin índice de
+     * trigramas, que ocuparía más que el propio catálogo: recorre las claves guardadas
+     * en O(n) sin crear cadenas por libro.
+     */
+    public List<Libro> buscarPorAutorParcial(String subcadena) {
+        if (subcadena == null || subcadena.isEmpty())
+            throw new IllegalArgumentException("La subcadena de búsqueda no puede estar vacía.");
+        String buscada = ClaveAutor.paraSubcadena(subcadena);
+        return leer(vista -> vista.buscarPorSubcadena(buscada));
+    }
+
+    // =========================================================
+    //  BÚSQUEDA POR ISBN (direccionamiento abierto)
+    // =========================================================
+
+    /** Copia del libro con ese ISBN, en O(1) promedio. */
+    public Libro buscarPorIsbn(String isbn) {
+        if (isbn == null || isbn.trim().isEmpty())
+            throw new IllegalArgumentException("El ISBN no puede estar vacío.");
+        int contador = fijar();
+        try {
+            int fila = buscarFilaIsbn(ArbolBST.normalizarIsbn(isbn));
+            return fila == NULO ? null : bloques.libro(fila);
+        } finally {
+            soltar(contador);
+        }
+    }
+
+    public boolean existeIsbn(String isbn) {
+        return isbn != null && buscarFilaIsbn(ArbolBST.normalizarIsbn(isbn)) != NULO;
+    }
+
+    private static int[] nuevaTablaIsbn(int capacidad) {
+        int[] tabla = new int[capacidad];
+        Arrays.fill(tabla, VACIO);
+        return tabla;
+    }
+
+    private static int dispersar(String clave) {
+        int h = clave.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int buscarFilaIsbn(String clave) {
+        int hash = dispersar(clave);
+        int mascara = isbnFilas.length - 1;
+        for (int i = hash & mascara; ; i = (i + 1) & mascara) {
+            int fila = isbnFilas[i];
+            if (fila == VACIO) return NULO;
+            if (fila != BORRADO && isbnHashes[i] == hash
+                && ArbolBST.normalizarIsbn(bloques.isbn(fila)).equals(clave)) return fila;
+        }
+    }
+
+    private void agregarIsbn(String clave, int fila) {
+        if ((isbnOcupadas + 1) * 2 > isbnFilas.length) redimensionarIsbn();
+        int hash = dispersar(clave);
+        int mascara = isbnFilas.length - 1;
+        int i = hash & mascara;
+        while (isbnFilas[i] >= 0) i = (i + 1) & mascara;
+        if (isbnFilas[i] == VACIO) isbnOcupadas++;
+        isbnFilas[i] = fila;
+        isbnHashes[i] = hash;
+    }
+
+    private void quitarIsbn(int fila) {
+        int hash = dispersar(ArbolBST.normalizarIsbn(bloques.isbn(fila)));
+        int mascara = isbnFilas.length - 1;
+        int i = hash & mascara;
+        while (isbnFilas[i] != fila) i = (i + 1) & mascara;
+        isbnFilas[i] = BORRADO;
+    }
+
+    /** Rearma la tabla sin marcas de borrado, al doble de tamaño si las filas vivas lo necesitan. */
+    private void redimensionarIsbn() {
+        int[] filas = isbnFilas, hashes = isbnHashes;
+        int vivas = 0;
+        for (int fila : filas) if (fila >= 0) vivas++;
+        int capacidad = filas.length;
+        while ((vivas + 1) * 4 > capacidad) capacidad <<= 1;
+        isbnFilas = nuevaTablaIsbn(capacidad);
+        isbnHashes = new int[capacidad];
+        isbnOcupadas = vivas;
+        int mascara = capacidad - 1;
+        for (int k = 0; k < filas.length; k++) {
+            if (filas[k] < 0) continue;
+            int i = hashes[k] & mascara;
+            while (isbnFilas[i] != VACIO) i = (i + 1) & mascara;
+            isbnFilas[i] = filas[k];
+            isbnHashes[i] = hashes[k];
+        }
+    }
+
+    // =========================================================
+    //  BLOQUES
+    // =========================================================
+
+    /**
+     * Columnas de nodos y filas, repartidas en bloques de {@value ArbolCompacto#TAMANIO_BLOQUE}.
+     * Cada ampliación crea un {@code Bloques} nuevo que comparte los bloques existentes; sus
+     * campos finales garantizan que quien lo lea ve todos sus bloques, y el contenido de
+     * los nodos y filas alcanzables se publica con la raíz.
+     */
+    static final class Bloques {
+        final int[][] izquierdos, derechos, tamanios, alturas, filas;
+        final String[][] claves, autores, isbns, titulos;
+        final TablaSimbolos.Simbolo[][] editoriales, categorias;
+        final int[][] anios;
+        final Libro.EstadoPrestamo[][] prestamos;
+
+        Bloques() {
+            this(new int[0][], new int[0][], new int[0][], new int[0][], new int[0][],
+                 new String[0][], new String[0][], new String[0][], new String[0][],
+                 new TablaSimbolos.Simbolo[0][], new TablaSimbolos.Simbolo[0][],
+                 new int[0][], new Libro.EstadoPrestamo[0][]);
+        }
+
+        private Bloques(int[][] izquierdos, int[][] derechos, int[][] tamanios, int[][] alturas, int[][] filas,
+                        String[][] claves, String[][] autores, String[][] isbns, String[][] titulos,
+                        TablaSimbolos.Simbolo[][] editoriales, TablaSimbolos.Simbolo[][] categorias,
+                        int[][] anios, Libro.EstadoPrestamo[][] prestamos) {
+            this.izquierdos = izquierdos;
+            this.derechos = derechos;
+            this.tamanios = tamanios;
+            this.alturas = alturas;
+            this.filas = filas;
+            this.claves = claves;
+            this.autores = autores;
+            this.isbns = isbns;
+            this.titulos = titulos;
+            this.editoriales = editoriales;
+            this.categorias = categorias;
+            this.anios = anios;
+            this.prestamos = prestamos;
+        }
+
+        Bloques conBloqueDeNodos() {
+            return new Bloques(ampliar(izquierdos), ampliar(derechos), ampliar(tamanios), ampliar(alturas),
+                               ampliar(filas), claves, autores, isbns, titulos, editoriales, categorias,
+                               anios, prestamos);
+        }
+
+        Bloques conBloqueDeFilas() {
+            return new Bloques(izquierdos, derechos, tamanios, alturas, filas,
+                               ampliar(claves, String[]::new), ampliar(autores, String[]::new),
+                               ampliar(isbns, String[]::new), ampliar(titulos, String[]::new),
+                               ampliar(editoriales, TablaSimbolos.Simbolo[]::new),
+                               ampliar(categorias, TablaSimbolos.Simbolo[]::new),
+                               ampliar(anios), ampliar(prestamos, Libro.EstadoPrestamo[]::new));
+        }
+
+        private static int[][] ampliar(int[][] columna) {
+            int[][] nueva = Arrays.copyOf(columna, columna.length + 1);
+            nueva[columna.length] = new int[TAMANIO_BLOQUE];
+            return nueva;
+        }
+
+        private static <T> T[][] ampliar(T[][] columna, IntFunction<T[]> bloque) {
+            T[][] nueva = Arrays.copyOf(columna, columna.length + 1);
+            nueva[columna.length] = bloque.apply(TAMANIO_BLOQUE);
+            return nueva;
+        }
+
+        int izquierdo(int nodo) { return izquierdos[nodo >>> BITS_BLOQUE][nodo & MASCARA]; }
+        int derecho(int nodo)   { return derechos[nodo >>> BITS_BLOQUE][nodo & MASCARA]; }
+        int fila(int nodo)      { return filas[nodo >>> BITS_BLOQUE][nodo & MASCARA]; }
+
+        int tamanio(int nodo) {
+            return nodo == NULO ? 0 : tamanios[nodo >>> BITS_BLOQUE][nodo & MASCARA];
+        }
+
+        int altura(int nodo) {
+            return nodo == NULO ? 0 : alturas[nodo >>> BITS_BLOQUE][nodo & MASCARA];
+        }
+
+        String clave(int fila)  { return claves[fila >>> BITS_BLOQUE][fila & MASCARA]; }
+        String autor(int fila)  { return autores[fila >>> BITS_BLOQUE][fila & MASCARA]; }
+        String isbn(int fila)   { return isbns[fila >>> BITS_BLOQUE][fila & MASCARA]; }
+        TablaSimbolos.Simbolo editorial(int fila) { return editoriales[fila >>> BITS_BLOQUE][fila & MASCARA]; }
+        TablaSimbolos.Simbolo categoria(int fila) { return categorias[fila >>> BITS_BLOQUE][fila & MASCARA]; }
+
+        Libro.EstadoPrestamo prestamo(int fila) {
+            return (Libro.EstadoPrestamo) PRESTAMO.getAcquire(prestamos[fila >>> BITS_BLOQUE], fila & MASCARA);
+        }
+
+        /** Copia de la fila como {@link Libro}, con su estado de préstamo actual. */
+        Libro libro(int fila) {
+            int i = fila >>> BITS_BLOQUE, j = fila & MASCARA;
+            Libro libro = new Libro(isbns[i][j], titulos[i][j], autores[i][j], texto(editoriales[i][j]),
+                                    anios[i][j], texto(categorias[i][j]));
+            libro.setEstadoPrestamo(prestamo(fila));
+            return libro;
+        }
+
+        private static String texto(TablaSimbolos.Simbolo simbolo) {
+            return simbolo == null ? null : simbolo.getTexto();
+        }
+    }
+
+    /** Pila de enteros sin cajas, para caminos, recorridos y listas de posiciones libres. */
+    static final class PilaEnteros {
+        private int[] elementos = new int[16];
+        private int tamanio;
+
+        void agregar(int valor) {
+            if (tamanio == elementos.length) elementos = Arrays.copyOf(elementos, tamanio * 2);
+            elementos[tamanio++] = valor;
+        }
+
+        int quitar()      { return elementos[--tamanio]; }
+        int tope()        { return elementos[tamanio - 1]; }
+        boolean vacia()   { return tamanio == 0; }
+    }
+}
@@ -0,0 +1,94 @@
+package estructura;
+
+import metricas.Histograma;
+import modelo.Libro;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Catálogo de libros ordenado por autor, con los índices por ISBN y por categoría que usa
+ * el servicio. Hay dos implementaciones, que se eligen con {@link Almacenamiento}:
+ * {@link ArbolBST}, con un nodo y un {@link Libro} por libro, y {@link ArbolCompacto},
+ * que guarda los campos en arreglos y entrega copias.
+ * <p>
+ * Las modificaciones (incluidos préstamos y devoluciones) suponen un único escritor a la
+ * vez, coordinado por quien use el catálogo; las consultas por autor, los recorridos y las
+ * {@link VistaCatalogo instantáneas} no necesitan cerrojos. Los libros entregados pueden
+ * ser los guardados o copias, así que su estado de préstamo se cambia con
+ * {@link #prestar} y {@link #devolver}, nunca directamente.
+ */
+public interface Catalogo extends Iterable<Libro> {
+
+    ModoBalanceo getModo();
+
+    /** Vista fija de la versión actual; ver {@link VistaCatalogo}. */
+    VistaCatalogo instantanea();
+
+    /** Anota en {@code histograma} cuántas claves compara cada búsqueda por autor; con null deja de medir. */
+    void medirComparaciones(Histograma histograma);
+
+    /**
+     * Inserta un libro.
+     * @throws IllegalArgumentException si ya existe un libro con ese autor o con ese ISBN.
+     */
+    void insertar(Libro libro);
+
+    /** Carga un lote de una vez; los inválidos y repetidos se informan en el resultado. */
+    ResultadoCarga cargarMasivo(Collection<Libro> libros);
+
+    /** Como {@link #cargarMasivo(Collection)}, rechazando los libros para los que {@code validacion} lanza. */
+    ResultadoCarga cargarMasivo(Collection<Libro> libros, Consumer<Libro> validacion);
+
+    Libro buscar(String autor);
+    Libro[] buscarClaves(String[] claves);
+    boolean eliminar(String autor);
+
+    /**
+     * Marca como prestado un libro del catálogo obtenido de una búsqueda, tanto en el
+     * catálogo como en {@code libro}.
+     * @throws IllegalArgumentException si el autor del libro no está en el catálogo.
+     */
+    void prestar(Libro libro, String prestatario, LocalDate fecha);
+
+    /** Como {@link #prestar}, para una devolución. */
+    void devolver(Libro libro);
+
+    List<Libro> recorridoInOrden();
+    List<Libro> recorridoPreOrden();
+    List<Libro> recorridoPostOrden();
+    Iterator<Libro> iterador(Recorrido orden);
+    Stream<Libro> stream(Recorrido orden);
+    Stream<Libro> streamInOrden();
+    Stream<Libro> streamPreOrden();
+    Stream<Libro> streamPostOrden();
+
+    Libro encontrarMinimo();
+    Libro encontrarMaximo();
+    int contarNodos();
+    int contarPorCategoria(String categoria);
+    Map<String, Integer> conteoPorCategoria();
+    int altura();
+    boolean isEmpty();
+
+    Libro seleccionar(int posicion);
+    int posicion(String autor);
+    List<Libro> rangoInOrden(int desde, int cantidad);
+    List<Libro> buscarRangoAutores(String desde, String hasta);
+    List<Libro> buscarPorPrefijoAutor(String prefijo);
+
+    void imprimirArbol();
+
+    Libro buscarPorIsbn(String isbn);
+    boolean existeIsbn(String isbn);
+
+    List<Libro> listarDisponibles();
+    List<Libro> listarPrestados();
+    List<Libro> buscarPorCategoria(String categoria);
+    Stream<Libro> streamPorCategoria(String categoria);
+    List<Libro> buscarPorAutorParcial(String subcadena);
+}
@@ -0,0 +1,68 @@
+package estructura;
+
+import modelo.ClaveAutor;
+import modelo.Libro;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de los libros prestados por lector. Responde "qué libros tiene el lector X" en
+ * O(k) y "cuántos tiene" en O(1), sin recorrer el catálogo; el servicio lo usa para
+ * controlar el límite de préstamos en cada préstamo.
+ * <p>
+ * Los nombres se comparan sin distinguir mayúsculas, acentos ni espacios repetidos
+ * ("José  Pérez" y "jose perez" son el mismo lector). Los libros de cada lector se
+ * guardan por autor, así que se listan en orden alfabético. No es seguro para uso
+ * concurrente; el servicio lo usa bajo su cerrojo.
+ */
+public class IndicePrestatarios {
+
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private final Map<String, TreeMap<String, Libro>> porLector = new HashMap<>();
+
+    /** Indexa el préstamo del libro; debe llamarse después de registrar su prestatario. */
+    public void agregar(Libro libro) {
+        if (libro.isDisponible() || libro.getPrestatario() == null) return;
+        porLector.computeIfAbsent(normalizar(libro.getPrestatario()), k -> new TreeMap<>())
+                 .put(ClaveAutor.de(libro.getAutor()), libro);
+    }
+
+    /** Quita el préstamo del libro; debe llamarse antes de borrar su prestatario. */
+    public void quitar(Libro libro) {
+        if (libro.getPrestatario() == null) return;
+        String lector = normalizar(libro.getPrestatario());
+        TreeMap<String, Libro> libros = porLector.get(lector);
+        if (libros == null) return;
+        libros.remove(ClaveAutor.de(libro.getAutor()));
+        if (libros.isEmpty()) porLector.remove(lector);
+    }
+
+    /** Cantidad de libros que tiene prestados el lector, en O(1). */
+    public int cantidad(String lector) {
+        if (lector == null || lector.trim().isEmpty()) return 0;
+        TreeMap<String, Libro> libros = porLector.get(normalizar(lector));
+        return libros == null ? 0 : libros.size();
+    }
+
+    /** Libros que tiene prestados el lector, en orden alfabético por autor. */
+    public List<Libro> libros(String lector) {
+        if (lector == null || lector.trim().isEmpty())
+            throw new IllegalArgumentException("El nombre del lector no puede estar vacío.");
+        TreeMap<String, Libro> libros = porLector.get(normalizar(lector));
+        return libros == null ? new ArrayList<>() : new ArrayList<>(libros.values());
+    }
+
+    /** Cantidad de lectores con al menos un libro prestado. */
+    public int lectores() {
+        return porLector.size();
+    }
+
+    private static String normalizar(String lector) {
+        return ClaveAutor.primaria(ESPACIOS.matcher(lector.trim()).replaceAll(" "));
+    }
+}
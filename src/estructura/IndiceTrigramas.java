@@ -0,0 +1,187 @@
+package estructura;
+
+import modelo.ClaveAutor;
+import modelo.Libro;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice invertido de trigramas (subcadenas de 3 caracteres) del nombre del autor.
+ * Para buscar una subcadena se toma la lista de candidatos del trigrama menos frecuente
+ * de la consulta y solo esos autores se verifican con {@code contains}, de modo que el
+ * costo depende de la cantidad de coincidencias y no del tamaño del catálogo.
+ * Los nombres se guardan ya normalizados con {@link ClaveAutor#paraSubcadena} (sin
+ * mayúsculas ni acentos, con la "ñ" distinta de la "n") para no crear cadenas al consultar.
+ * <p>
+ * Cada trigrama se codifica en un {@code long} (tres caracteres de 16 bits) y su lista de
+ * libros es un arreglo que crece por duplicación. Las bajas marcan la entrada como
+ * inactiva y la lista se compacta cuando la mitad de sus elementos están inactivos, así
+ * que tanto altas como bajas cuestan O(1) amortizado por trigrama.
+ */
+class IndiceTrigramas {
+
+    private static final int N = 3;
+
+    /** Datos normalizados de un libro indexado. */
+    private static final class Entrada {
+        final Libro libro;
+        final String autor;   // nombre normalizado, usado para las coincidencias
+        final String clave;   // clave completa, usada para ordenar los resultados
+        boolean activa = true;
+
+        Entrada(Libro libro) {
+            this.libro = libro;
+            this.autor = ClaveAutor.paraSubcadena(libro.getAutor());
+            this.clave = ClaveAutor.de(libro.getAutor());
+        }
+    }
+
+    /** Lista de entradas de un trigrama, incluidas las inactivas pendientes de compactar. */
+    private static final class Posteo {
+        Entrada[] entradas = new Entrada[2];
+        int tamanio;
+        int inactivas;
+
+        void agregar(Entrada entrada) {
+            // Un mismo autor puede repetir el trigrama; sus altas son consecutivas
+            if (tamanio > 0 && entradas[tamanio - 1] == entrada) return;
+            if (tamanio == entradas.length) entradas = Arrays.copyOf(entradas, tamanio * 2);
+            entradas[tamanio++] = entrada;
+        }
+
+        void marcarInactiva() {
+            if (++inactivas * 2 <= tamanio) return;
+            int n = 0;
+            for (int i = 0; i < tamanio; i++) if (entradas[i].activa) entradas[n++] = entradas[i];
+            Arrays.fill(entradas, n, tamanio, null);
+            tamanio = n;
+            inactivas = 0;
+        }
+
+        int activas() {
+            return tamanio - inactivas;
+        }
+    }
+
+    /**
+     * Tabla de direccionamiento abierto de trigrama a lista de entradas. Evita crear un
+     * {@code Long} por trigrama, que en una indexación masiva son decenas de millones.
+     * Las listas que quedan vacías no se quitan: la cantidad de trigramas distintos está
+     * acotada por el alfabeto y no por el catálogo.
+     */
+    private static final class TablaPosteos {
+        private long[] claves = new long[1024];
+        private Posteo[] valores = new Posteo[1024];
+        private int cantidad;
+
+        Posteo obtener(long trigrama) {
+            int mascara = claves.length - 1;
+            for (int i = dispersar(trigrama) & mascara; valores[i] != null; i = (i + 1) & mascara) {
+                if (claves[i] == trigrama) return valores[i];
+            }
+            return null;
+        }
+
+        Posteo obtenerOCrear(long trigrama) {
+            int mascara = claves.length - 1;
+            int i = dispersar(trigrama) & mascara;
+            for (; valores[i] != null; i = (i + 1) & mascara) {
+                if (claves[i] == trigrama) return valores[i];
+            }
+            Posteo posteo = new Posteo();
+            claves[i] = trigrama;
+            valores[i] = posteo;
+            if (++cantidad * 2 > claves.length) crecer();
+            return posteo;
+        }
+
+        private void crecer() {
+            long[] clavesViejas = claves;
+            Posteo[] valoresViejos = valores;
+            claves = new long[clavesViejas.length * 2];
+            valores = new Posteo[valoresViejos.length * 2];
+            int mascara = claves.length - 1;
+            for (int j = 0; j < clavesViejas.length; j++) {
+                if (valoresViejos[j] == null) continue;
+                int i = dispersar(clavesViejas[j]) & mascara;
+                while (valores[i] != null) i = (i + 1) & mascara;
+                claves[i] = clavesViejas[j];
+                valores[i] = valoresViejos[j];
+            }
+        }
+
+        private static int dispersar(long trigrama) {
+            long h = trigrama * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private final TablaPosteos posteos;
+    private final Map<Libro, Entrada> entradas;
+
+    IndiceTrigramas() {
+        this.posteos = new TablaPosteos();
+        this.entradas = new IdentityHashMap<>();
+    }
+
+    void agregar(Libro libro) {
+        Entrada entrada = new Entrada(libro);
+        entradas.put(libro, entrada);
+        String autor = entrada.autor;
+        for (int i = 0; i + N <= autor.length(); i++) {
+            posteos.obtenerOCrear(codificar(autor, i)).agregar(entrada);
+        }
+    }
+
+    void quitar(Libro libro) {
+        Entrada entrada = entradas.remove(libro);
+        if (entrada == null) return;
+        entrada.activa = false;
+        String autor = entrada.autor;
+        for (int i = 0; i + N <= autor.length(); i++) {
+            long trigrama = codificar(autor, i);
+            if (autor.indexOf(autor.substring(i, i + N)) < i) continue;   // trigrama repetido, ya contado
+            Posteo posteo = posteos.obtener(trigrama);
+            if (posteo != null) posteo.marcarInactiva();
+        }
+    }
+
+    /**
+     * Retorna los libros cuyo autor contiene la subcadena (sin distinguir mayúsculas ni
+     * acentos), en orden alfabético por autor. La consulta no se recorta: sus espacios
+     * cuentan. Las consultas de menos de 3 caracteres no tienen trigramas y se verifican
+     * contra todos los autores normalizados.
+     */
+    List<Libro> buscar(String subcadena) {
+        String sub = ClaveAutor.paraSubcadena(subcadena);
+        List<Entrada> coincidencias = new ArrayList<>();
+        for (Entrada candidato : candidatos(sub)) {
+            if (candidato.activa && candidato.autor.contains(sub)) coincidencias.add(candidato);
+        }
+        coincidencias.sort((a, b) -> a.clave.compareTo(b.clave));
+        List<Libro> resultado = new ArrayList<>(coincidencias.size());
+        for (Entrada e : coincidencias) resultado.add(e.libro);
+        return resultado;
+    }
+
+    private Collection<Entrada> candidatos(String sub) {
+        if (sub.length() < N) return entradas.values();
+
+        Posteo menor = null;
+        for (int i = 0; i + N <= sub.length(); i++) {
+            Posteo posteo = posteos.obtener(codificar(sub, i));
+            if (posteo == null) return Collections.emptyList();
+            if (menor == null || posteo.activas() < menor.activas()) menor = posteo;
+        }
+        return Arrays.asList(menor.entradas).subList(0, menor.tamanio);
+    }
+
+    private static long codificar(String texto, int desde) {
+        return ((long) texto.charAt(desde) << 32) | ((long) texto.charAt(desde + 1) << 16) | texto.charAt(desde + 2);
+    }
+}
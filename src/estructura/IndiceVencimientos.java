@@ -0,0 +1,109 @@
+package estructura;
+
+import modelo.ClaveAutor;
+import modelo.Libro;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Índice de los libros prestados ordenado por fecha de vencimiento (y por autor entre
+ * los que vencen el mismo día). Responde "qué préstamos están vencidos a tal fecha" y
+ * "cuáles son los próximos en vencer" en O(log n + k), sin recorrer el catálogo.
+ * <p>
+ * Como todos los préstamos duran lo mismo, el orden por vencimiento es el orden por
+ * fecha de préstamo: el índice guarda esa fecha y calcula el vencimiento al consultar.
+ * Los préstamos sin fecha (posibles en catálogos importados) no se indexan. No es
+ * seguro para uso concurrente; el servicio lo usa bajo su cerrojo.
+ */
+public class IndiceVencimientos {
+
+    private final int diasPrestamo;
+    private final TreeSet<Entrada> entradas = new TreeSet<>();
+
+    public IndiceVencimientos(int diasPrestamo) {
+        if (diasPrestamo < 1) throw new IllegalArgumentException("El período de préstamo debe ser de al menos 1 día.");
+        this.diasPrestamo = diasPrestamo;
+    }
+
+    public int getDiasPrestamo() {
+        return diasPrestamo;
+    }
+
+    /** Fecha en que vence el préstamo del libro, o null si no está prestado o no tiene fecha. */
+    public LocalDate vencimiento(Libro libro) {
+        Libro.EstadoPrestamo estado = libro.getEstadoPrestamo();
+        if (estado.isDisponible() || estado.getFechaPrestamo() == null) return null;
+        return estado.getFechaPrestamo().plusDays(diasPrestamo);
+    }
+
+    // =========================================================
+    //  ACTUALIZACIÓN
+    // =========================================================
+
+    /** Indexa el préstamo del libro; debe llamarse después de registrar su fecha de préstamo. */
+    public void agregar(Libro libro) {
+        if (libro.isDisponible() || libro.getFechaPrestamo() == null) return;
+        entradas.add(new Entrada(libro.getFechaPrestamo().toEpochDay(), ClaveAutor.de(libro.getAutor()), libro));
+    }
+
+    /** Quita el préstamo del libro; debe llamarse antes de borrar su fecha de préstamo. */
+    public void quitar(Libro libro) {
+        if (libro.getFechaPrestamo() == null) return;
+        entradas.remove(new Entrada(libro.getFechaPrestamo().toEpochDay(), ClaveAutor.de(libro.getAutor()), null));
+    }
+
+    public int cantidad() {
+        return entradas.size();
+    }
+
+    // =========================================================
+    //  CONSULTAS
+    // =========================================================
+
+    /**
+     * Préstamos vencidos a la fecha indicada (vencimiento anterior a {@code fecha}), del
+     * más antiguo al más reciente.
+     */
+    public List<Libro> vencidos(LocalDate fecha) {
+        Entrada limite = new Entrada(fecha.minusDays(diasPrestamo).toEpochDay(), "", null);
+        List<Libro> resultado = new ArrayList<>();
+        for (Entrada entrada : entradas.headSet(limite, false)) resultado.add(entrada.libro);
+        return resultado;
+    }
+
+    /**
+     * Los primeros {@code cantidad} préstamos que vencen el día {@code desde} o después,
+     * en orden de vencimiento.
+     */
+    public List<Libro> proximos(LocalDate desde, int cantidad) {
+        if (cantidad < 0) throw new IllegalArgumentException("La cantidad no puede ser negativa.");
+        Entrada limite = new Entrada(desde.minusDays(diasPrestamo).toEpochDay(), "", null);
+        List<Libro> resultado = new ArrayList<>(Math.min(cantidad, entradas.size()));
+        for (Iterator<Entrada> it = entradas.tailSet(limite, true).iterator(); it.hasNext() && resultado.size() < cantidad; ) {
+            resultado.add(it.next().libro);
+        }
+        return resultado;
+    }
+
+    /** Préstamo indexado: la clave de orden es (día del préstamo, clave del autor). */
+    private static final class Entrada implements Comparable<Entrada> {
+        final long dia;
+        final String clave;
+        final Libro libro;
+
+        Entrada(long dia, String clave, Libro libro) {
+            this.dia = dia;
+            this.clave = clave;
+            this.libro = libro;
+        }
+
+        @Override
+        public int compareTo(Entrada otra) {
+            int cmp = Long.compare(dia, otra.dia);
+            return cmp != 0 ? cmp : clave.compareTo(otra.clave);
+        }
+    }
+}
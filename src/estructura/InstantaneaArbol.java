@@ -0,0 +1,400 @@
+package estructura;
+
+import metricas.Histograma;
+import modelo.ClaveAutor;
+import modelo.Libro;
+import modelo.NodoBST;
+import modelo.TablaSimbolos;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Vista inmutable del {@link ArbolBST} en un momento dado.
+ * Como el árbol publica cada versión como una raíz nueva sin modificar los nodos
+ * anteriores, una instantánea puede consultarse desde cualquier hilo sin cerrojos y
+ * siempre ve una estructura completa y consistente, aunque entretanto se inserten o
+ * eliminen libros. Varias consultas sobre la misma instantánea (p. ej. un reporte)
+ * ven exactamente el mismo conjunto de libros.
+ * <p>
+ * La instantánea fija qué libros hay y en qué orden; el estado de préstamo de cada
+ * {@link Libro} se lee del objeto en el momento de la consulta.
+ */
+public final class InstantaneaArbol implements VistaCatalogo {
+
+    private final NodoBST raiz;
+    /** Donde se anotan las comparaciones de cada búsqueda por autor; null si no se miden. */
+    private final Histograma comparaciones;
+    /** Tabla de símbolos del árbol, para los filtros por categoría. */
+    private final TablaSimbolos simbolos;
+
+    InstantaneaArbol(NodoBST raiz, Histograma comparaciones, TablaSimbolos simbolos) {
+        this.raiz = raiz;
+        this.comparaciones = comparaciones;
+        this.simbolos = simbolos;
+    }
+
+    // =========================================================
+    //  BUSCAR POR AUTOR
+    // =========================================================
+
+    /**
+     * Busca un libro por el apellido/nombre del autor.
+     * @return El libro encontrado o null si no existe.
+     */
+    public Libro buscar(String autor) {
+        if (autor == null || autor.trim().isEmpty())
+            throw new IllegalArgumentException("El autor de búsqueda no puede estar vacío.");
+        String clave = ClaveAutor.de(autor);
+        NodoBST nodo = raiz;
+        int pasos = 0;
+        while (nodo != null) {
+            pasos++;
+            int cmp = clave.compareTo(nodo.clave);
+            if (cmp == 0) break;
+            nodo = cmp < 0 ? nodo.izquierdo : nodo.derecho;
+        }
+        if (comparaciones != null) comparaciones.registrar(pasos);
+        return nodo == null ? null : nodo.libro;
+    }
+
+    /**
+     * Busca varios autores en una sola pasada. {@code claves} son claves de
+     * {@link ClaveAutor#de}, ordenadas y sin repetir; el resultado trae en cada posición
+     * el libro de esa clave o null. Cada subárbol se visita una sola vez con las claves
+     * que le corresponden y los subárboles sin claves se saltan, así que el costo es
+     * O(k·log(n/k)): nunca más que k búsquedas sueltas ni que un recorrido completo.
+     */
+    public Libro[] buscarClaves(String[] claves) {
+        Libro[] resultado = new Libro[claves.length];
+        if (raiz == null) return resultado;
+        // Pila explícita en lugar de recursión: sin balanceo o en modo splay la altura no
+        // está acotada. Cada subárbol izquierdo pendiente se guarda con su rango de claves.
+        Deque<NodoBST> nodos = new ArrayDeque<>();
+        Deque<int[]> rangos = new ArrayDeque<>();
+        nodos.push(raiz);
+        rangos.push(new int[] {0, claves.length});
+        while (!nodos.isEmpty()) {
+            NodoBST nodo = nodos.pop();
+            int[] rango = rangos.pop();
+            int desde = rango[0], hasta = rango[1];
+            for (; nodo != null && desde < hasta; nodo = nodo.derecho) {
+                int indice = Arrays.binarySearch(claves, desde, hasta, nodo.clave);
+                int finIzquierda = indice >= 0 ? indice : -indice - 1;
+                if (indice >= 0) resultado[indice] = nodo.libro;
+                if (nodo.izquierdo != null && desde < finIzquierda) {
+                    nodos.push(nodo.izquierdo);
+                    rangos.push(new int[] {desde, finIzquierda});
+                }
+                desde = indice >= 0 ? indice + 1 : finIzquierda;
+            }
+        }
+        return resultado;
+    }
+
+    // =========================================================
+    //  RECORRIDOS
+    // =========================================================
+
+    /** Recorrido InOrden (izq → raíz → der): lista libros alfabéticamente. */
+    public List<Libro> recorridoInOrden() {
+        return recorrer(Recorrido.IN_ORDEN);
+    }
+
+    /** Recorrido PreOrden (raíz → izq → der): muestra estructura jerárquica. */
+    public List<Libro> recorridoPreOrden() {
+        return recorrer(Recorrido.PRE_ORDEN);
+    }
+
+    /** Recorrido PostOrden (izq → der → raíz): útil para operaciones de limpieza. */
+    public List<Libro> recorridoPostOrden() {
+        return recorrer(Recorrido.POST_ORDEN);
+    }
+
+    private List<Libro> recorrer(Recorrido orden) {
+        List<Libro> lista = new ArrayList<>(contarNodos());
+        iterador(orden).forEachRemaining(lista::add);
+        return lista;
+    }
+
+    /** Iterador perezoso en el orden indicado, con pila explícita (memoria O(altura)). */
+    public Iterator<Libro> iterador(Recorrido orden) {
+        if (orden == null) throw new IllegalArgumentException("El orden de recorrido no puede ser nulo.");
+        return new IteradorBST(raiz, orden);
+    }
+
+    /** Iterador InOrden, de modo que la instantánea puede usarse en un for-each. */
+    @Override
+    public Iterator<Libro> iterator() {
+        return iterador(Recorrido.IN_ORDEN);
+    }
+
+    /**
+     * Vista {@link Stream} perezosa del recorrido: los nodos se visitan a medida que se
+     * consumen, así que operaciones como {@code limit} o {@code findFirst} terminan antes.
+     */
+    public Stream<Libro> stream(Recorrido orden) {
+        Spliterator<Libro> spliterator = Spliterators.spliterator(iterador(orden), contarNodos(),
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    public Stream<Libro> streamInOrden()   { return stream(Recorrido.IN_ORDEN); }
+    public Stream<Libro> streamPreOrden()  { return stream(Recorrido.PRE_ORDEN); }
+    public Stream<Libro> streamPostOrden() { return stream(Recorrido.POST_ORDEN); }
+
+    // =========================================================
+    //  MÍNIMO, MÁXIMO, CONTAR Y ALTURA
+    // =========================================================
+
+    /** Retorna el libro con el autor alfabéticamente primero. */
+    public Libro encontrarMinimo() {
+        if (raiz == null) return null;
+        NodoBST nodo = raiz;
+        while (nodo.izquierdo != null) nodo = nodo.izquierdo;
+        return nodo.libro;
+    }
+
+    /** Retorna el libro con el autor alfabéticamente último. */
+    public Libro encontrarMaximo() {
+        if (raiz == null) return null;
+        NodoBST nodo = raiz;
+        while (nodo.derecho != null) nodo = nodo.derecho;
+        return nodo.libro;
+    }
+
+    /** Retorna el número total de libros (tamaño guardado en la raíz, O(1)). */
+    public int contarNodos() {
+        return NodoBST.tamanioDe(raiz);
+    }
+
+    /** Retorna la altura del árbol (guardada en la raíz, O(1)). */
+    public int altura() {
+        return NodoBST.alturaDe(raiz);
+    }
+
+    public boolean isEmpty() {
+        return raiz == null;
+    }
+
+    // =========================================================
+    //  CONSULTAS POR POSICIÓN (ORDEN ALFABÉTICO)
+    // =========================================================
+
+    /**
+     * Retorna el libro que ocupa la posición indicada en el orden alfabético (base 0).
+     * @throws IllegalArgumentException si la posición está fuera de rango.
+     */
+    public Libro seleccionar(int posicion) {
+        if (posicion < 0 || posicion >= contarNodos())
+            throw new IllegalArgumentException(
+                "La posición " + posicion + " está fuera del rango 0.." + (contarNodos() - 1) + ".");
+        NodoBST nodo = raiz;
+        while (true) {
+            int izq = NodoBST.tamanioDe(nodo.izquierdo);
+            if (posicion < izq) {
+                nodo = nodo.izquierdo;
+            } else if (posicion > izq) {
+                posicion -= izq + 1;
+                nodo = nodo.derecho;
+            } else {
+                return nodo.libro;
+            }
+        }
+    }
+
+    /**
+     * Retorna la posición (base 0) del autor en el orden alfabético, o -1 si no existe.
+     */
+    public int posicion(String autor) {
+        if (autor == null || autor.trim().isEmpty())
+            throw new IllegalArgumentException("El autor de búsqueda no puede estar vacío.");
+        String clave = ClaveAutor.de(autor);
+        int anteriores = 0;
+        NodoBST nodo = raiz;
+        while (nodo != null) {
+            int cmp = clave.compareTo(nodo.clave);
+            if (cmp < 0) {
+                nodo = nodo.izquierdo;
+            } else if (cmp > 0) {
+                anteriores += NodoBST.tamanioDe(nodo.izquierdo) + 1;
+                nodo = nodo.derecho;
+            } else {
+                return anteriores + NodoBST.tamanioDe(nodo.izquierdo);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retorna hasta {@code cantidad} libros en orden alfabético a partir de la posición
+     * {@code desde} (base 0). Desciende una sola vez hasta la posición inicial y luego
+     * avanza por sucesores con una pila explícita: O(log n + cantidad).
+     */
+    public List<Libro> rangoInOrden(int desde, int cantidad) {
+        if (desde < 0 || cantidad < 0)
+            throw new IllegalArgumentException("La posición inicial y la cantidad no pueden ser negativas.");
+        List<Libro> lista = new ArrayList<>(Math.min(cantidad, Math.max(0, contarNodos() - desde)));
+        if (cantidad == 0 || desde >= contarNodos()) return lista;
+
+        // Pila con los ancestros cuyo turno en el recorrido aún no llega
+        Deque<NodoBST> pila = new ArrayDeque<>();
+        NodoBST nodo = raiz;
+        int restante = desde;
+        while (nodo != null) {
+            int izq = NodoBST.tamanioDe(nodo.izquierdo);
+            if (restante < izq) {
+                pila.push(nodo);
+                nodo = nodo.izquierdo;
+            } else if (restante > izq) {
+                restante -= izq + 1;
+                nodo = nodo.derecho;
+            } else {
+                pila.push(nodo);
+                break;
+            }
+        }
+        while (!pila.isEmpty() && lista.size() < cantidad) {
+            NodoBST actual = pila.pop();
+            lista.add(actual.libro);
+            for (NodoBST n = actual.derecho; n != null; n = n.izquierdo) pila.push(n);
+        }
+        return lista;
+    }
+
+    // =========================================================
+    //  CONSULTAS POR RANGO Y PREFIJO DE AUTOR
+    // =========================================================
+
+    /**
+     * Retorna, en orden alfabético, los libros cuyo autor está entre {@code desde} y
+     * {@code hasta} (ambos inclusive). Los subárboles fuera del rango no se visitan:
+     * O(log n + k), con k la cantidad de resultados.
+     */
+    public List<Libro> buscarRangoAutores(String desde, String hasta) {
+        if (desde == null || desde.trim().isEmpty() || hasta == null || hasta.trim().isEmpty())
+            throw new IllegalArgumentException("Los límites del rango no pueden estar vacíos.");
+        String inicio = ClaveAutor.de(desde);
+        String fin = ClaveAutor.de(hasta);
+        if (inicio.compareTo(fin) > 0)
+            throw new IllegalArgumentException(
+                "El autor inicial '" + desde.trim() + "' es posterior al autor final '" + hasta.trim() + "'.");
+        return recorrerRango(clave -> clave.compareTo(inicio), clave -> clave.compareTo(fin));
+    }
+
+    /**
+     * Retorna, en orden alfabético, los libros cuyo autor empieza por {@code prefijo}
+     * (sin distinguir mayúsculas ni acentos). Como esos autores comparten el inicio de la
+     * clave primaria, son contiguos en el árbol y se resuelve como un rango: O(log n + k).
+     */
+    public List<Libro> buscarPorPrefijoAutor(String prefijo) {
+        if (prefijo == null || prefijo.trim().isEmpty())
+            throw new IllegalArgumentException("El prefijo no puede estar vacío.");
+        String p = ClaveAutor.primaria(prefijo);
+        ToIntFunction<String> comparar = clave -> ClaveAutor.compararPrefijo(clave, p);
+        return recorrerRango(comparar, comparar);
+    }
+
+    /**
+     * Recorrido InOrden acotado sobre las claves de los nodos. {@code antesDelInicio} es
+     * negativo para claves previas al rango y {@code despuesDelFin} es positivo para las
+     * posteriores; con eso se podan los subárboles izquierdos que quedan antes y se corta
+     * al salir del rango.
+     */
+    private List<Libro> recorrerRango(ToIntFunction<String> antesDelInicio, ToIntFunction<String> despuesDelFin) {
+        List<Libro> resultado = new ArrayList<>();
+        Deque<NodoBST> pila = new ArrayDeque<>();
+        NodoBST nodo = raiz;
+        while (nodo != null || !pila.isEmpty()) {
+            while (nodo != null) {
+                if (antesDelInicio.applyAsInt(nodo.clave) < 0) {
+                    nodo = nodo.derecho;   // el nodo y su subárbol izquierdo quedan antes del rango
+                } else {
+                    pila.push(nodo);
+                    nodo = nodo.izquierdo;
+                }
+            }
+            if (pila.isEmpty()) break;   // el resto del árbol quedó antes del rango
+            NodoBST actual = pila.pop();
+            if (despuesDelFin.applyAsInt(actual.clave) > 0) break;
+            resultado.add(actual.libro);
+            nodo = actual.derecho;
+        }
+        return resultado;
+    }
+
+    // =========================================================
+    //  FILTROS
+    // =========================================================
+
+    // Los filtros recorren en PreOrden sobre el stream perezoso, sin listas intermedias.
+
+    /** Retorna todos los libros disponibles. */
+    public List<Libro> listarDisponibles() {
+        return streamPreOrden().filter(Libro::isDisponible).collect(Collectors.toList());
+    }
+
+    /** Retorna todos los libros prestados. */
+    public List<Libro> listarPrestados() {
+        return streamPreOrden().filter(l -> !l.isDisponible()).collect(Collectors.toList());
+    }
+
+    /** Retorna libros de una categoría específica. */
+    public List<Libro> buscarPorCategoria(String categoria) {
+        return streamPorCategoria(categoria).collect(Collectors.toList());
+    }
+
+    /** Libros de una categoría, sin distinguir mayúsculas, como stream perezoso en PreOrden. */
+    public Stream<Libro> streamPorCategoria(String categoria) {
+        if (categoria == null || categoria.trim().isEmpty())
+            throw new IllegalArgumentException("La categoría no puede estar vacía.");
+        TablaSimbolos.Consulta consulta = simbolos.consultarCategoria(categoria);
+        return streamPreOrden().filter(l -> l.esDeCategoria(consulta));
+    }
+
+    // =========================================================
+    //  VISUALIZACIÓN DEL ÁRBOL EN CONSOLA
+    // =========================================================
+
+    /** Imprime el árbol en consola con formato gráfico. */
+    public void imprimirArbol() {
+        if (raiz == null) {
+            System.out.println("  (árbol vacío)");
+            return;
+        }
+        // Pila explícita en lugar de recursión: un árbol sin balanceo puede ser una cadena
+        Deque<Pendiente> pila = new ArrayDeque<>();
+        pila.push(new Pendiente(raiz, "", true));
+        while (!pila.isEmpty()) {
+            Pendiente p = pila.pop();
+            NodoBST nodo = p.nodo;
+            System.out.println(p.prefijo + (p.esUltimo ? "└── " : "├── ") + nodo.libro.getAutor());
+            String nuevoPrefijo = p.prefijo + (p.esUltimo ? "    " : "│   ");
+            // Se apila primero el izquierdo para que el derecho se imprima antes
+            if (nodo.izquierdo != null) pila.push(new Pendiente(nodo.izquierdo, nuevoPrefijo, true));
+            if (nodo.derecho != null) pila.push(new Pendiente(nodo.derecho, nuevoPrefijo, nodo.izquierdo == null));
+        }
+    }
+
+    /** Nodo que falta imprimir junto con la sangría de su línea. */
+    private static final class Pendiente {
+        final NodoBST nodo;
+        final String prefijo;
+        final boolean esUltimo;
+
+        Pendiente(NodoBST nodo, String prefijo, boolean esUltimo) {
+            this.nodo = nodo;
+            this.prefijo = prefijo;
+            this.esUltimo = esUltimo;
+        }
+    }
+}
@@ -0,0 +1,514 @@
+package estructura;
+
+import estructura.ArbolCompacto.Bloques;
+import estructura.ArbolCompacto.PilaEnteros;
+import metricas.Histograma;
+import modelo.ClaveAutor;
+import modelo.Libro;
+import modelo.TablaSimbolos;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Vista inmutable del {@link ArbolCompacto} en un momento dado, con las mismas consultas
+ * que {@link InstantaneaArbol}. Los libros que entrega son copias armadas desde las
+ * filas; el estado de préstamo de cada copia es el de la fila al armarla.
+ * <p>
+ * Mientras está abierta, el catálogo no reutiliza los nodos ni las filas que ella puede
+ * alcanzar (ver {@link ArbolCompacto}). {@link #close()} la cierra; si no se cierra, la
+ * cierra el recolector cuando ni ella ni sus iteradores o streams siguen en uso. No debe
+ * consultarse después de cerrarla.
+ */
+public final class InstantaneaCompacta implements VistaCatalogo {
+
+    private static final Cleaner LIMPIADOR = Cleaner.create();
+    private static final int NULO = ArbolCompacto.NULO;
+
+    private final int raiz;
+    private final Bloques bloques;
+    /** Donde se anotan las comparaciones de cada búsqueda por autor; null si no se miden. */
+    private final Histograma comparaciones;
+    private final TablaSimbolos simbolos;
+    private final Soltar soltar;
+    /** Cierre a cargo del recolector si nadie llama a {@link #close()}; null en lecturas internas. */
+    private final Cleaner.Cleanable limpieza;
+
+    InstantaneaCompacta(ArbolCompacto arbol, int raiz, Bloques bloques, Histograma comparaciones,
+                        TablaSimbolos simbolos, int contador, boolean liberarSola) {
+        this.raiz = raiz;
+        this.bloques = bloques;
+        this.comparaciones = comparaciones;
+        this.simbolos = simbolos;
+        this.soltar = new Soltar(arbol, contador);
+        this.limpieza = liberarSola ? LIMPIADOR.register(this, soltar) : null;
+    }
+
+    /** Descuenta la lectura de su época; no guarda la instantánea, para que el recolector pueda descartarla. */
+    private static final class Soltar implements Runnable {
+        private final ArbolCompacto arbol;
+        private final int contador;
+        private boolean hecho;
+
+        Soltar(ArbolCompacto arbol, int contador) {
+            this.arbol = arbol;
+            this.contador = contador;
+        }
+
+        @Override
+        public void run() {
+            if (hecho) return;
+            hecho = true;
+            arbol.soltar(contador);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (limpieza != null) limpieza.clean();
+        else soltar.run();
+    }
+
+    private Libro libroDeNodo(int nodo) {
+        return bloques.libro(bloques.fila(nodo));
+    }
+
+    // Las consultas que recorren nodos terminan con reachabilityFence: si la instantánea se
+    // descartara a mitad de camino, el recolector la cerraría y los nodos podrían reutilizarse.
+
+    // =========================================================
+    //  BUSCAR POR AUTOR
+    // =========================================================
+
+    public Libro buscar(String autor) {
+        if (autor == null || autor.trim().isEmpty())
+            throw new IllegalArgumentException("El autor de búsqueda no puede estar vacío.");
+        try {
+            String clave = ClaveAutor.de(autor);
+            int nodo = raiz;
+            int pasos = 0;
+            while (nodo != NULO) {
+                pasos++;
+                int cmp = clave.compareTo(bloques.clave(bloques.fila(nodo)));
+                if (cmp == 0) break;
+                nodo = cmp < 0 ? bloques.izquierdo(nodo) : bloques.derecho(nodo);
+            }
+            if (comparaciones != null) comparaciones.registrar(pasos);
+            return nodo == NULO ? null : libroDeNodo(nodo);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    /** Como {@link InstantaneaArbol#buscarClaves}: O(k·log(n/k)) con pilas explícitas. */
+    public Libro[] buscarClaves(String[] claves) {
+        Libro[] resultado = new Libro[claves.length];
+        if (raiz == NULO) return resultado;
+        try {
+            PilaEnteros nodos = new PilaEnteros();
+            PilaEnteros desdes = new PilaEnteros();
+            PilaEnteros hastas = new PilaEnteros();
+            nodos.agregar(raiz);
+            desdes.agregar(0);
+            hastas.agregar(claves.length);
+            while (!nodos.vacia()) {
+                int nodo = nodos.quitar();
+                int desde = desdes.quitar(), hasta = hastas.quitar();
+                for (; nodo != NULO && desde < hasta; nodo = bloques.derecho(nodo)) {
+                    int fila = bloques.fila(nodo);
+                    int indice = Arrays.binarySearch(claves, desde, hasta, bloques.clave(fila));
+                    int finIzquierda = indice >= 0 ? indice : -indice - 1;
+                    if (indice >= 0) resultado[indice] = bloques.libro(fila);
+                    if (bloques.izquierdo(nodo) != NULO && desde < finIzquierda) {
+                        nodos.agregar(bloques.izquierdo(nodo));
+                        desdes.agregar(desde);
+                        hastas.agregar(finIzquierda);
+                    }
+                    desde = indice >= 0 ? indice + 1 : finIzquierda;
+                }
+            }
+            return resultado;
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    // =========================================================
+    //  RECORRIDOS
+    // =========================================================
+
+    public List<Libro> recorridoInOrden()   { return recorrer(Recorrido.IN_ORDEN); }
+    public List<Libro> recorridoPreOrden()  { return recorrer(Recorrido.PRE_ORDEN); }
+    public List<Libro> recorridoPostOrden() { return recorrer(Recorrido.POST_ORDEN); }
+
+    private List<Libro> recorrer(Recorrido orden) {
+        List<Libro> lista = new ArrayList<>(contarNodos());
+        iterador(orden).forEachRemaining(lista::add);
+        return lista;
+    }
+
+    /** Iterador perezoso en el orden indicado; cada libro se copia al entregarlo. */
+    public Iterator<Libro> iterador(Recorrido orden) {
+        IteradorNodos nodos = new IteradorNodos(orden);
+        return new Iterator<Libro>() {
+            @Override
+            public boolean hasNext() {
+                return nodos.hasNext();
+            }
+
+            @Override
+            public Libro next() {
+                return libroDeNodo(nodos.nextInt());
+            }
+        };
+    }
+
+    public Stream<Libro> stream(Recorrido orden) {
+        return nodos(orden).mapToObj(this::libroDeNodo);
+    }
+
+    /** Nodos en el orden indicado, para filtrar por columnas antes de copiar los libros. */
+    private IntStream nodos(Recorrido orden) {
+        Spliterator.OfInt spliterator = Spliterators.spliterator(new IteradorNodos(orden), contarNodos(),
+            Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.intStream(spliterator, false);
+    }
+
+    /**
+     * Recorre los nodos con una pila explícita, como {@link IteradorBST}. Es una clase
+     * interna, así que mientras se use mantiene viva la instantánea.
+     */
+    private final class IteradorNodos implements PrimitiveIterator.OfInt {
+        private final Recorrido orden;
+        private final PilaEnteros pila = new PilaEnteros();
+        // Solo para PostOrden: nodo por descender y último nodo entregado
+        private int actual = NULO;
+        private int ultimo = NULO;
+
+        IteradorNodos(Recorrido orden) {
+            if (orden == null) throw new IllegalArgumentException("El orden de recorrido no puede ser nulo.");
+            this.orden = orden;
+            switch (orden) {
+                case IN_ORDEN:   apilarIzquierdos(raiz);                break;
+                case PRE_ORDEN:  if (raiz != NULO) pila.agregar(raiz);  break;
+                case POST_ORDEN: actual = raiz;                         break;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pila.vacia() || actual != NULO;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) throw new NoSuchElementException();
+            switch (orden) {
+                case IN_ORDEN: {
+                    int nodo = pila.quitar();
+                    apilarIzquierdos(bloques.derecho(nodo));
+                    return nodo;
+                }
+                case PRE_ORDEN: {
+                    int nodo = pila.quitar();
+                    if (bloques.derecho(nodo) != NULO)   pila.agregar(bloques.derecho(nodo));
+                    if (bloques.izquierdo(nodo) != NULO) pila.agregar(bloques.izquierdo(nodo));
+                    return nodo;
+                }
+                default:
+                    return siguientePostOrden();
+            }
+        }
+
+        private void apilarIzquierdos(int nodo) {
+            for (; nodo != NULO; nodo = bloques.izquierdo(nodo)) pila.agregar(nodo);
+        }
+
+        private int siguientePostOrden() {
+            while (true) {
+                if (actual != NULO) {
+                    pila.agregar(actual);
+                    actual = bloques.izquierdo(actual);
+                } else {
+                    int tope = pila.tope();
+                    int derecho = bloques.derecho(tope);
+                    if (derecho != NULO && derecho != ultimo) {
+                        actual = derecho;
+                    } else {
+                        pila.quitar();
+                        ultimo = tope;
+                        return tope;
+                    }
+                }
+            }
+        }
+    }
+
+    // =========================================================
+    //  MÍNIMO, MÁXIMO, CONTAR Y ALTURA
+    // =========================================================
+
+    public Libro encontrarMinimo() {
+        if (raiz == NULO) return null;
+        try {
+            int nodo = raiz;
+            while (bloques.izquierdo(nodo) != NULO) nodo = bloques.izquierdo(nodo);
+            return libroDeNodo(nodo);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    public Libro encontrarMaximo() {
+        if (raiz == NULO) return null;
+        try {
+            int nodo = raiz;
+            while (bloques.derecho(nodo) != NULO) nodo = bloques.derecho(nodo);
+            return libroDeNodo(nodo);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    public int contarNodos() {
+        try {
+            return bloques.tamanio(raiz);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    public int altura() {
+        try {
+            return bloques.altura(raiz);
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    public boolean isEmpty() {
+        return raiz == NULO;
+    }
+
+    // =========================================================
+    //  CONSULTAS POR POSICIÓN (ORDEN ALFABÉTICO)
+    // =========================================================
+
+    public Libro seleccionar(int posicion) {
+        if (posicion < 0 || posicion >= contarNodos())
+            throw new IllegalArgumentException(
+                "La posición " + posicion + " está fuera del rango 0.." + (contarNodos() - 1) + ".");
+        try {
+            int nodo = raiz;
+            while (true) {
+                int izq = bloques.tamanio(bloques.izquierdo(nodo));
+                if (posicion < izq) {
+                    nodo = bloques.izquierdo(nodo);
+                } else if (posicion > izq) {
+                    posicion -= izq + 1;
+                    nodo = bloques.derecho(nodo);
+                } else {
+                    return libroDeNodo(nodo);
+                }
+            }
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    public int posicion(String autor) {
+        if (autor == null || autor.trim().isEmpty())
+            throw new IllegalArgumentException("El autor de búsqueda no puede estar vacío.");
+        try {
+            String clave = ClaveAutor.de(autor);
+            int anteriores = 0;
+            int nodo = raiz;
+            while (nodo != NULO) {
+                int cmp = clave.compareTo(bloques.clave(bloques.fila(nodo)));
+                if (cmp < 0) {
+                    nodo = bloques.izquierdo(nodo);
+                } else if (cmp > 0) {
+                    anteriores += bloques.tamanio(bloques.izquierdo(nodo)) + 1;
+                    nodo = bloques.derecho(nodo);
+                } else {
+                    return anteriores + bloques.tamanio(bloques.izquierdo(nodo));
+                }
+            }
+            return -1;
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    /** Como {@link InstantaneaArbol#rangoInOrden}: O(log n + cantidad). */
+    public List<Libro> rangoInOrden(int desde, int cantidad) {
+        if (desde < 0 || cantidad < 0)
+            throw new IllegalArgumentException("La posición inicial y la cantidad no pueden ser negativas.");
+        List<Libro> lista = new ArrayList<>(Math.min(cantidad, Math.max(0, contarNodos() - desde)));
+        if (cantidad == 0 || desde >= contarNodos()) return lista;
+        try {
+            PilaEnteros pila = new PilaEnteros();
+            int nodo = raiz;
+            int restante = desde;
+            while (nodo != NULO) {
+                int izq = bloques.tamanio(bloques.izquierdo(nodo));
+                if (restante < izq) {
+                    pila.agregar(nodo);
+                    nodo = bloques.izquierdo(nodo);
+                } else if (restante > izq) {
+                    restante -= izq + 1;
+                    nodo = bloques.derecho(nodo);
+                } else {
+                    pila.agregar(nodo);
+                    break;
+                }
+            }
+            while (!pila.vacia() && lista.size() < cantidad) {
+                int actual = pila.quitar();
+                lista.add(libroDeNodo(actual));
+                for (int n = bloques.derecho(actual); n != NULO; n = bloques.izquierdo(n)) pila.agregar(n);
+            }
+            return lista;
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    // =========================================================
+    //  CONSULTAS POR RANGO Y PREFIJO DE AUTOR
+    // =========================================================
+
+    public List<Libro> buscarRangoAutores(String desde, String hasta) {
+        if (desde == null || desde.trim().isEmpty() || hasta == null || hasta.trim().isEmpty())
+            throw new IllegalArgumentException("Los límites del rango no pueden estar vacíos.");
+        String inicio = ClaveAutor.de(desde);
+        String fin = ClaveAutor.de(hasta);
+        if (inicio.compareTo(fin) > 0)
+            throw new IllegalArgumentException(
+                "El autor inicial '" + desde.trim() + "' es posterior al autor final '" + hasta.trim() + "'.");
+        return recorrerRango(clave -> clave.compareTo(inicio), clave -> clave.compareTo(fin));
+    }
+
+    public List<Libro> buscarPorPrefijoAutor(String prefijo) {
+        if (prefijo == null || prefijo.trim().isEmpty())
+            throw new IllegalArgumentException("El prefijo no puede estar vacío.");
+        String p = ClaveAutor.primaria(prefijo);
+        ToIntFunction<String> comparar = clave -> ClaveAutor.compararPrefijo(clave, p);
+        return recorrerRango(comparar, comparar);
+    }
+
+    /** Recorrido InOrden acotado, como {@link InstantaneaArbol}. */
+    private List<Libro> recorrerRango(ToIntFunction<String> antesDelInicio, ToIntFunction<String> despuesDelFin) {
+        try {
+            List<Libro> resultado = new ArrayList<>();
+            PilaEnteros pila = new PilaEnteros();
+            int nodo = raiz;
+            while (nodo != NULO || !pila.vacia()) {
+                while (nodo != NULO) {
+                    if (antesDelInicio.applyAsInt(bloques.clave(bloques.fila(nodo))) < 0) {
+                        nodo = bloques.derecho(nodo);
+                    } else {
+                        pila.agregar(nodo);
+                        nodo = bloques.izquierdo(nodo);
+                    }
+                }
+                if (pila.vacia()) break;   // el resto del árbol quedó antes del rango
+                int actual = pila.quitar();
+                if (despuesDelFin.applyAsInt(bloques.clave(bloques.fila(actual))) > 0) break;
+                resultado.add(libroDeNodo(actual));
+                nodo = bloques.derecho(actual);
+            }
+            return resultado;
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    // =========================================================
+    //  FILTROS
+    // =========================================================
+
+    // Los filtros miran las columnas de cada fila y solo copian los libros que pasan.
+
+    public List<Libro> listarDisponibles() {
+        return nodos(Recorrido.PRE_ORDEN).filter(n -> bloques.prestamo(bloques.fila(n)).isDisponible())
+            .mapToObj(this::libroDeNodo).collect(Collectors.toList());
+    }
+
+    public List<Libro> listarPrestados() {
+        return nodos(Recorrido.PRE_ORDEN).filter(n -> !bloques.prestamo(bloques.fila(n)).isDisponible())
+            .mapToObj(this::libroDeNodo).collect(Collectors.toList());
+    }
+
+    public List<Libro> buscarPorCategoria(String categoria) {
+        return streamPorCategoria(categoria).collect(Collectors.toList());
+    }
+
+    public Stream<Libro> streamPorCategoria(String categoria) {
+        if (categoria == null || categoria.trim().isEmpty())
+            throw new IllegalArgumentException("La categoría no puede estar vacía.");
+        TablaSimbolos.Consulta consulta = simbolos.consultarCategoria(categoria);
+        return nodos(Recorrido.PRE_ORDEN).filter(n -> consulta.coincide(bloques.categoria(bloques.fila(n))))
+            .mapToObj(this::libroDeNodo);
+    }
+
+    /** Libros cuyo autor contiene {@code subcadena}, ya normalizada, en orden alfabético. */
+    List<Libro> buscarPorSubcadena(String subcadena) {
+        return nodos(Recorrido.IN_ORDEN)
+            .filter(n -> ClaveAutor.contieneSubcadena(bloques.clave(bloques.fila(n)), subcadena))
+            .mapToObj(this::libroDeNodo).collect(Collectors.toList());
+    }
+
+    // =========================================================
+    //  VISUALIZACIÓN DEL ÁRBOL EN CONSOLA
+    // =========================================================
+
+    public void imprimirArbol() {
+        if (raiz == NULO) {
+            System.out.println("  (árbol vacío)");
+            return;
+        }
+        try {
+            Deque<Pendiente> pila = new ArrayDeque<>();
+            pila.push(new Pendiente(raiz, "", true));
+            while (!pila.isEmpty()) {
+                Pendiente p = pila.pop();
+                int nodo = p.nodo;
+                System.out.println(p.prefijo + (p.esUltimo ? "└── " : "├── ") + bloques.autor(bloques.fila(nodo)));
+                String nuevoPrefijo = p.prefijo + (p.esUltimo ? "    " : "│   ");
+                int izquierdo = bloques.izquierdo(nodo), derecho = bloques.derecho(nodo);
+                if (izquierdo != NULO) pila.push(new Pendiente(izquierdo, nuevoPrefijo, true));
+                if (derecho != NULO) pila.push(new Pendiente(derecho, nuevoPrefijo, izquierdo == NULO));
+            }
+        } finally {
+            Reference.reachabilityFence(this);
+        }
+    }
+
+    /** Nodo que falta imprimir junto con la sangría de su línea. */
+    private static final class Pendiente {
+        final int nodo;
+        final String prefijo;
+        final boolean esUltimo;
+
+        Pendiente(int nodo, String prefijo, boolean esUltimo) {
+            this.nodo = nodo;
+            this.prefijo = prefijo;
+            this.esUltimo = esUltimo;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package estructura;
+
+import modelo.Libro;
+import modelo.NodoBST;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterador perezoso sobre los libros del árbol en el orden de {@link Recorrido} indicado.
+ * Usa una pila explícita en lugar de recursión, por lo que la memoria extra es O(altura)
+ * y el recorrido puede abandonarse en cualquier momento sin haber visitado todo el árbol.
+ * Como los nodos son inmutables, el iterador recorre la versión del árbol vigente al
+ * crearlo aunque el catálogo se modifique mientras tanto.
+ */
+class IteradorBST implements Iterator<Libro> {
+
+    private final Recorrido orden;
+    private final Deque<NodoBST> pila;
+
+    // Solo para PostOrden: nodo por descender y último nodo entregado
+    private NodoBST actual;
+    private NodoBST ultimo;
+
+    IteradorBST(NodoBST raiz, Recorrido orden) {
+        this.orden = orden;
+        this.pila = new ArrayDeque<>();
+        switch (orden) {
+            case IN_ORDEN:   apilarIzquierdos(raiz);            break;
+            case PRE_ORDEN:  if (raiz != null) pila.push(raiz); break;
+            case POST_ORDEN: actual = raiz;                     break;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !pila.isEmpty() || actual != null;
+    }
+
+    @Override
+    public Libro next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        switch (orden) {
+            case IN_ORDEN: {
+                NodoBST nodo = pila.pop();
+                apilarIzquierdos(nodo.derecho);
+                return nodo.libro;
+            }
+            case PRE_ORDEN: {
+                NodoBST nodo = pila.pop();
+                if (nodo.derecho != null)   pila.push(nodo.derecho);
+                if (nodo.izquierdo != null) pila.push(nodo.izquierdo);
+                return nodo.libro;
+            }
+            default:
+                return siguientePostOrden().libro;
+        }
+    }
+
+    private void apilarIzquierdos(NodoBST nodo) {
+        for (; nodo != null; nodo = nodo.izquierdo) pila.push(nodo);
+    }
+
+    private NodoBST siguientePostOrden() {
+        while (true) {
+            if (actual != null) {
+                pila.push(actual);
+                actual = actual.izquierdo;
+            } else {
+                NodoBST tope = pila.peek();
+                if (tope.derecho != null && tope.derecho != ultimo) {
+                    actual = tope.derecho;
+                } else {
+                    pila.pop();
+                    ultimo = tope;
+                    return tope;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package estructura;
+
+/**
+ * Estrategia de balanceo que aplica el {@link ArbolBST} al insertar y eliminar.
+ */
+public enum ModoBalanceo {
+    /** BST clásico sin rebalanceo: la altura depende del orden de inserción. */
+    NINGUNO,
+    /** Árbol AVL: rotaciones tras cada cambio para mantener la altura en O(log n). */
+    AVL,
+    /**
+     * Árbol splay: cada búsqueda, inserción o eliminación sube el nodo usado a la raíz, así
+     * que los autores consultados con frecuencia quedan cerca de ella. El costo amortizado
+     * es O(log n) y menor cuanto más sesgadas sean las consultas, pero la altura no está
+     * acotada y las búsquedas también modifican el árbol.
+     */
+    SPLAY
+}
@@ -0,0 +1,13 @@
+package estructura;
+
+/**
+ * Orden en que se visitan los nodos del {@link ArbolBST}.
+ */
+public enum Recorrido {
+    /** izq → raíz → der: libros en orden alfabético por autor. */
+    IN_ORDEN,
+    /** raíz → izq → der: refleja la estructura jerárquica del árbol. */
+    PRE_ORDEN,
+    /** izq → der → raíz: cada nodo aparece después de sus hijos. */
+    POST_ORDEN
+}
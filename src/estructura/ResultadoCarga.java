@@ -0,0 +1,57 @@
+package estructura;
+
+import modelo.Libro;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una carga masiva en el {@link ArbolBST}: qué libros se aceptaron y cuáles
+ * se rechazaron, con el motivo de cada rechazo. Un mismo objeto repetido en el lote
+ * aparece una vez en cada lista si se aceptó la primera aparición.
+ */
+public class ResultadoCarga {
+
+    /** Libro rechazado junto con el motivo. */
+    public static class Rechazo {
+        private final Libro libro;
+        private final String motivo;
+
+        public Rechazo(Libro libro, String motivo) {
+            this.libro = libro;
+            this.motivo = motivo;
+        }
+
+        public Libro getLibro()   { return libro; }
+        public String getMotivo() { return motivo; }
+
+        @Override
+        public String toString() {
+            String autor = libro != null ? libro.getAutor() : "(nulo)";
+            return autor + ": " + motivo;
+        }
+    }
+
+    private final List<Libro> aceptados;
+    private final List<Rechazo> rechazos;
+
+    public ResultadoCarga() {
+        this.aceptados = new ArrayList<>();
+        this.rechazos = new ArrayList<>();
+    }
+
+    void aceptar(Libro libro)                 { aceptados.add(libro); }
+    void rechazar(Libro libro, String motivo) { rechazos.add(new Rechazo(libro, motivo)); }
+
+    public int getAceptados()                 { return aceptados.size(); }
+    /** Libros que quedaron en el árbol, cada uno una sola vez. */
+    public List<Libro> getLibrosAceptados()   { return Collections.unmodifiableList(aceptados); }
+    public int getTotalRechazados()           { return rechazos.size(); }
+    public List<Rechazo> getRechazos()        { return Collections.unmodifiableList(rechazos); }
+    public boolean sinRechazos()              { return rechazos.isEmpty(); }
+
+    @Override
+    public String toString() {
+        return aceptados.size() + " libro(s) cargado(s), " + rechazos.size() + " rechazado(s)";
+    }
+}
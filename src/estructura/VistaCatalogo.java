@@ -0,0 +1,71 @@
+package estructura;
+
+import modelo.Libro;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Versión fija de un {@link Catalogo}: qué libros hay y en qué orden no cambia aunque el
+ * catálogo se modifique después, y puede consultarse desde cualquier hilo sin cerrojos.
+ * El estado de préstamo de cada libro se lee en el momento de la consulta.
+ * <p>
+ * Una vista de {@link ArbolCompacto} impide reutilizar la memoria de los libros que el
+ * catálogo descarta mientras esté abierta; conviene cerrarla al terminar (si no, se
+ * libera cuando el recolector la descarta). Cerrar una {@link InstantaneaArbol} no hace nada.
+ */
+public interface VistaCatalogo extends Iterable<Libro>, AutoCloseable {
+
+    /** Libro del autor, o null si no está. */
+    Libro buscar(String autor);
+
+    /** Libros de varias claves de {@link modelo.ClaveAutor#de} ordenadas y sin repetir, en una pasada. */
+    Libro[] buscarClaves(String[] claves);
+
+    List<Libro> recorridoInOrden();
+    List<Libro> recorridoPreOrden();
+    List<Libro> recorridoPostOrden();
+
+    /** Iterador perezoso en el orden indicado, con memoria O(altura). */
+    Iterator<Libro> iterador(Recorrido orden);
+
+    @Override
+    default Iterator<Libro> iterator() {
+        return iterador(Recorrido.IN_ORDEN);
+    }
+
+    /** Vista {@link Stream} perezosa del recorrido. */
+    Stream<Libro> stream(Recorrido orden);
+
+    default Stream<Libro> streamInOrden()   { return stream(Recorrido.IN_ORDEN); }
+    default Stream<Libro> streamPreOrden()  { return stream(Recorrido.PRE_ORDEN); }
+    default Stream<Libro> streamPostOrden() { return stream(Recorrido.POST_ORDEN); }
+
+    Libro encontrarMinimo();
+    Libro encontrarMaximo();
+    int contarNodos();
+    int altura();
+    boolean isEmpty();
+
+    /** Libro en la posición indicada del orden alfabético (base 0). */
+    Libro seleccionar(int posicion);
+
+    /** Posición (base 0) del autor en el orden alfabético, o -1 si no existe. */
+    int posicion(String autor);
+
+    List<Libro> rangoInOrden(int desde, int cantidad);
+    List<Libro> buscarRangoAutores(String desde, String hasta);
+    List<Libro> buscarPorPrefijoAutor(String prefijo);
+
+    List<Libro> listarDisponibles();
+    List<Libro> listarPrestados();
+    List<Libro> buscarPorCategoria(String categoria);
+    Stream<Libro> streamPorCategoria(String categoria);
+
+    void imprimirArbol();
+
+    /** Permite al catálogo reutilizar la memoria que solo esta vista seguía usando. */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,99 @@
+package metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de valores enteros no negativos (latencias en nanosegundos, cantidad de
+ * comparaciones) con memoria fija y registro sin cerrojos.
+ * <p>
+ * Los valores menores que 16 tienen un casillero propio; los demás se agrupan por
+ * potencia de dos y cada potencia se divide en 8 casilleros, así que un percentil se
+ * informa con un error relativo menor que el 12,5 %. Registrar un valor es un cálculo de
+ * índice y un incremento atómico: sirve para medir en producción. Los percentiles se
+ * calculan sobre una lectura no atómica de los casilleros, suficiente para monitoreo.
+ */
+public final class Histograma {
+
+    private static final int EXACTOS = 16;
+    private static final int BITS_SUBDIVISION = 3;
+    private static final int SUBDIVISIONES = 1 << BITS_SUBDIVISION;
+    /** Primer exponente agrupado: 2^4 = {@link #EXACTOS}. */
+    private static final int PRIMER_EXPONENTE = 4;
+    private static final int CASILLEROS = EXACTOS + (63 - PRIMER_EXPONENTE) * SUBDIVISIONES;
+
+    private final AtomicLongArray casilleros = new AtomicLongArray(CASILLEROS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /** Registra un valor; los negativos se cuentan como 0. */
+    public void registrar(long valor) {
+        if (valor < 0) valor = 0;
+        casilleros.incrementAndGet(indice(valor));
+        cantidad.increment();
+        suma.add(valor);
+        long actual = maximo.get();
+        while (valor > actual && !maximo.compareAndSet(actual, valor)) actual = maximo.get();
+    }
+
+    static int indice(long valor) {
+        if (valor < EXACTOS) return (int) valor;
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int subdivision = (int) (valor >>> (exponente - BITS_SUBDIVISION)) & (SUBDIVISIONES - 1);
+        return EXACTOS + (exponente - PRIMER_EXPONENTE) * SUBDIVISIONES + subdivision;
+    }
+
+    /** Mayor valor que cae en el casillero {@code indice}. */
+    static long limiteSuperior(int indice) {
+        if (indice < EXACTOS) return indice;
+        int exponente = (indice - EXACTOS) / SUBDIVISIONES + PRIMER_EXPONENTE;
+        long subdivision = (indice - EXACTOS) % SUBDIVISIONES;
+        long ancho = 1L << (exponente - BITS_SUBDIVISION);
+        return (SUBDIVISIONES + subdivision) * ancho + ancho - 1;
+    }
+
+    // =========================================================
+    //  CONSULTAS
+    // =========================================================
+
+    public long getCantidad() { return cantidad.sum(); }
+    public long getSuma()     { return suma.sum(); }
+    public long getMaximo()   { return maximo.get(); }
+
+    public double getMedia() {
+        long n = cantidad.sum();
+        return n == 0 ? 0 : (double) suma.sum() / n;
+    }
+
+    /**
+     * Valor por debajo del cual queda la fracción {@code p} (entre 0 y 1) de los registros,
+     * redondeado al límite superior de su casillero; 0 si no hay registros.
+     */
+    public long percentil(double p) {
+        if (p < 0 || p > 1) throw new IllegalArgumentException("El percentil debe estar entre 0 y 1.");
+        long[] copia = new long[CASILLEROS];
+        long total = 0;
+        for (int i = 0; i < CASILLEROS; i++) {
+            copia[i] = casilleros.get(i);
+            total += copia[i];
+        }
+        if (total == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(p * total));
+        long acumulado = 0;
+        for (int i = 0; i < CASILLEROS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo.get());
+        }
+        return maximo.get();
+    }
+
+    /** Vuelve a cero; los registros concurrentes con el reinicio pueden conservarse o perderse. */
+    public void reiniciar() {
+        for (int i = 0; i < CASILLEROS; i++) casilleros.set(i, 0);
+        cantidad.reset();
+        suma.reset();
+        maximo.set(0);
+    }
+}
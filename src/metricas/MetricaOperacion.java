@@ -0,0 +1,45 @@
+package metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Contadores e histograma de latencias de una operación del catálogo. */
+public final class MetricaOperacion implements MetricaOperacionMBean {
+
+    private final String nombre;
+    private final LongAdder errores = new LongAdder();
+    private final Histograma latencias = new Histograma();
+
+    MetricaOperacion(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /** Registra una llamada que tardó {@code nanos} nanosegundos. */
+    public void registrar(long nanos, boolean exitosa) {
+        latencias.registrar(nanos);
+        if (!exitosa) errores.increment();
+    }
+
+    public Histograma getLatencias() { return latencias; }
+
+    @Override public String getNombre()                { return nombre; }
+    @Override public long getCantidad()                { return latencias.getCantidad(); }
+    @Override public long getErrores()                 { return errores.sum(); }
+    @Override public double getLatenciaMediaMicros()   { return latencias.getMedia() / 1000.0; }
+    @Override public double getLatenciaP50Micros()     { return latencias.percentil(0.50) / 1000.0; }
+    @Override public double getLatenciaP90Micros()     { return latencias.percentil(0.90) / 1000.0; }
+    @Override public double getLatenciaP99Micros()     { return latencias.percentil(0.99) / 1000.0; }
+    @Override public double getLatenciaMaximaMicros()  { return latencias.getMaximo() / 1000.0; }
+
+    @Override
+    public void reiniciar() {
+        latencias.reiniciar();
+        errores.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-22s %10d %8d %10.1f %10.1f %10.1f %10.1f %12.1f",
+            nombre, getCantidad(), getErrores(), getLatenciaMediaMicros(), getLatenciaP50Micros(),
+            getLatenciaP90Micros(), getLatenciaP99Micros(), getLatenciaMaximaMicros());
+    }
+}
@@ -0,0 +1,28 @@
+package metricas;
+
+/**
+ * Atributos JMX de una operación del catálogo. Las latencias se informan en
+ * microsegundos.
+ */
+public interface MetricaOperacionMBean {
+
+    String getNombre();
+
+    /** Cantidad de llamadas, incluidas las que terminaron con error. */
+    long getCantidad();
+
+    /** Llamadas que terminaron con una excepción (datos inválidos, libro prestado, etc.). */
+    long getErrores();
+
+    double getLatenciaMediaMicros();
+
+    double getLatenciaP50Micros();
+
+    double getLatenciaP90Micros();
+
+    double getLatenciaP99Micros();
+
+    double getLatenciaMaximaMicros();
+
+    void reiniciar();
+}
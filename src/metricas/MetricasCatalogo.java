@@ -0,0 +1,212 @@
+package metricas;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de un catálogo: cantidad de llamadas, errores y latencias de cada operación,
+ * comparaciones de claves por búsqueda y la altura actual del árbol comparada con la
+ * mínima posible (si se aleja mucho, el árbol se está degenerando).
+ * <p>
+ * Se publican como MBeans ({@link #registrarEnJmx}) para verlas con JConsole o
+ * VisualVM, y pueden volcarse como texto cada cierto tiempo ({@link #iniciarVolcado}).
+ * Registrar una llamada no toma cerrojos; ver {@link Histograma}.
+ */
+public final class MetricasCatalogo implements MetricasCatalogoMBean {
+
+    /** Operaciones medidas; el nombre es el del método del servicio. */
+    public enum Operacion {
+        REGISTRAR("registrarLibro"),
+        CARGA_MASIVA("cargarLibros"),
+        BUSCAR_AUTOR("buscarPorAutor"),
+        BUSCAR_ISBN("buscarPorIsbn"),
+        ELIMINAR("eliminarLibro"),
+        PRESTAMO("registrarPrestamo"),
+        DEVOLUCION("registrarDevolucion"),
+        LOTE("procesarLote"),
+        BUSCAR_SUBCADENA("buscarPorAutorParcial"),
+        BUSCAR_PREFIJO("buscarPorPrefijoAutor"),
+        BUSCAR_RANGO("buscarRangoAutores"),
+        BUSCAR_CATEGORIA("buscarPorCategoria"),
+        LISTADO("listados"),
+        PAGINA("listarPagina"),
+        VENCIMIENTOS("vencimientos"),
+        PRESTATARIO("librosDePrestatario"),
+        IMPORTAR("importarCatalogo"),
+        EXPORTAR("exportarCatalogo"),
+        PUNTO_CONTROL("puntoDeControl");
+
+        private final String nombre;
+
+        Operacion(String nombre) {
+            this.nombre = nombre;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+    }
+
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final MetricaOperacion[] operaciones;
+    private final Histograma comparaciones = new Histograma();
+    private final LongAdder aciertosCache = new LongAdder();
+    private final LongAdder fallosCache = new LongAdder();
+    private final IntSupplier altura;
+    private final IntSupplier totalLibros;
+
+    private final List<ObjectName> registrados = new ArrayList<>();
+    private ScheduledExecutorService volcado;
+
+    /** @param altura y {@code totalLibros} se consultan cada vez que se leen las métricas. */
+    public MetricasCatalogo(IntSupplier altura, IntSupplier totalLibros) {
+        this.altura = altura;
+        this.totalLibros = totalLibros;
+        Operacion[] todas = Operacion.values();
+        this.operaciones = new MetricaOperacion[todas.length];
+        for (Operacion operacion : todas) operaciones[operacion.ordinal()] = new MetricaOperacion(operacion.getNombre());
+    }
+
+    /** Registra una llamada a {@code operacion} que tardó {@code nanos} nanosegundos. */
+    public void registrar(Operacion operacion, long nanos, boolean exitosa) {
+        operaciones[operacion.ordinal()].registrar(nanos, exitosa);
+    }
+
+    public MetricaOperacion getOperacion(Operacion operacion) {
+        return operaciones[operacion.ordinal()];
+    }
+
+    /** Cuenta una consulta resuelta desde la caché de resultados ({@code acierto}) o recalculada. */
+    public void registrarCache(boolean acierto) {
+        (acierto ? aciertosCache : fallosCache).increment();
+    }
+
+    /** Histograma de comparaciones por búsqueda; el árbol registra en él cada búsqueda por autor. */
+    public Histograma getComparaciones() {
+        return comparaciones;
+    }
+
+    // =========================================================
+    //  ATRIBUTOS JMX
+    // =========================================================
+
+    @Override public int getTotalLibros()           { return totalLibros.getAsInt(); }
+    @Override public int getAlturaArbol()           { return altura.getAsInt(); }
+    @Override public double getComparacionesMedia() { return comparaciones.getMedia(); }
+    @Override public long getComparacionesP99()     { return comparaciones.percentil(0.99); }
+    @Override public long getComparacionesMaximo()  { return comparaciones.getMaximo(); }
+    @Override public long getCacheAciertos()        { return aciertosCache.sum(); }
+    @Override public long getCacheFallos()          { return fallosCache.sum(); }
+
+    @Override
+    public int getAlturaMinima() {
+        return 32 - Integer.numberOfLeadingZeros(totalLibros.getAsInt());
+    }
+
+    @Override
+    public void reiniciar() {
+        for (MetricaOperacion operacion : operaciones) operacion.reiniciar();
+        comparaciones.reiniciar();
+        aciertosCache.reset();
+        fallosCache.reset();
+    }
+
+    @Override
+    public String resumen() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Métricas del catálogo (%s)%n", LocalDateTime.now().format(FORMATO_HORA)));
+        sb.append(String.format("  Libros: %d · altura: %d (mínima %d) · comparaciones por búsqueda: media %.1f, p99 %d, máx %d%n",
+            getTotalLibros(), getAlturaArbol(), getAlturaMinima(),
+            getComparacionesMedia(), getComparacionesP99(), getComparacionesMaximo()));
+        long aciertos = getCacheAciertos(), consultas = aciertos + getCacheFallos();
+        sb.append(String.format("  Caché de listados: %d acierto(s) de %d consulta(s) (%.1f %%)%n",
+            aciertos, consultas, consultas == 0 ? 0.0 : 100.0 * aciertos / consultas));
+        sb.append(String.format("  %-22s %10s %8s %10s %10s %10s %10s %12s%n",
+            "operación", "llamadas", "errores", "media µs", "p50 µs", "p90 µs", "p99 µs", "máx µs"));
+        for (MetricaOperacion operacion : operaciones) {
+            if (operacion.getCantidad() > 0) sb.append("  ").append(operacion).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    // =========================================================
+    //  PUBLICACIÓN
+    // =========================================================
+
+    /**
+     * Registra las métricas en el servidor de MBeans de la JVM bajo
+     * {@code biblioteca:type=Catalogo,name=<nombre>} y una entrada por operación bajo
+     * {@code biblioteca:type=Operacion,catalogo=<nombre>,name=<operación>}.
+     * @throws IllegalStateException si ya hay un catálogo registrado con ese nombre.
+     */
+    public synchronized void registrarEnJmx(String nombre) {
+        if (!registrados.isEmpty()) throw new IllegalStateException("Las métricas ya están registradas en JMX.");
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            String catalogo = ObjectName.quote(nombre);
+            registrar(servidor, this, new ObjectName("biblioteca:type=Catalogo,name=" + catalogo));
+            for (MetricaOperacion operacion : operaciones) {
+                registrar(servidor, operacion, new ObjectName(
+                    "biblioteca:type=Operacion,catalogo=" + catalogo + ",name=" + operacion.getNombre()));
+            }
+        } catch (JMException e) {
+            quitarDeJmx();
+            throw new IllegalStateException("No se pudieron registrar las métricas '" + nombre + "' en JMX.", e);
+        }
+    }
+
+    private void registrar(MBeanServer servidor, Object mbean, ObjectName nombre) throws JMException {
+        servidor.registerMBean(mbean, nombre);
+        registrados.add(nombre);
+    }
+
+    /** Quita de JMX lo que haya registrado {@link #registrarEnJmx}. */
+    public synchronized void quitarDeJmx() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName nombre : registrados) {
+            try {
+                servidor.unregisterMBean(nombre);
+            } catch (JMException e) {
+                // Ya no estaba registrado: no hay nada que quitar
+            }
+        }
+        registrados.clear();
+    }
+
+    /**
+     * Envía {@link #resumen()} a {@code destino} cada {@code segundos} segundos, desde un
+     * hilo de fondo que no impide que la JVM termine.
+     */
+    public synchronized void iniciarVolcado(long segundos, Consumer<String> destino) {
+        if (segundos < 1) throw new IllegalArgumentException("El intervalo del volcado debe ser de al menos 1 segundo.");
+        if (volcado != null) throw new IllegalStateException("El volcado periódico ya está iniciado.");
+        volcado = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "volcado-metricas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        volcado.scheduleAtFixedRate(() -> destino.accept(resumen()), segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    /** Detiene el volcado periódico y quita las métricas de JMX. */
+    public synchronized void detener() {
+        if (volcado != null) {
+            volcado.shutdownNow();
+            volcado = null;
+        }
+        quitarDeJmx();
+    }
+}
@@ -0,0 +1,30 @@
+package metricas;
+
+/** Atributos JMX del árbol del catálogo: tamaño, altura y costo de las búsquedas. */
+public interface MetricasCatalogoMBean {
+
+    int getTotalLibros();
+
+    int getAlturaArbol();
+
+    /** Menor altura posible para la cantidad actual de libros (árbol perfectamente balanceado). */
+    int getAlturaMinima();
+
+    /** Comparaciones de claves por búsqueda de autor: media, percentil 99 y máximo. */
+    double getComparacionesMedia();
+
+    long getComparacionesP99();
+
+    long getComparacionesMaximo();
+
+    /** Listados y filtros resueltos desde la caché de resultados, y los que hubo que recalcular. */
+    long getCacheAciertos();
+
+    long getCacheFallos();
+
+    /** Informe de texto con todas las operaciones, el mismo del volcado periódico. */
+    String resumen();
+
+    /** Vuelve a cero todos los contadores e histogramas. */
+    void reiniciar();
+}
@@ -0,0 +1,128 @@
+package modelo;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Claves de ordenamiento de autores para el catálogo, con reglas de intercalación del
+ * español: sin distinguir mayúsculas, las vocales acentuadas se ordenan junto a su
+ * vocal base ("Cortázar" junto a "Cortazar") y la "ñ" va después de la "n".
+ * <p>
+ * La clave se calcula una sola vez por libro al insertarlo y se guarda en el nodo; las
+ * búsquedas solo calculan la clave de la consulta y luego comparan con
+ * {@link String#compareTo}, sin plegar mayúsculas ni crear cadenas en cada nivel.
+ * <p>
+ * Formato: {@code primaria + '\0' + secundaria}. La parte primaria va en minúsculas y
+ * sin acentos, y decide el orden. La secundaria (el nombre en minúsculas) solo desempata,
+ * de modo que "García" y "Garcia" siguen siendo autores distintos.
+ */
+public final class ClaveAutor {
+
+    /** Separa la parte primaria de la secundaria; es menor que cualquier carácter imprimible. */
+    public static final char SEPARADOR = '\0';
+
+    /** Sustituye a la tilde de la "ñ": ordena después de cualquier continuación de "n" y antes de la "o". */
+    private static final char MARCA_ENIE = '\uffff';
+
+    private ClaveAutor() {
+    }
+
+    /** Clave completa de ordenamiento para un nombre de autor. */
+    public static String de(String autor) {
+        String secundaria = autor.trim().toLowerCase(Locale.ROOT);
+        return primaria(secundaria) + SEPARADOR + secundaria;
+    }
+
+    /**
+     * Parte primaria de la clave: minúsculas, sin acentos y con la "ñ" como letra propia.
+     * Sirve también para comparar prefijos y subcadenas sin distinguir acentos.
+     */
+    public static String primaria(String texto) {
+        String minusculas = texto.trim().toLowerCase(Locale.ROOT);
+        if (esAscii(minusculas)) return minusculas;   // sin acentos que quitar
+        String descompuesto = Normalizer.normalize(minusculas, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            } else if (c == '\u0303' && i > 0 && descompuesto.charAt(i - 1) == 'n') {
+                sb.append(MARCA_ENIE);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Forma de un texto para buscar subcadenas: minúsculas y sin acentos como
+     * {@link #primaria}, pero sin recortar espacios y con la "ñ" como un solo carácter
+     * distinto de la "n", de modo que "un" no aparece dentro de "Muñoz".
+     */
+    public static String paraSubcadena(String texto) {
+        String minusculas = texto.toLowerCase(Locale.ROOT);
+        if (esAscii(minusculas)) return minusculas;
+        String descompuesto = Normalizer.normalize(minusculas, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            } else if (c == '\u0303' && sb.length() > 0 && sb.charAt(sb.length() - 1) == 'n') {
+                sb.setCharAt(sb.length() - 1, '\u00f1');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Indica si la parte primaria de una clave de {@link #de} contiene una subcadena ya
+     * normalizada con {@link #paraSubcadena}, sin crear cadenas: la "ñ" de la subcadena
+     * coincide con la "n" marcada de la clave, y una "n" final no abarca a una "ñ".
+     */
+    public static boolean contieneSubcadena(String clave, String subcadena) {
+        int fin = clave.indexOf(SEPARADOR);
+        for (int i = 0; i + subcadena.length() <= fin; i++) {
+            if (coincideEn(clave, i, fin, subcadena)) return true;
+        }
+        return false;
+    }
+
+    private static boolean coincideEn(String clave, int i, int fin, String subcadena) {
+        for (int j = 0; j < subcadena.length(); j++) {
+            char c = subcadena.charAt(j);
+            if (i >= fin) return false;
+            if (c == '\u00f1') {
+                if (clave.charAt(i) != 'n' || i + 1 >= fin || clave.charAt(i + 1) != MARCA_ENIE) return false;
+                i += 2;
+            } else {
+                if (clave.charAt(i) != c) return false;
+                i++;
+            }
+        }
+        return i >= fin || clave.charAt(i) != MARCA_ENIE;
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compara el inicio de una clave con un prefijo ya normalizado con {@link #primaria},
+     * sin crear subcadenas: 0 si la clave empieza por el prefijo, negativo si va antes y
+     * positivo si va después. Una "n" final del prefijo no abarca a la "ñ", que es otra letra.
+     */
+    public static int compararPrefijo(String clave, String prefijo) {
+        int n = Math.min(clave.length(), prefijo.length());
+        for (int i = 0; i < n; i++) {
+            char c1 = clave.charAt(i);
+            char c2 = prefijo.charAt(i);
+            if (c1 != c2) return c1 - c2;
+        }
+        if (clave.length() < prefijo.length()) return -1;
+        // "n" + MARCA_ENIE ordena después de cualquier otra continuación de la "n"
+        return clave.length() > n && clave.charAt(n) == MARCA_ENIE ? 1 : 0;
+    }
+}
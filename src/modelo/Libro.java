@@ -4,29 +4,38 @@ import java.time.LocalDate;
 
 /**
  * Clase que representa un libro en el catálogo de la biblioteca.
+ * <p>
+ * La editorial y la categoría se repiten entre muchos libros: al entrar a un catálogo se
+ * reemplazan por los símbolos compartidos de su {@link TablaSimbolos}, así que cada texto
+ * distinto existe una sola vez en memoria. Ambas se guardan sin espacios al inicio ni al
+ * final, así que los conteos y los filtros por categoría usan el mismo valor. Cambiarlas
+ * (como cambiar el autor o el ISBN) solo corresponde mientras el libro no está en un
+ * catálogo.
+ * <p>
+ * El estado de préstamo (disponibilidad, prestatario y fecha) es un
+ * {@link EstadoPrestamo} inmutable guardado en un campo {@code volatile}: un préstamo o
+ * una devolución lo reemplaza entero, así que las consultas que leen el libro sin cerrojo
+ * ven siempre un estado completo y publicado. Para leer varios de esos datos juntos
+ * conviene tomar una sola vez {@link #getEstadoPrestamo()}.
  */
 public class Libro {
     private String isbn;
     private String titulo;
     private String autor;
-    private String editorial;
+    private TablaSimbolos.Simbolo editorial;
     private int anioPublicacion;
-    private String categoria;
-    private boolean disponible;
-    private String prestatario;
-    private LocalDate fechaPrestamo;
+    private TablaSimbolos.Simbolo categoria;
+    private volatile EstadoPrestamo estadoPrestamo;
 
     public Libro(String isbn, String titulo, String autor, String editorial,
                  int anioPublicacion, String categoria) {
         this.isbn = isbn;
         this.titulo = titulo;
         this.autor = autor;
-        this.editorial = editorial;
+        this.editorial = TablaSimbolos.suelto(editorial);
         this.anioPublicacion = anioPublicacion;
-        this.categoria = categoria;
-        this.disponible = true;
-        this.prestatario = null;
-        this.fechaPrestamo = null;
+        this.categoria = TablaSimbolos.suelto(categoria);
+        this.estadoPrestamo = EstadoPrestamo.DISPONIBLE;
     }
 
     // Getters y Setters
@@ -39,48 +48,126 @@ public class Libro {
     public String getAutor() { return autor; }
     public void setAutor(String autor) { this.autor = autor; }
 
-    public String getEditorial() { return editorial; }
-    public void setEditorial(String editorial) { this.editorial = editorial; }
+    public String getEditorial() { return texto(editorial); }
+    public void setEditorial(String editorial) { this.editorial = TablaSimbolos.suelto(editorial); }
 
     public int getAnioPublicacion() { return anioPublicacion; }
     public void setAnioPublicacion(int anioPublicacion) { this.anioPublicacion = anioPublicacion; }
 
-    public String getCategoria() { return categoria; }
-    public void setCategoria(String categoria) { this.categoria = categoria; }
+    public String getCategoria() { return texto(categoria); }
+    public void setCategoria(String categoria) { this.categoria = TablaSimbolos.suelto(categoria); }
+
+    /**
+     * Indica si la categoría es la de {@code consulta} (ver
+     * {@link TablaSimbolos#consultarCategoria}), es decir, si es igual sin distinguir mayúsculas.
+     */
+    public boolean esDeCategoria(TablaSimbolos.Consulta consulta) {
+        return consulta.coincide(categoria);
+    }
 
-    public boolean isDisponible() { return disponible; }
-    public void setDisponible(boolean disponible) { this.disponible = disponible; }
+    private static String texto(TablaSimbolos.Simbolo simbolo) {
+        return simbolo == null ? null : simbolo.texto;
+    }
 
-    public String getPrestatario() { return prestatario; }
-    public void setPrestatario(String prestatario) { this.prestatario = prestatario; }
+    TablaSimbolos.Simbolo simboloEditorial() { return editorial; }
+    TablaSimbolos.Simbolo simboloCategoria() { return categoria; }
 
-    public LocalDate getFechaPrestamo() { return fechaPrestamo; }
-    public void setFechaPrestamo(LocalDate fechaPrestamo) { this.fechaPrestamo = fechaPrestamo; }
+    void usarSimbolos(TablaSimbolos.Simbolo editorial, TablaSimbolos.Simbolo categoria) {
+        this.editorial = editorial;
+        this.categoria = categoria;
+    }
+
+    // =========================================================
+    //  ESTADO DE PRÉSTAMO
+    // =========================================================
+
+    /** Estado de préstamo actual, completo y coherente. */
+    public EstadoPrestamo getEstadoPrestamo() { return estadoPrestamo; }
+
+    public boolean isDisponible() { return estadoPrestamo.isDisponible(); }
+    public String getPrestatario() { return estadoPrestamo.getPrestatario(); }
+    public LocalDate getFechaPrestamo() { return estadoPrestamo.getFechaPrestamo(); }
+
+    /** Marca el libro como prestado, con prestatario y fecha, en un solo cambio. */
+    public void prestar(String prestatario, LocalDate fecha) {
+        this.estadoPrestamo = new EstadoPrestamo(false, prestatario, fecha);
+    }
+
+    /** Marca el libro como disponible, sin prestatario ni fecha, en un solo cambio. */
+    public void devolver() {
+        this.estadoPrestamo = EstadoPrestamo.DISPONIBLE;
+    }
+
+    /** Toma el estado de otra copia del libro, p. ej. la guardada en un catálogo compacto. */
+    public void setEstadoPrestamo(EstadoPrestamo estado) {
+        if (estado == null) throw new IllegalArgumentException("El estado de préstamo no puede ser nulo.");
+        this.estadoPrestamo = estado;
+    }
+
+    // Cada uno reemplaza el estado completo; para un préstamo o una devolución usar
+    // prestar/devolver, que no dejan ver estados intermedios.
+    public void setDisponible(boolean disponible) {
+        EstadoPrestamo e = estadoPrestamo;
+        this.estadoPrestamo = new EstadoPrestamo(disponible, e.getPrestatario(), e.getFechaPrestamo());
+    }
+
+    public void setPrestatario(String prestatario) {
+        EstadoPrestamo e = estadoPrestamo;
+        this.estadoPrestamo = new EstadoPrestamo(e.isDisponible(), prestatario, e.getFechaPrestamo());
+    }
+
+    public void setFechaPrestamo(LocalDate fechaPrestamo) {
+        EstadoPrestamo e = estadoPrestamo;
+        this.estadoPrestamo = new EstadoPrestamo(e.isDisponible(), e.getPrestatario(), fechaPrestamo);
+    }
+
+    /** Disponibilidad, prestatario y fecha de préstamo de un libro en un momento dado. */
+    public static final class EstadoPrestamo {
+        static final EstadoPrestamo DISPONIBLE = new EstadoPrestamo(true, null, null);
+
+        private final boolean disponible;
+        private final String prestatario;
+        private final LocalDate fechaPrestamo;
+
+        EstadoPrestamo(boolean disponible, String prestatario, LocalDate fechaPrestamo) {
+            this.disponible = disponible;
+            this.prestatario = prestatario;
+            this.fechaPrestamo = fechaPrestamo;
+        }
+
+        public boolean isDisponible() { return disponible; }
+        public String getPrestatario() { return prestatario; }
+        public LocalDate getFechaPrestamo() { return fechaPrestamo; }
+    }
 
     @Override
     public String toString() {
+        EstadoPrestamo estado = estadoPrestamo;
+        boolean disponible = estado.isDisponible();
+        String prestatario = estado.getPrestatario();
         StringBuilder sb = new StringBuilder();
         sb.append("╔══════════════════════════════════════════════════╗\n");
         sb.append(String.format("  ISBN        : %s%n", isbn));
         sb.append(String.format("  Título      : %s%n", titulo));
         sb.append(String.format("  Autor       : %s%n", autor));
-        sb.append(String.format("  Editorial   : %s%n", editorial));
+        sb.append(String.format("  Editorial   : %s%n", getEditorial()));
         sb.append(String.format("  Año         : %d%n", anioPublicacion));
-        sb.append(String.format("  Categoría   : %s%n", categoria));
+        sb.append(String.format("  Categoría   : %s%n", getCategoria()));
         sb.append(String.format("  Estado      : %s%n", disponible ? "✅ Disponible" : "❌ Prestado"));
         if (!disponible && prestatario != null) {
             sb.append(String.format("  Prestatario : %s%n", prestatario));
-            sb.append(String.format("  Fecha Préstamo: %s%n", fechaPrestamo));
+            sb.append(String.format("  Fecha Préstamo: %s%n", estado.getFechaPrestamo()));
         }
         sb.append("╚══════════════════════════════════════════════════╝");
         return sb.toString();
     }
 
     public String toStringCorto() {
+        EstadoPrestamo estado = estadoPrestamo;
         return String.format("%-30s | %-20s | %-15s | %s",
             titulo.length() > 28 ? titulo.substring(0, 28) + ".." : titulo,
             autor.length() > 18 ? autor.substring(0, 18) + ".." : autor,
-            categoria,
-            disponible ? "Disponible" : "Prestado - " + prestatario);
+            getCategoria(),
+            estado.isDisponible() ? "Disponible" : "Prestado - " + estado.getPrestatario());
     }
 }
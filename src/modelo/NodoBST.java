@@ -3,15 +3,44 @@ package modelo;
 /**
  * Clase que representa un nodo del Árbol Binario de Búsqueda (BST).
  * Cada nodo almacena un libro y referencias a sus hijos izquierdo y derecho.
+ * Los nodos son inmutables: insertar, eliminar o rotar crea copias de los nodos del
+ * camino afectado (path copying), así que un árbol ya publicado nunca cambia.
  */
-public class NodoBST {
-    public Libro libro;
-    public NodoBST izquierdo;
-    public NodoBST derecho;
+public final class NodoBST {
+    public final Libro libro;
+    /** Clave de ordenamiento del autor, calculada una sola vez (ver {@link ClaveAutor}). */
+    public final String clave;
+    public final NodoBST izquierdo;
+    public final NodoBST derecho;
+    /** Altura del subárbol con raíz en este nodo (una hoja tiene altura 1). */
+    public final int altura;
+    /** Cantidad de nodos del subárbol con raíz en este nodo (incluido él mismo). */
+    public final int tamanio;
 
     public NodoBST(Libro libro) {
+        this(libro, ClaveAutor.de(libro.getAutor()), null, null);
+    }
+
+    public NodoBST(Libro libro, String clave, NodoBST izquierdo, NodoBST derecho) {
         this.libro = libro;
-        this.izquierdo = null;
-        this.derecho = null;
+        this.clave = clave;
+        this.izquierdo = izquierdo;
+        this.derecho = derecho;
+        this.altura = 1 + Math.max(alturaDe(izquierdo), alturaDe(derecho));
+        this.tamanio = 1 + tamanioDe(izquierdo) + tamanioDe(derecho);
+    }
+
+    /** Copia de este nodo con otros hijos; si los hijos no cambian retorna el mismo nodo. */
+    public NodoBST conHijos(NodoBST izquierdo, NodoBST derecho) {
+        if (izquierdo == this.izquierdo && derecho == this.derecho) return this;
+        return new NodoBST(libro, clave, izquierdo, derecho);
+    }
+
+    public static int alturaDe(NodoBST nodo) {
+        return nodo == null ? 0 : nodo.altura;
+    }
+
+    public static int tamanioDe(NodoBST nodo) {
+        return nodo == null ? 0 : nodo.tamanio;
     }
 }
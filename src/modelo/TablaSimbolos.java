@@ -0,0 +1,196 @@
+package modelo;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tabla de símbolos de un catálogo para los campos de texto que se repiten mucho entre
+ * libros (editorial, categoría). Al registrar un libro, cada texto se reemplaza por un
+ * {@link Simbolo} compartido con los demás libros del catálogo que tienen el mismo texto,
+ * así que cada texto distinto existe una sola vez en memoria.
+ * <p>
+ * Cada símbolo pertenece además a un <i>grupo</i> que reúne las variantes que solo
+ * difieren en mayúsculas ("Novela", "novela", "NOVELA") y cuenta sus libros. Un filtro
+ * sin distinguir mayúsculas busca el grupo una vez ({@link #consultarCategoria}) y en
+ * cada libro compara referencias en vez de llamar a {@link String#equalsIgnoreCase}.
+ * <p>
+ * La tabla pertenece a un catálogo y cuenta cuántos libros usan cada símbolo: cuando sale
+ * el último, el símbolo y su grupo dejan la tabla. Las modificaciones suponen un único
+ * escritor, el del catálogo; las consultas leen mapas concurrentes y no toman cerrojos.
+ */
+public final class TablaSimbolos {
+
+    private final Columna editoriales = new Columna();
+    private final Columna categorias = new Columna();
+
+    /**
+     * Reemplaza la editorial y la categoría de un libro que entra al catálogo por los
+     * símbolos compartidos y lo suma a sus conteos.
+     */
+    public void registrar(Libro libro) {
+        libro.usarSimbolos(editoriales.registrar(libro.simboloEditorial()),
+                           categorias.registrar(libro.simboloCategoria()));
+    }
+
+    /**
+     * Descuenta un libro que sale del catálogo. No modifica el libro, que puede seguir
+     * visible en instantáneas anteriores.
+     */
+    public void liberar(Libro libro) {
+        editoriales.liberar(libro.simboloEditorial());
+        categorias.liberar(libro.simboloCategoria());
+    }
+
+    /**
+     * Símbolo compartido de una editorial, sumado a su conteo; para catálogos que guardan
+     * los campos por separado en lugar de objetos {@link Libro}. Null para un texto nulo.
+     */
+    public Simbolo registrarEditorial(String editorial) {
+        return editoriales.registrar(suelto(editorial));
+    }
+
+    /** Como {@link #registrarEditorial}, para una categoría. */
+    public Simbolo registrarCategoria(String categoria) {
+        return categorias.registrar(suelto(categoria));
+    }
+
+    /** Descuenta un símbolo de {@link #registrarEditorial}. */
+    public void liberarEditorial(Simbolo editorial) {
+        editoriales.liberar(editorial);
+    }
+
+    /** Descuenta un símbolo de {@link #registrarCategoria}. */
+    public void liberarCategoria(Simbolo categoria) {
+        categorias.liberar(categoria);
+    }
+
+    /** Filtro por categoría sin distinguir mayúsculas, para {@link Libro#esDeCategoria}. */
+    public Consulta consultarCategoria(String categoria) {
+        String forma = forma(categoria.trim());
+        return new Consulta(categorias.porForma.get(forma), forma);
+    }
+
+    /** Cantidad de libros de una categoría, sin distinguir mayúsculas. */
+    public int contarCategoria(String categoria) {
+        if (categoria == null) return 0;
+        Grupo grupo = categorias.porForma.get(forma(categoria.trim()));
+        return grupo == null ? 0 : grupo.usos;
+    }
+
+    /** Conteo de libros por categoría, ordenado alfabéticamente. */
+    public Map<String, Integer> conteoCategorias() {
+        Map<String, Integer> conteo = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Grupo grupo : categorias.porForma.values()) {
+            if (grupo.usos > 0) conteo.put(grupo.nombre, grupo.usos);
+        }
+        return conteo;
+    }
+
+    /** Símbolo propio de un libro fuera de un catálogo; null para un texto nulo. */
+    static Simbolo suelto(String texto) {
+        return texto == null ? null : new Simbolo(texto.trim(), null);
+    }
+
+    private static String forma(String texto) {
+        return texto.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    // =========================================================
+    //  SÍMBOLOS Y GRUPOS
+    // =========================================================
+
+    /** Texto guardado una sola vez por catálogo; {@code grupo} es null fuera de un catálogo. */
+    public static final class Simbolo {
+        final String texto;
+        final Grupo grupo;
+        /** Libros del catálogo que lo usan; solo lo cambia el escritor. */
+        int usos;
+
+        Simbolo(String texto, Grupo grupo) {
+            this.texto = texto;
+            this.grupo = grupo;
+        }
+
+        public String getTexto() {
+            return texto;
+        }
+    }
+
+    /** Variantes de un texto que solo difieren en mayúsculas. */
+    static final class Grupo {
+        /** Primera variante registrada, la que se muestra en los conteos. */
+        final String nombre;
+        final String forma;
+        int usos;
+        /**
+         * El grupo dejó la tabla. Se marca antes de quitarlo, así que quien ya no lo
+         * encuentre en la tabla ve la marca en los libros que aún lo tienen.
+         */
+        volatile boolean liberado;
+
+        Grupo(String nombre, String forma) {
+            this.nombre = nombre;
+            this.forma = forma;
+        }
+    }
+
+    /** Símbolos de un campo, por texto exacto y por grupo. */
+    private static final class Columna {
+        final Map<String, Simbolo> porTexto = new ConcurrentHashMap<>();
+        final Map<String, Grupo> porForma = new ConcurrentHashMap<>();
+
+        Simbolo registrar(Simbolo propio) {
+            if (propio == null) return null;
+            Simbolo simbolo = porTexto.get(propio.texto);
+            if (simbolo == null) {
+                String forma = forma(propio.texto);
+                Grupo grupo = porForma.get(forma);
+                if (grupo == null) {
+                    grupo = new Grupo(propio.texto, forma);
+                    porForma.put(forma, grupo);
+                }
+                simbolo = new Simbolo(propio.texto, grupo);
+                porTexto.put(simbolo.texto, simbolo);
+            }
+            simbolo.usos++;
+            simbolo.grupo.usos++;
+            return simbolo;
+        }
+
+        void liberar(Simbolo simbolo) {
+            // Un símbolo suelto o ya liberado no se contó en esta tabla
+            if (simbolo == null || porTexto.get(simbolo.texto) != simbolo) return;
+            if (--simbolo.usos == 0) porTexto.remove(simbolo.texto);
+            Grupo grupo = simbolo.grupo;
+            if (--grupo.usos == 0) {
+                grupo.liberado = true;
+                porForma.remove(grupo.forma);
+            }
+        }
+    }
+
+    /**
+     * Filtro por un texto sin distinguir mayúsculas. Con el grupo vigente de la tabla basta
+     * comparar referencias; los libros de una instantánea anterior pueden tener un grupo
+     * que ya dejó la tabla, y para esos se compara la forma del texto.
+     */
+    public static final class Consulta {
+        /** Grupo vigente del texto, o null si ningún libro del catálogo lo tiene. */
+        private final Grupo grupo;
+        private final String forma;
+
+        Consulta(Grupo grupo, String forma) {
+            this.grupo = grupo;
+            this.forma = forma;
+        }
+
+        public boolean coincide(Simbolo simbolo) {
+            if (simbolo == null) return false;
+            Grupo g = simbolo.grupo;
+            if (g == null) return forma(simbolo.texto).equals(forma);
+            return g == grupo || g.liberado && g.forma.equals(forma);
+        }
+    }
+}
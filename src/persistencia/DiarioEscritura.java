@@ -0,0 +1,328 @@
+package persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de escritura anticipada (write-ahead log) del catálogo: archivo de solo
+ * agregado donde cada operación aplicada queda registrada antes de confirmarse al
+ * usuario, para repetirla al reiniciar sobre el último punto de control.
+ * <p>
+ * Cada registro tiene el formato {@code [longitud:int][crc32:int][secuencia:long][operación]}.
+ * El CRC cubre la secuencia y la operación; al leer, un registro incompleto o con CRC
+ * inválido marca el final del diario (una escritura cortada por una caída) y se descarta
+ * junto con todo lo que le sigue.
+ * <p>
+ * {@link #registrar} solo serializa la operación en un búfer en memoria y le asigna un
+ * número de secuencia; un hilo escritor vuelca al archivo todo lo acumulado en una sola
+ * escritura y, según la {@link PoliticaSincronizacion}, con un solo {@code fsync}
+ * (group commit). {@link #esperarDurable} bloquea hasta que la secuencia indicada esté
+ * guardada, y debe llamarse fuera de los cerrojos del catálogo para que otras operaciones
+ * puedan sumarse al mismo lote mientras tanto.
+ */
+public class DiarioEscritura implements Closeable {
+
+    /** Tamaño máximo aceptado para un registro; uno mayor se considera basura. */
+    private static final int MAXIMO_REGISTRO = 1 << 20;
+    private static final int CABECERA = 8;
+    /** Un búfer que creció más que esto (por una carga masiva) se descarta al vaciarse. */
+    private static final int MAXIMO_BUFER = 4 << 20;
+
+    private final FileChannel canal;
+    private final PoliticaSincronizacion politica;
+    private final long intervaloNanos;
+    private final Thread escritor;
+
+    // Estado compartido con el hilo escritor, protegido por "this"
+    private Bufer pendiente = new Bufer();
+    private Bufer enEscritura = new Bufer();
+    private long ultimaSecuencia;
+    private long secuenciaEscrita;
+    private long secuenciaDurable;
+    private IOException falla;
+    private boolean cerrado;
+
+    /**
+     * Abre (o crea) el diario. La secuencia continúa desde {@code secuenciaInicial}, que
+     * debe ser la última secuencia leída al reproducirlo o la del último punto de control.
+     * @param intervaloMillis con {@link PoliticaSincronizacion#PERIODICA}, tiempo máximo
+     *                        entre dos {@code fsync}; se ignora con las demás políticas.
+     */
+    public DiarioEscritura(Path archivo, PoliticaSincronizacion politica, long intervaloMillis,
+                           long secuenciaInicial) throws IOException {
+        if (politica == PoliticaSincronizacion.PERIODICA && intervaloMillis <= 0)
+            throw new IllegalArgumentException("El intervalo de sincronización debe ser mayor a 0.");
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                                      StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.politica = politica;
+        this.intervaloNanos = intervaloMillis * 1_000_000L;
+        this.ultimaSecuencia = secuenciaInicial;
+        this.secuenciaEscrita = secuenciaInicial;
+        this.secuenciaDurable = secuenciaInicial;
+        this.escritor = new Thread(this::volcar, "diario-escritura");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    // =========================================================
+    //  REGISTRO
+    // =========================================================
+
+    /**
+     * Agrega la operación al lote en curso y retorna su número de secuencia. No hace E/S:
+     * la operación queda guardada recién cuando {@link #esperarDurable} retorna.
+     * @throws IllegalStateException si el diario está cerrado o falló una escritura anterior.
+     */
+    public synchronized long registrar(OperacionDiario operacion) {
+        verificar();
+        long secuencia = ultimaSecuencia + 1;
+        try {
+            pendiente.agregarRegistro(secuencia, operacion);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo serializar la operación " + operacion + ".", e);
+        }
+        ultimaSecuencia = secuencia;
+        notifyAll();
+        return secuencia;
+    }
+
+    /**
+     * Espera hasta que la secuencia indicada esté guardada según la política: sincronizada
+     * al disco con {@link PoliticaSincronizacion#POR_LOTE}, entregada al sistema operativo
+     * con {@link PoliticaSincronizacion#PERIODICA}, y sin esperar con
+     * {@link PoliticaSincronizacion#SIN_ESPERA}.
+     * @throws IllegalStateException si la escritura falló.
+     */
+    public synchronized void esperarDurable(long secuencia) {
+        if (politica == PoliticaSincronizacion.SIN_ESPERA) return;
+        boolean interrumpido = false;
+        while ((politica == PoliticaSincronizacion.POR_LOTE ? secuenciaDurable : secuenciaEscrita) < secuencia) {
+            if (falla != null) throw new IllegalStateException("El diario de escritura dejó de funcionar.", falla);
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) Thread.currentThread().interrupt();
+    }
+
+    /** Falla si el diario ya no acepta operaciones; permite rechazarlas antes de aplicarlas. */
+    public synchronized void verificar() {
+        if (falla != null) throw new IllegalStateException("El diario de escritura dejó de funcionar.", falla);
+        if (cerrado) throw new IllegalStateException("El diario de escritura está cerrado.");
+    }
+
+    public synchronized long getUltimaSecuencia() {
+        return ultimaSecuencia;
+    }
+
+    /** Tamaño del archivo más lo pendiente de escribir, para decidir cuándo hacer un punto de control. */
+    public synchronized long tamanio() throws IOException {
+        return canal.size() + pendiente.size() + enEscritura.size();
+    }
+
+    /**
+     * Vacía el diario después de un punto de control que ya contiene todas sus operaciones.
+     * Quien llama debe impedir registros nuevos mientras tanto (cerrojo del catálogo).
+     */
+    public synchronized void reiniciar() throws IOException {
+        esperarEscrito(ultimaSecuencia);
+        canal.truncate(0);
+        canal.force(true);
+        secuenciaDurable = ultimaSecuencia;
+        notifyAll();
+    }
+
+    /** Escribe y sincroniza lo pendiente y detiene el hilo escritor. */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (cerrado) return;
+            cerrado = true;
+            notifyAll();
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (falla == null) canal.force(true);
+        } finally {
+            canal.close();
+        }
+        if (falla != null) throw falla;
+    }
+
+    // =========================================================
+    //  HILO ESCRITOR (GROUP COMMIT)
+    // =========================================================
+
+    private void volcar() {
+        long ultimoFsync = System.nanoTime();
+        while (true) {
+            long hasta;
+            boolean sincronizar;
+            synchronized (this) {
+                while (pendiente.size() == 0 && !cerrado && !fsyncVencido(ultimoFsync)) {
+                    try {
+                        if (politica == PoliticaSincronizacion.PERIODICA && secuenciaDurable < secuenciaEscrita)
+                            wait(Math.max(1, (intervaloNanos - (System.nanoTime() - ultimoFsync)) / 1_000_000L));
+                        else
+                            wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendiente.size() == 0 && cerrado) return;
+                Bufer lote = pendiente;
+                pendiente = enEscritura;
+                enEscritura = lote;
+                hasta = ultimaSecuencia;
+                sincronizar = politica == PoliticaSincronizacion.POR_LOTE || fsyncVencido(ultimoFsync);
+            }
+
+            // La E/S ocurre fuera del monitor: mientras tanto se sigue llenando el próximo lote
+            try {
+                ByteBuffer datos = enEscritura.comoByteBuffer();
+                while (datos.hasRemaining()) canal.write(datos);
+                if (sincronizar) {
+                    canal.force(false);
+                    ultimoFsync = System.nanoTime();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    falla = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if (enEscritura.capacidad() > MAXIMO_BUFER) enEscritura = new Bufer();
+                else enEscritura.reset();
+                secuenciaEscrita = Math.max(secuenciaEscrita, hasta);
+                if (sincronizar) secuenciaDurable = Math.max(secuenciaDurable, hasta);
+                notifyAll();
+            }
+        }
+    }
+
+    private boolean fsyncVencido(long ultimoFsync) {
+        return politica == PoliticaSincronizacion.PERIODICA && secuenciaDurable < secuenciaEscrita
+            && System.nanoTime() - ultimoFsync >= intervaloNanos;
+    }
+
+    private void esperarEscrito(long secuencia) throws IOException {
+        while (secuenciaEscrita < secuencia) {
+            if (falla != null) throw falla;
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrumpido mientras se vaciaba el diario.", e);
+            }
+        }
+    }
+
+    // =========================================================
+    //  REPRODUCCIÓN
+    // =========================================================
+
+    /**
+     * Reproduce en orden las operaciones del diario con secuencia mayor a {@code desde}
+     * (las anteriores ya están en el punto de control). Si el final del archivo está
+     * cortado o dañado, lo trunca en el último registro válido.
+     * @return la última secuencia leída, o {@code desde} si no había operaciones nuevas.
+     */
+    public static long reproducir(Path archivo, long desde, Consumer<OperacionDiario> aplicar) throws IOException {
+        if (!archivo.toFile().exists()) return desde;
+        long ultima = desde;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                 Channels.newInputStream(canal), 1 << 16))) {
+            long posicion = 0;
+            CRC32 crc = new CRC32();
+            byte[] datos = new byte[256];
+            while (true) {
+                int longitud, suma;
+                try {
+                    longitud = entrada.readInt();
+                    suma = entrada.readInt();
+                    if (longitud < 8 || longitud > MAXIMO_REGISTRO) break;
+                    if (datos.length < longitud) datos = new byte[Math.max(longitud, datos.length * 2)];
+                    entrada.readFully(datos, 0, longitud);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(datos, 0, longitud);
+                if ((int) crc.getValue() != suma) break;
+
+                DataInputStream registro = new DataInputStream(new ByteArrayInputStream(datos, 0, longitud));
+                long secuencia = registro.readLong();
+                OperacionDiario operacion = OperacionDiario.leerDe(registro);
+                if (secuencia > ultima) {
+                    aplicar.accept(operacion);
+                    ultima = secuencia;
+                }
+                posicion += CABECERA + longitud;
+            }
+            if (posicion < canal.size()) {
+                canal.truncate(posicion);
+                canal.force(true);
+            }
+        }
+        return ultima;
+    }
+
+    // =========================================================
+    //  BÚFER DE REGISTROS
+    // =========================================================
+
+    /** Búfer que arma los registros con su cabecera y expone su contenido sin copiarlo. */
+    private static final class Bufer extends ByteArrayOutputStream {
+        private final ByteArrayOutputStream carga = new ByteArrayOutputStream(256);
+        private final DataOutputStream salidaCarga = new DataOutputStream(carga);
+        private final DataOutputStream salida = new DataOutputStream(this);
+        private final CRC32 crc = new CRC32();
+
+        Bufer() {
+            super(1 << 16);
+        }
+
+        void agregarRegistro(long secuencia, OperacionDiario operacion) throws IOException {
+            carga.reset();
+            salidaCarga.writeLong(secuencia);
+            operacion.escribirEn(salidaCarga);
+            byte[] bytes = carga.toByteArray();
+            crc.reset();
+            crc.update(bytes);
+            salida.writeInt(bytes.length);
+            salida.writeInt((int) crc.getValue());
+            salida.write(bytes);
+        }
+
+        int capacidad() {
+            return buf.length;
+        }
+
+        ByteBuffer comoByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package persistencia;
+
+import modelo.Libro;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Conversión entre libros y filas CSV (RFC 4180): los campos con comas, comillas o saltos
+ * de línea van entre comillas y las comillas internas se duplican.
+ */
+public final class FormatoCsv {
+
+    public static final String ENCABEZADO =
+        "isbn,titulo,autor,editorial,anio,categoria,disponible,prestatario,fechaPrestamo";
+    private static final int CAMPOS = 9;
+
+    private FormatoCsv() {
+    }
+
+    /** Agrega el libro como una fila CSV, sin el salto de línea final. */
+    public static void escribirLibro(Libro libro, StringBuilder sb) {
+        campo(libro.getIsbn(), sb).append(',');
+        campo(libro.getTitulo(), sb).append(',');
+        campo(libro.getAutor(), sb).append(',');
+        campo(libro.getEditorial(), sb).append(',');
+        sb.append(libro.getAnioPublicacion()).append(',');
+        campo(libro.getCategoria(), sb).append(',');
+        Libro.EstadoPrestamo estado = libro.getEstadoPrestamo();
+        sb.append(estado.isDisponible()).append(',');
+        campo(estado.getPrestatario(), sb).append(',');
+        if (estado.getFechaPrestamo() != null) sb.append(estado.getFechaPrestamo());
+    }
+
+    private static StringBuilder campo(String texto, StringBuilder sb) {
+        if (texto == null) return sb;
+        boolean comillas = false;
+        for (int i = 0; i < texto.length() && !comillas; i++) {
+            char c = texto.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) return sb.append(texto);
+        sb.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    /** Indica si la fila es el encabezado (se omite al importar). */
+    public static boolean esEncabezado(String fila) {
+        return fila.trim().toLowerCase(Locale.ROOT).startsWith("isbn,");
+    }
+
+    /**
+     * Indica si la fila termina dentro de un campo entre comillas, es decir, si el campo
+     * continúa en la línea siguiente. Aplicado a una línea de continuación, indica si
+     * cambia el estado (cantidad impar de comillas).
+     */
+    static boolean comillasAbiertas(CharSequence fila) {
+        boolean abiertas = false;
+        for (int i = 0; i < fila.length(); i++) {
+            if (fila.charAt(i) == '"') abiertas = !abiertas;
+        }
+        return abiertas;
+    }
+
+    /**
+     * Arma un libro a partir de una fila completa. Los campos vacíos se toman como nulos.
+     * @throws IllegalArgumentException si la fila no tiene el formato esperado.
+     */
+    public static Libro libroDe(String fila) {
+        List<String> campos = separar(fila);
+        if (campos.size() != CAMPOS)
+            throw new IllegalArgumentException(
+                "Se esperaban " + CAMPOS + " campos y la fila tiene " + campos.size() + ".");
+        String isbn = campos.get(0), titulo = campos.get(1), autor = campos.get(2);
+        if (isbn == null)   throw new IllegalArgumentException("Falta el ISBN.");
+        if (titulo == null) throw new IllegalArgumentException("Falta el título.");
+        if (autor == null)  throw new IllegalArgumentException("Falta el autor.");
+        int anio;
+        try {
+            anio = Integer.parseInt(campos.get(4) == null ? "" : campos.get(4).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Año inválido '" + campos.get(4) + "'.");
+        }
+        Libro libro = new Libro(isbn, titulo, autor, campos.get(3), anio, campos.get(5));
+
+        String disponible = campos.get(6) == null ? "true" : campos.get(6).trim().toLowerCase(Locale.ROOT);
+        if (disponible.equals("false")) {
+            String prestatario = campos.get(7);
+            if (prestatario == null || prestatario.trim().isEmpty())
+                throw new IllegalArgumentException("Un libro prestado debe indicar el prestatario.");
+            libro.prestar(prestatario.trim(), FormatoJson.fecha(campos.get(8)));
+        } else if (!disponible.equals("true")) {
+            throw new IllegalArgumentException("El campo 'disponible' debe ser true o false.");
+        }
+        return libro;
+    }
+
+    private static List<String> separar(String fila) {
+        List<String> campos = new ArrayList<>(CAMPOS);
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false, citado = false;
+        for (int i = 0; i < fila.length(); i++) {
+            char c = fila.charAt(i);
+            if (entreComillas) {
+                if (c != '"') actual.append(c);
+                else if (i + 1 < fila.length() && fila.charAt(i + 1) == '"') actual.append(fila.charAt(++i));
+                else entreComillas = false;
+            } else if (c == ',') {
+                campos.add(citado || actual.length() > 0 ? actual.toString() : null);
+                actual.setLength(0);
+                citado = false;
+            } else if (c == '"' && actual.length() == 0) {
+                entreComillas = true;
+                citado = true;
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) throw new IllegalArgumentException("Hay comillas sin cerrar.");
+        campos.add(citado || actual.length() > 0 ? actual.toString() : null);
+        return campos;
+    }
+}
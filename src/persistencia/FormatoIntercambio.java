@@ -0,0 +1,21 @@
+package persistencia;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/** Formatos de texto para importar y exportar el catálogo. */
+public enum FormatoIntercambio {
+    /** Valores separados por comas con una fila de encabezado (RFC 4180). */
+    CSV,
+    /** Un objeto JSON por línea (JSON Lines). */
+    JSON_LINEAS;
+
+    /** Formato según la extensión del archivo: {@code .csv}, o {@code .jsonl}/{@code .json}. */
+    public static FormatoIntercambio deArchivo(Path archivo) {
+        String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (nombre.endsWith(".csv")) return CSV;
+        if (nombre.endsWith(".jsonl") || nombre.endsWith(".json")) return JSON_LINEAS;
+        throw new IllegalArgumentException(
+            "No se reconoce el formato de '" + archivo.getFileName() + "' (use .csv o .jsonl).");
+    }
+}
@@ -0,0 +1,249 @@
+package persistencia;
+
+import modelo.Libro;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Conversión mínima entre libros y JSON, sin dependencias externas. Solo maneja objetos
+ * planos (textos, números, booleanos y {@code null}), que es todo lo que necesitan el
+ * intercambio de catálogos y la API.
+ */
+public final class FormatoJson {
+
+    private FormatoJson() {
+    }
+
+    // =========================================================
+    //  ESCRITURA
+    // =========================================================
+
+    /** Agrega el libro como objeto JSON de una sola línea, incluido su estado de préstamo. */
+    public static void escribirLibro(Libro libro, StringBuilder sb) {
+        sb.append("{\"isbn\":");           texto(libro.getIsbn(), sb);
+        sb.append(",\"titulo\":");         texto(libro.getTitulo(), sb);
+        sb.append(",\"autor\":");          texto(libro.getAutor(), sb);
+        sb.append(",\"editorial\":");      texto(libro.getEditorial(), sb);
+        sb.append(",\"anio\":").append(libro.getAnioPublicacion());
+        sb.append(",\"categoria\":");      texto(libro.getCategoria(), sb);
+        Libro.EstadoPrestamo estado = libro.getEstadoPrestamo();
+        sb.append(",\"disponible\":").append(estado.isDisponible());
+        sb.append(",\"prestatario\":");    texto(estado.getPrestatario(), sb);
+        sb.append(",\"fechaPrestamo\":");
+        texto(estado.getFechaPrestamo() == null ? null : estado.getFechaPrestamo().toString(), sb);
+        sb.append('}');
+    }
+
+    public static String libro(Libro libro) {
+        StringBuilder sb = new StringBuilder(192);
+        escribirLibro(libro, sb);
+        return sb.toString();
+    }
+
+    /** Agrega el texto entre comillas y con los caracteres especiales escapados, o {@code null}. */
+    public static void texto(String texto, StringBuilder sb) {
+        if (texto == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    // =========================================================
+    //  LECTURA
+    // =========================================================
+
+    /**
+     * Lee un objeto JSON plano. Los números se entregan como {@code Long} o {@code Double}.
+     * @throws IllegalArgumentException si el texto no es un objeto JSON plano válido.
+     */
+    public static Map<String, Object> leerObjeto(String json) {
+        Lector lector = new Lector(json);
+        Map<String, Object> objeto = new LinkedHashMap<>();
+        lector.esperar('{');
+        if (!lector.consumir('}')) {
+            do {
+                String clave = lector.leerTexto();
+                lector.esperar(':');
+                objeto.put(clave, lector.leerValor());
+            } while (lector.consumir(','));
+            lector.esperar('}');
+        }
+        lector.saltarEspacios();
+        if (!lector.fin()) throw lector.error("se esperaba el fin del objeto");
+        return objeto;
+    }
+
+    /**
+     * Arma un libro a partir de un objeto leído con {@link #leerObjeto}. Los campos de
+     * préstamo son opcionales; un libro prestado debe indicar el prestatario.
+     * @throws IllegalArgumentException si falta un campo obligatorio o tiene otro tipo.
+     */
+    public static Libro libroDe(Map<String, Object> objeto) {
+        Libro libro = new Libro(textoObligatorio(objeto, "isbn"), textoObligatorio(objeto, "titulo"),
+                                textoObligatorio(objeto, "autor"), textoOpcional(objeto, "editorial"),
+                                entero(objeto, "anio"), textoOpcional(objeto, "categoria"));
+        Object disponible = objeto.get("disponible");
+        if (disponible != null && !(disponible instanceof Boolean))
+            throw new IllegalArgumentException("El campo 'disponible' debe ser true o false.");
+        if (Boolean.FALSE.equals(disponible)) {
+            String prestatario = textoOpcional(objeto, "prestatario");
+            if (prestatario == null || prestatario.trim().isEmpty())
+                throw new IllegalArgumentException("Un libro prestado debe indicar el prestatario.");
+            libro.prestar(prestatario.trim(), fecha(textoOpcional(objeto, "fechaPrestamo")));
+        }
+        return libro;
+    }
+
+    /** Fecha ISO (aaaa-mm-dd) o {@code null} si el texto está vacío. */
+    static LocalDate fecha(String texto) {
+        if (texto == null || texto.trim().isEmpty()) return null;
+        try {
+            return LocalDate.parse(texto.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha inválida '" + texto + "' (use aaaa-mm-dd).");
+        }
+    }
+
+    private static String textoObligatorio(Map<String, Object> objeto, String campo) {
+        String valor = textoOpcional(objeto, campo);
+        if (valor == null) throw new IllegalArgumentException("Falta el campo '" + campo + "'.");
+        return valor;
+    }
+
+    private static String textoOpcional(Map<String, Object> objeto, String campo) {
+        Object valor = objeto.get(campo);
+        if (valor != null && !(valor instanceof String))
+            throw new IllegalArgumentException("El campo '" + campo + "' debe ser un texto.");
+        return (String) valor;
+    }
+
+    private static int entero(Map<String, Object> objeto, String campo) {
+        Object valor = objeto.get(campo);
+        if (!(valor instanceof Long) || (Long) valor != ((Long) valor).intValue())
+            throw new IllegalArgumentException("El campo '" + campo + "' debe ser un número entero.");
+        return ((Long) valor).intValue();
+    }
+
+    /** Analizador descendente de un objeto JSON plano. */
+    private static final class Lector {
+        private final String json;
+        private int pos;
+
+        Lector(String json) {
+            this.json = json;
+        }
+
+        boolean fin() {
+            return pos >= json.length();
+        }
+
+        void saltarEspacios() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) pos++;
+        }
+
+        boolean consumir(char c) {
+            saltarEspacios();
+            if (pos < json.length() && json.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void esperar(char c) {
+            if (!consumir(c)) throw error("se esperaba '" + c + "'");
+        }
+
+        Object leerValor() {
+            saltarEspacios();
+            if (fin()) throw error("falta un valor");
+            char c = json.charAt(pos);
+            if (c == '"') return leerTexto();
+            if (json.startsWith("true", pos))  { pos += 4; return Boolean.TRUE; }
+            if (json.startsWith("false", pos)) { pos += 5; return Boolean.FALSE; }
+            if (json.startsWith("null", pos))  { pos += 4; return null; }
+            if (c == '-' || (c >= '0' && c <= '9')) return leerNumero();
+            throw error("valor inesperado");
+        }
+
+        String leerTexto() {
+            esperar('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (fin()) throw error("texto sin cerrar");
+                char c = json.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (fin()) throw error("escape incompleto");
+                char e = json.charAt(pos++);
+                switch (e) {
+                    case '"': case '\\': case '/': sb.append(e); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > json.length()) throw error("escape \\u incompleto");
+                        int codigo = 0;
+                        for (int k = 0; k < 4; k++) {
+                            int digito = hexadecimal(json.charAt(pos + k));
+                            if (digito < 0) throw error("escape \\u inválido");
+                            codigo = codigo << 4 | digito;
+                        }
+                        sb.append((char) codigo);
+                        pos += 4;
+                        break;
+                    default:
+                        throw error("escape inválido '\\" + e + "'");
+                }
+            }
+        }
+
+        /** Valor de un dígito hexadecimal ASCII, o -1 si no lo es (sin signos ni otros dígitos Unicode). */
+        private static int hexadecimal(char c) {
+            if (c >= '0' && c <= '9') return c - '0';
+            if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+            if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+            return -1;
+        }
+
+        Object leerNumero() {
+            int inicio = pos;
+            if (json.charAt(pos) == '-') pos++;
+            while (pos < json.length() && "0123456789.eE+-".indexOf(json.charAt(pos)) >= 0) pos++;
+            String numero = json.substring(inicio, pos);
+            try {
+                if (numero.indexOf('.') < 0 && numero.indexOf('e') < 0 && numero.indexOf('E') < 0)
+                    return Long.parseLong(numero);
+                return Double.parseDouble(numero);
+            } catch (NumberFormatException e) {
+                throw error("número inválido '" + numero + "'");
+            }
+        }
+
+        IllegalArgumentException error(String motivo) {
+            return new IllegalArgumentException("JSON inválido en la posición " + (pos + 1) + ": " + motivo + ".");
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package persistencia;
+
+import estructura.ResultadoCarga;
+import modelo.Libro;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Importación y exportación del catálogo en CSV o JSON Lines, en streaming: el archivo
+ * se lee y escribe por canales con búfer y en memoria solo hay un lote de libros a la
+ * vez, así que sirve para volcados de millones de filas. Una fila CSV con un campo entre
+ * comillas puede ocupar varias líneas, pero a lo sumo {@link #MAXIMO_LINEAS_FILA} y
+ * {@link #MAXIMO_CARACTERES_FILA}: una comilla sin cerrar se informa en la línea donde
+ * se abrió y las líneas siguientes se vuelven a leer como filas propias. Cada línea se
+ * decodifica por separado y una fila con bytes que no son UTF-8 válido se informa como
+ * error en vez de importarse con caracteres de reemplazo.
+ */
+public final class IntercambioCatalogo {
+
+    /** Libros por lote al importar. */
+    public static final int TAMANIO_LOTE = 10_000;
+    private static final int BUFER = 1 << 16;
+    /** Líneas físicas que puede ocupar una fila CSV con saltos de línea entre comillas. */
+    public static final int MAXIMO_LINEAS_FILA = 100;
+    /** Caracteres que puede ocupar una fila CSV, sumando todas sus líneas. */
+    public static final int MAXIMO_CARACTERES_FILA = 1 << 20;
+
+    private IntercambioCatalogo() {
+    }
+
+    // =========================================================
+    //  IMPORTACIÓN
+    // =========================================================
+
+    /**
+     * Lee el archivo y entrega los libros en lotes de {@link #TAMANIO_LOTE} a {@code cargar}
+     * (por ejemplo la carga masiva del servicio). Las filas mal formadas y los libros que
+     * la carga rechaza se informan con su número de línea sin detener la importación.
+     */
+    public static ResultadoImportacion importar(Path archivo, FormatoIntercambio formato,
+                                                Function<List<Libro>, ResultadoCarga> cargar) throws IOException {
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        List<Libro> lote = new ArrayList<>(TAMANIO_LOTE);
+        Map<Libro, Long> lineas = new IdentityHashMap<>();
+        // Líneas ya leídas que deben volver a procesarse tras una comilla sin cerrar
+        Deque<Linea> releer = new ArrayDeque<>();
+
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            LectorLineas lector = new LectorLineas(canal);
+            long numeroLinea = 0;
+            Linea fisica;
+            while ((fisica = siguienteLinea(lector, releer)) != null) {
+                long inicio = ++numeroLinea;
+                String linea = fisica.texto;
+                boolean malformada = fisica.malformada;
+                if (!malformada && linea.trim().isEmpty()) continue;
+                if (formato == FormatoIntercambio.CSV) {
+                    if (inicio == 1 && !malformada && FormatoCsv.esEncabezado(linea)) continue;
+                    // Un campo entre comillas puede seguir en las líneas siguientes
+                    boolean abiertas = FormatoCsv.comillasAbiertas(linea);
+                    List<Linea> continuacion = null;
+                    int caracteres = linea.length();
+                    while (abiertas && (continuacion == null || continuacion.size() < MAXIMO_LINEAS_FILA - 1)
+                            && caracteres <= MAXIMO_CARACTERES_FILA) {
+                        Linea siguiente = siguienteLinea(lector, releer);
+                        if (siguiente == null) break;
+                        if (continuacion == null) continuacion = new ArrayList<>();
+                        continuacion.add(siguiente);
+                        caracteres += siguiente.texto.length() + 1;
+                        abiertas ^= FormatoCsv.comillasAbiertas(siguiente.texto);
+                    }
+                    if (abiertas) {
+                        resultado.sumarLeido();
+                        resultado.registrarError(inicio, "Comilla sin cerrar: el campo abierto en esta línea no "
+                            + "termina en " + MAXIMO_LINEAS_FILA + " líneas ni en " + MAXIMO_CARACTERES_FILA + " caracteres.");
+                        if (continuacion != null) {
+                            for (int i = continuacion.size() - 1; i >= 0; i--) releer.addFirst(continuacion.get(i));
+                        }
+                        continue;
+                    }
+                    if (continuacion != null) {
+                        StringBuilder fila = new StringBuilder(caracteres).append(linea);
+                        for (Linea parte : continuacion) {
+                            fila.append('\n').append(parte.texto);
+                            malformada |= parte.malformada;
+                        }
+                        linea = fila.toString();
+                        numeroLinea += continuacion.size();
+                    }
+                }
+
+                resultado.sumarLeido();
+                if (malformada) {
+                    resultado.registrarError(inicio, "La fila tiene bytes que no son UTF-8 válido.");
+                    continue;
+                }
+                try {
+                    Libro libro = formato == FormatoIntercambio.CSV
+                        ? FormatoCsv.libroDe(linea)
+                        : FormatoJson.libroDe(FormatoJson.leerObjeto(linea));
+                    lote.add(libro);
+                    lineas.put(libro, inicio);
+                } catch (IllegalArgumentException e) {
+                    resultado.registrarError(inicio, e.getMessage());
+                }
+                if (lote.size() == TAMANIO_LOTE) cargarLote(lote, lineas, cargar, resultado);
+            }
+        }
+        if (!lote.isEmpty()) cargarLote(lote, lineas, cargar, resultado);
+        return resultado;
+    }
+
+    private static Linea siguienteLinea(LectorLineas lector, Deque<Linea> releer) throws IOException {
+        return releer.isEmpty() ? lector.leer() : releer.pollFirst();
+    }
+
+    /** Línea física del archivo; {@code malformada} si sus bytes no eran UTF-8 válido. */
+    private static final class Linea {
+        final String texto;
+        final boolean malformada;
+
+        Linea(String texto, boolean malformada) {
+            this.texto = texto;
+            this.malformada = malformada;
+        }
+    }
+
+    /**
+     * Lee el canal por líneas de bytes (terminadas en {@code \n}, {@code \r\n} o {@code \r},
+     * como {@link java.io.BufferedReader#readLine}) y decodifica cada una por separado. Un
+     * lector de caracteres con {@link CodingErrorAction#REPORT} fallaría en el primer byte
+     * inválido sin poder seguir con la línea siguiente; así el error queda en su línea. Las
+     * líneas inválidas se decodifican con reemplazos solo para seguir la estructura (las
+     * comillas del CSV) y se marcan como malformadas.
+     */
+    private static final class LectorLineas {
+        private final ReadableByteChannel canal;
+        private final ByteBuffer bufer = ByteBuffer.allocate(BUFER).flip();
+        private final CharsetDecoder estricto = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+        private final CharsetDecoder tolerante = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private byte[] linea = new byte[256];
+        private int largo;
+        /** La línea anterior terminó en {@code \r}: si la siguiente empieza con {@code \n}, se salta. */
+        private boolean saltarSalto;
+
+        LectorLineas(ReadableByteChannel canal) {
+            this.canal = canal;
+        }
+
+        /** La próxima línea, o null al final del archivo. */
+        Linea leer() throws IOException {
+            largo = 0;
+            boolean leido = false;
+            while (true) {
+                if (!bufer.hasRemaining()) {
+                    bufer.clear();
+                    int n = canal.read(bufer);
+                    bufer.flip();
+                    if (n < 0) return leido ? decodificar() : null;
+                    continue;
+                }
+                byte b = bufer.get();
+                if (saltarSalto) {
+                    saltarSalto = false;
+                    if (b == '\n') continue;
+                }
+                leido = true;
+                if (b == '\n') return decodificar();
+                if (b == '\r') {
+                    saltarSalto = true;
+                    return decodificar();
+                }
+                if (largo == linea.length) linea = Arrays.copyOf(linea, largo * 2);
+                linea[largo++] = b;
+            }
+        }
+
+        private Linea decodificar() {
+            ByteBuffer bytes = ByteBuffer.wrap(linea, 0, largo);
+            try {
+                return new Linea(estricto.decode(bytes).toString(), false);
+            } catch (CharacterCodingException e) {
+                bytes.rewind();
+                try {
+                    return new Linea(tolerante.decode(bytes).toString(), true);
+                } catch (CharacterCodingException imposible) {
+                    throw new IllegalStateException(imposible);
+                }
+            }
+        }
+    }
+
+    private static void cargarLote(List<Libro> lote, Map<Libro, Long> lineas,
+                                   Function<List<Libro>, ResultadoCarga> cargar, ResultadoImportacion resultado) {
+        ResultadoCarga carga = cargar.apply(lote);
+        resultado.sumarCargados(carga.getAceptados());
+        for (ResultadoCarga.Rechazo rechazo : carga.getRechazos()) {
+            Long linea = lineas.get(rechazo.getLibro());
+            resultado.registrarError(linea == null ? 0 : linea, rechazo.getMotivo());
+        }
+        lote.clear();
+        lineas.clear();
+    }
+
+    // =========================================================
+    //  EXPORTACIÓN
+    // =========================================================
+
+    /**
+     * Escribe los libros en el archivo (que se reemplaza si existe) a medida que el
+     * iterador los entrega.
+     * @return la cantidad de libros escritos.
+     */
+    public static long exportar(Path archivo, FormatoIntercambio formato, Iterator<Libro> libros) throws IOException {
+        long escritos = 0;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             BufferedWriter escritor = new BufferedWriter(
+                 Channels.newWriter(canal, StandardCharsets.UTF_8.newEncoder(), BUFER), BUFER)) {
+            StringBuilder fila = new StringBuilder(256);
+            if (formato == FormatoIntercambio.CSV) {
+                escritor.write(FormatoCsv.ENCABEZADO);
+                escritor.write('\n');
+            }
+            while (libros.hasNext()) {
+                fila.setLength(0);
+                if (formato == FormatoIntercambio.CSV) FormatoCsv.escribirLibro(libros.next(), fila);
+                else FormatoJson.escribirLibro(libros.next(), fila);
+                escritor.append(fila);
+                escritor.write('\n');
+                escritos++;
+            }
+        }
+        return escritos;
+    }
+}
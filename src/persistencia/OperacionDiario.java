@@ -0,0 +1,186 @@
+package persistencia;
+
+import modelo.Libro;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Operación del catálogo registrada en el diario de escritura. Guarda solo lo necesario
+ * para repetirla al reiniciar: el libro completo en un alta y el autor (la clave del
+ * árbol) en las demás, junto con la fecha del préstamo para que la reproducción sea exacta.
+ * <p>
+ * Los textos se guardan con {@link DataOutput#writeUTF}, que admite hasta
+ * {@value #MAXIMO_TEXTO} bytes; {@link #validar} lo comprueba antes de aplicar la operación.
+ */
+public final class OperacionDiario {
+
+    public enum Tipo { REGISTRAR, ELIMINAR, PRESTAMO, DEVOLUCION }
+
+    private static final long SIN_FECHA = Long.MIN_VALUE;
+    /** Máximo de bytes de un texto en UTF-8 modificado, el límite de {@link DataOutput#writeUTF}. */
+    public static final int MAXIMO_TEXTO = 65_535;
+
+    private final Tipo tipo;
+    private final Libro libro;
+    private final String autor;
+    private final String prestatario;
+    private final LocalDate fecha;
+
+    private OperacionDiario(Tipo tipo, Libro libro, String autor, String prestatario, LocalDate fecha) {
+        this.tipo = tipo;
+        this.libro = libro;
+        this.autor = autor;
+        this.prestatario = prestatario;
+        this.fecha = fecha;
+    }
+
+    public static OperacionDiario registrar(Libro libro) {
+        return new OperacionDiario(Tipo.REGISTRAR, libro, libro == null ? null : libro.getAutor(), null, null);
+    }
+
+    public static OperacionDiario eliminar(String autor) {
+        return new OperacionDiario(Tipo.ELIMINAR, null, autor, null, null);
+    }
+
+    public static OperacionDiario prestamo(String autor, String prestatario, LocalDate fecha) {
+        return new OperacionDiario(Tipo.PRESTAMO, null, autor, prestatario, fecha);
+    }
+
+    public static OperacionDiario devolucion(String autor) {
+        return new OperacionDiario(Tipo.DEVOLUCION, null, autor, null, null);
+    }
+
+    public Tipo getTipo()           { return tipo; }
+    public Libro getLibro()         { return libro; }
+    public String getAutor()        { return autor; }
+    public String getPrestatario()  { return prestatario; }
+    public LocalDate getFecha()     { return fecha; }
+
+    // =========================================================
+    //  VALIDACIÓN
+    // =========================================================
+
+    /**
+     * Verifica que la operación se pueda escribir en el diario. Conviene llamarla antes de
+     * aplicarla: si falla después, el catálogo en memoria tendría un cambio que no quedó
+     * en el diario y se perdería al reiniciar.
+     * @throws IllegalArgumentException si falta un dato obligatorio o un texto supera
+     *         {@value #MAXIMO_TEXTO} bytes.
+     */
+    public void validar() {
+        switch (tipo) {
+            case REGISTRAR:
+                if (libro == null) throw new IllegalArgumentException("El libro no puede ser nulo.");
+                validarLibro(libro);
+                break;
+            case PRESTAMO:
+                validarTexto("autor", autor, true);
+                validarTexto("prestatario", prestatario, true);
+                if (fecha == null) throw new IllegalArgumentException("La fecha del préstamo no puede ser nula.");
+                break;
+            default:
+                validarTexto("autor", autor, true);
+        }
+    }
+
+    private static void validarLibro(Libro libro) {
+        validarTexto("ISBN", libro.getIsbn(), false);
+        validarTexto("título", libro.getTitulo(), false);
+        validarTexto("autor", libro.getAutor(), false);
+        validarTexto("editorial", libro.getEditorial(), false);
+        validarTexto("categoría", libro.getCategoria(), false);
+        validarTexto("prestatario", libro.getPrestatario(), false);
+    }
+
+    private static void validarTexto(String campo, String texto, boolean obligatorio) {
+        if (texto == null) {
+            if (obligatorio) throw new IllegalArgumentException("El campo '" + campo + "' no puede ser nulo.");
+            return;
+        }
+        long bytes = bytesUtf(texto);
+        if (bytes > MAXIMO_TEXTO)
+            throw new IllegalArgumentException("El campo '" + campo + "' es demasiado largo: " + bytes
+                + " bytes, el máximo es " + MAXIMO_TEXTO + ".");
+    }
+
+    /** Bytes que ocupa el texto en UTF-8 modificado, el formato de {@link DataOutput#writeUTF}. */
+    private static long bytesUtf(String texto) {
+        long bytes = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            bytes += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return bytes;
+    }
+
+    // =========================================================
+    //  FORMATO BINARIO
+    // =========================================================
+
+    void escribirEn(DataOutput salida) throws IOException {
+        salida.writeByte(tipo.ordinal());
+        switch (tipo) {
+            case REGISTRAR:
+                escribirLibro(salida, libro);
+                break;
+            case PRESTAMO:
+                salida.writeUTF(autor);
+                salida.writeUTF(prestatario);
+                salida.writeLong(fecha.toEpochDay());
+                break;
+            default:
+                salida.writeUTF(autor);
+        }
+    }
+
+    static OperacionDiario leerDe(DataInput entrada) throws IOException {
+        int ordinal = entrada.readUnsignedByte();
+        if (ordinal >= Tipo.values().length) throw new IOException("Tipo de operación desconocido: " + ordinal);
+        switch (Tipo.values()[ordinal]) {
+            case REGISTRAR:  return registrar(leerLibro(entrada));
+            case ELIMINAR:   return eliminar(entrada.readUTF());
+            case PRESTAMO:   return prestamo(entrada.readUTF(), entrada.readUTF(), LocalDate.ofEpochDay(entrada.readLong()));
+            default:         return devolucion(entrada.readUTF());
+        }
+    }
+
+    /** Escribe todos los datos del libro, incluido su estado de préstamo. */
+    static void escribirLibro(DataOutput salida, Libro libro) throws IOException {
+        escribirTexto(salida, libro.getIsbn());
+        escribirTexto(salida, libro.getTitulo());
+        escribirTexto(salida, libro.getAutor());
+        escribirTexto(salida, libro.getEditorial());
+        salida.writeInt(libro.getAnioPublicacion());
+        escribirTexto(salida, libro.getCategoria());
+        Libro.EstadoPrestamo estado = libro.getEstadoPrestamo();
+        salida.writeBoolean(estado.isDisponible());
+        escribirTexto(salida, estado.getPrestatario());
+        salida.writeLong(estado.getFechaPrestamo() == null ? SIN_FECHA : estado.getFechaPrestamo().toEpochDay());
+    }
+
+    static Libro leerLibro(DataInput entrada) throws IOException {
+        Libro libro = new Libro(leerTexto(entrada), leerTexto(entrada), leerTexto(entrada),
+                                leerTexto(entrada), entrada.readInt(), leerTexto(entrada));
+        libro.setDisponible(entrada.readBoolean());
+        libro.setPrestatario(leerTexto(entrada));
+        long dia = entrada.readLong();
+        libro.setFechaPrestamo(dia == SIN_FECHA ? null : LocalDate.ofEpochDay(dia));
+        return libro;
+    }
+
+    private static void escribirTexto(DataOutput salida, String texto) throws IOException {
+        salida.writeBoolean(texto != null);
+        if (texto != null) salida.writeUTF(texto);
+    }
+
+    private static String leerTexto(DataInput entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+
+    @Override
+    public String toString() {
+        return tipo + " " + autor;
+    }
+}
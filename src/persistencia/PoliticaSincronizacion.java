@@ -0,0 +1,22 @@
+package persistencia;
+
+/**
+ * Cuándo el diario fuerza sus escrituras al disco ({@code fsync}) y cuánto espera quien
+ * registra una operación antes de considerarla guardada.
+ */
+public enum PoliticaSincronizacion {
+    /**
+     * Cada lote de operaciones acumuladas se fuerza al disco y quien registra espera ese
+     * {@code fsync}. Las operaciones que llegan mientras un lote se sincroniza forman el
+     * lote siguiente (group commit), así que hay un {@code fsync} por lote y no por operación.
+     */
+    POR_LOTE,
+    /**
+     * Quien registra solo espera que el lote llegue al sistema operativo; el {@code fsync}
+     * se hace a lo sumo una vez por intervalo. Sobrevive a la caída del proceso, y ante un
+     * corte de energía se pierde como máximo el último intervalo.
+     */
+    PERIODICA,
+    /** No se espera ni se fuerza nada: el sistema operativo decide cuándo escribir. */
+    SIN_ESPERA
+}
@@ -0,0 +1,352 @@
+package persistencia;
+
+import modelo.Libro;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Punto de control: instantánea binaria del catálogo junto con la secuencia de la última
+ * operación del diario que contiene. Al reiniciar se carga el punto de control y solo
+ * se reproducen las operaciones del diario posteriores a esa secuencia.
+ * <p>
+ * El archivo tiene una cabecera fija, un registro de ancho fijo por libro en el orden
+ * alfabético del árbol y al final una tabla con los textos sin repetir (editoriales,
+ * categorías y prestatarios se guardan una sola vez). Los registros apuntan a los textos
+ * por índice, así que al cargar cada texto se decodifica una sola vez y los libros lo
+ * comparten. La carga lee el archivo con un {@link MappedByteBuffer} sin copiarlo a un
+ * búfer intermedio (cada texto se decodifica directamente de su porción del mapa), y
+ * como los libros ya vienen ordenados el árbol se arma balanceado en tiempo lineal.
+ * El mapa se libera apenas se decodificó todo, sin esperar al recolector de basura: en
+ * Windows un archivo mapeado no puede reemplazarse, y el próximo punto de control
+ * reemplaza justamente este archivo. Si la JVM no permite liberar un mapa, el archivo se
+ * lee en un búfer del heap.
+ * Las posiciones del archivo son enteros de 32 bits, así que un punto de control no puede
+ * superar {@value #MAXIMO_BYTES} bytes (2 GB); guardar uno más grande falla con un error
+ * que lo indica.
+ * <pre>
+ * cabecera : marca:int versión:int secuencia:long cantidad:int textos:int
+ *            inicioTextos:long crc32:int
+ * registro : isbn título autor editorial año categoría disponible prestatario fecha (9 x int)
+ * textos   : finDeCadaTexto:int[textos]  bytes UTF-8 de todos los textos seguidos
+ * </pre>
+ * El CRC cubre todo lo que sigue a la cabecera. El archivo se escribe en uno temporal que
+ * se sincroniza y luego reemplaza al anterior con un renombrado atómico, así que una
+ * caída a mitad de camino deja intacto el punto de control anterior. Después del
+ * renombrado se sincroniza también el directorio: hasta entonces una caída del sistema
+ * puede dejar la entrada del directorio apuntando todavía al archivo anterior.
+ */
+public final class PuntoControl {
+
+    private static final int MARCA = 0x42535453;   // "BSTS"
+    private static final int VERSION = 1;
+    private static final int CABECERA = 4 + 4 + 8 + 4 + 4 + 8 + 4;
+    private static final int CAMPOS = 9;
+    private static final int REGISTRO = CAMPOS * 4;
+    /** Índice de texto para los campos nulos. */
+    private static final int NULO = -1;
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+    /** Tamaño máximo del archivo: las posiciones se guardan y se mapean como {@code int}. */
+    private static final long MAXIMO_BYTES = Integer.MAX_VALUE;
+
+    // Unsafe.invokeCleaner (JDK 9+) libera un mapa en el momento; null si no está disponible
+    private static final Object UNSAFE;
+    private static final Method LIBERAR_MAPA;
+
+    static {
+        Object unsafe = null;
+        Method liberar = null;
+        try {
+            Class<?> clase = Class.forName("sun.misc.Unsafe");
+            Field instancia = clase.getDeclaredField("theUnsafe");
+            instancia.setAccessible(true);
+            unsafe = instancia.get(null);
+            liberar = clase.getMethod("invokeCleaner", ByteBuffer.class);
+            liberar.invoke(unsafe, ByteBuffer.allocateDirect(1));   // comprueba que funcione
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            liberar = null;
+        }
+        UNSAFE = unsafe;
+        LIBERAR_MAPA = liberar;
+    }
+
+    private final long secuencia;
+    private final List<Libro> libros;
+
+    private PuntoControl(long secuencia, List<Libro> libros) {
+        this.secuencia = secuencia;
+        this.libros = libros;
+    }
+
+    public long getSecuencia()     { return secuencia; }
+    /** Libros en orden alfabético por autor, listos para una carga masiva. */
+    public List<Libro> getLibros() { return libros; }
+
+    // =========================================================
+    //  ESCRITURA
+    // =========================================================
+
+    /**
+     * Guarda los libros (recorridos en orden) en {@code archivo}. Quien llama debe
+     * garantizar que no cambien mientras se escriben y que {@code secuencia} sea la
+     * última operación aplicada.
+     * @return true si el reemplazo quedó sincronizado en disco; false si el sistema no
+     *         permite sincronizar el directorio, en cuyo caso una caída del sistema podría
+     *         dejar el punto de control anterior y el diario no debe vaciarse.
+     * @throws IOException si no se puede escribir o si el archivo superaría {@value #MAXIMO_BYTES} bytes.
+     */
+    public static boolean guardar(Path archivo, long secuencia, int cantidad, Iterator<Libro> libros) throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CRC32 crc = new CRC32();
+            ByteBuffer bufer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            TablaTextos textos = new TablaTextos();
+            canal.position(CABECERA);
+
+            int escritos = 0;
+            while (libros.hasNext()) {
+                Libro libro = libros.next();
+                if (bufer.remaining() < REGISTRO) vaciar(canal, bufer, crc);
+                bufer.putInt(textos.indice(libro.getIsbn()));
+                bufer.putInt(textos.indice(libro.getTitulo()));
+                bufer.putInt(textos.indice(libro.getAutor()));
+                bufer.putInt(textos.indice(libro.getEditorial()));
+                bufer.putInt(libro.getAnioPublicacion());
+                bufer.putInt(textos.indice(libro.getCategoria()));
+                Libro.EstadoPrestamo estado = libro.getEstadoPrestamo();
+                bufer.putInt(estado.isDisponible() ? 1 : 0);
+                bufer.putInt(textos.indice(estado.getPrestatario()));
+                bufer.putInt(estado.getFechaPrestamo() == null ? SIN_FECHA : (int) estado.getFechaPrestamo().toEpochDay());
+                escritos++;
+            }
+            if (escritos != cantidad)
+                throw new IllegalStateException("El catálogo cambió mientras se guardaba el punto de control.");
+
+            long inicioTextos = CABECERA + (long) escritos * REGISTRO;
+            long total = inicioTextos + 4L * textos.bytes.size() + textos.largo;
+            if (total > MAXIMO_BYTES)
+                throw new IOException("El punto de control ocuparía " + total + " bytes (" + escritos
+                    + " libros); el formato admite hasta " + MAXIMO_BYTES + " bytes.");
+            int fin = 0;
+            for (byte[] texto : textos.bytes) {
+                if (bufer.remaining() < 4) vaciar(canal, bufer, crc);
+                fin += texto.length;
+                bufer.putInt(fin);
+            }
+            for (byte[] texto : textos.bytes) {
+                for (int desde = 0; desde < texto.length; ) {
+                    if (!bufer.hasRemaining()) vaciar(canal, bufer, crc);
+                    int n = Math.min(bufer.remaining(), texto.length - desde);
+                    bufer.put(texto, desde, n);
+                    desde += n;
+                }
+            }
+            vaciar(canal, bufer, crc);
+
+            bufer.putInt(MARCA).putInt(VERSION).putLong(secuencia).putInt(escritos)
+                 .putInt(textos.bytes.size()).putLong(inicioTextos).putInt((int) crc.getValue());
+            bufer.flip();
+            while (bufer.hasRemaining()) canal.write(bufer, bufer.position());
+            canal.force(true);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return sincronizarDirectorio(archivo.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Sincroniza la entrada del directorio para que el renombrado sobreviva a una caída.
+     * Algunos sistemas (Windows) no permiten abrir un directorio como canal; entonces
+     * retorna false.
+     */
+    private static boolean sincronizarDirectorio(Path directorio) {
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer bufer, CRC32 crc) throws IOException {
+        bufer.flip();
+        crc.update(bufer.duplicate());
+        while (bufer.hasRemaining()) canal.write(bufer);
+        bufer.clear();
+    }
+
+    /** Textos distintos en orden de aparición, con su índice. */
+    private static final class TablaTextos {
+        final Map<String, Integer> indices = new HashMap<>();
+        final List<byte[]> bytes = new ArrayList<>();
+        /** Suma de los largos en bytes de todos los textos. */
+        long largo;
+
+        int indice(String texto) {
+            if (texto == null) return NULO;
+            Integer indice = indices.get(texto);
+            if (indice == null) {
+                indice = bytes.size();
+                indices.put(texto, indice);
+                byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+                bytes.add(utf8);
+                largo += utf8.length;
+            }
+            return indice;
+        }
+    }
+
+    // =========================================================
+    //  LECTURA
+    // =========================================================
+
+    /**
+     * Lee el punto de control, o retorna uno vacío con secuencia 0 si el archivo no existe.
+     * @throws IOException si el archivo está dañado o no es un punto de control.
+     */
+    public static PuntoControl cargar(Path archivo) throws IOException {
+        if (!Files.exists(archivo)) return new PuntoControl(0, new ArrayList<>());
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamanio = canal.size();
+            if (tamanio > MAXIMO_BYTES)
+                throw new IOException("El punto de control '" + archivo + "' ocupa " + tamanio
+                    + " bytes; el formato admite hasta " + MAXIMO_BYTES + " bytes.");
+            if (tamanio < CABECERA)
+                throw new IOException("'" + archivo + "' no es un punto de control válido (tamaño " + tamanio + ").");
+            ByteBuffer mapa = abrir(canal, (int) tamanio);
+            try {
+                return leer(mapa, archivo);
+            } finally {
+                liberar(mapa);
+            }
+        }
+    }
+
+    /** Mapea el archivo si después puede liberarse el mapa; si no, lo lee al heap. */
+    private static ByteBuffer abrir(FileChannel canal, int tamanio) throws IOException {
+        ByteBuffer datos;
+        if (LIBERAR_MAPA != null) {
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanio);
+        } else {
+            datos = ByteBuffer.allocate(tamanio);
+            while (datos.hasRemaining()) {
+                if (canal.read(datos, datos.position()) < 0) throw new IOException("El archivo terminó antes de lo esperado.");
+            }
+            datos.flip();
+        }
+        return datos.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Libera el mapa sin esperar al recolector. Después no debe quedar ninguna referencia
+     * a él ni a sus copias: los textos y los libros ya se decodificaron.
+     */
+    private static void liberar(ByteBuffer mapa) {
+        if (!(mapa instanceof MappedByteBuffer)) return;
+        try {
+            LIBERAR_MAPA.invoke(UNSAFE, mapa);
+        } catch (ReflectiveOperationException e) {
+            // Queda mapeado hasta que lo recolecte el recolector de basura
+        }
+    }
+
+    /** Decodifica el punto de control completo; al terminar ya no se necesita {@code mapa}. */
+    private static PuntoControl leer(ByteBuffer mapa, Path archivo) throws IOException {
+        try {
+            long tamanio = mapa.limit();
+            if (mapa.getInt(0) != MARCA)
+                throw new IOException("'" + archivo + "' no es un punto de control del catálogo.");
+            if (mapa.getInt(4) != VERSION)
+                throw new IOException("Versión de punto de control no soportada: " + mapa.getInt(4) + ".");
+            long secuencia = mapa.getLong(8);
+            int cantidad = mapa.getInt(16);
+            int totalTextos = mapa.getInt(20);
+            long inicioTextos = mapa.getLong(24);
+            int crcEsperado = mapa.getInt(32);
+            if (cantidad < 0 || totalTextos < 0 || inicioTextos != CABECERA + (long) cantidad * REGISTRO
+                    || inicioTextos + 4L * totalTextos > tamanio)
+                throw new IOException("La cabecera del punto de control '" + archivo + "' es inconsistente.");
+
+            CRC32 crc = new CRC32();
+            crc.update(mapa.duplicate().position(CABECERA));
+            if ((int) crc.getValue() != crcEsperado)
+                throw new IOException("El punto de control '" + archivo + "' está dañado (CRC inválido).");
+
+            String[] textos = leerTextos(mapa, (int) inicioTextos, totalTextos, archivo);
+            List<Libro> libros = new ArrayList<>(cantidad);
+            for (int i = 0, pos = CABECERA; i < cantidad; i++, pos += REGISTRO) {
+                Libro libro = new Libro(texto(textos, mapa.getInt(pos)), texto(textos, mapa.getInt(pos + 4)),
+                                        texto(textos, mapa.getInt(pos + 8)), texto(textos, mapa.getInt(pos + 12)),
+                                        mapa.getInt(pos + 16), texto(textos, mapa.getInt(pos + 20)));
+                if (mapa.getInt(pos + 24) == 0) {
+                    libro.setDisponible(false);
+                    libro.setPrestatario(texto(textos, mapa.getInt(pos + 28)));
+                    int dia = mapa.getInt(pos + 32);
+                    libro.setFechaPrestamo(dia == SIN_FECHA ? null : LocalDate.ofEpochDay(dia));
+                }
+                libros.add(libro);
+            }
+            return new PuntoControl(secuencia, libros);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("El punto de control '" + archivo + "' está dañado.", e);
+        }
+    }
+
+    /**
+     * Decodifica cada texto desde su porción del mapa, sin copiar los bytes. El búfer de
+     * caracteres se reutiliza entre textos y solo crece para el más largo.
+     */
+    private static String[] leerTextos(ByteBuffer mapa, int inicio, int total, Path archivo) throws IOException {
+        int inicioBytes = inicio + 4 * total;
+        int largoTotal = mapa.limit() - inicioBytes;
+        CharsetDecoder decodificador = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer porcion = mapa.duplicate();
+        CharBuffer caracteres = CharBuffer.allocate(256);
+
+        String[] textos = new String[total];
+        int desde = 0;
+        for (int i = 0; i < total; i++) {
+            int hasta = mapa.getInt(inicio + 4 * i);
+            if (hasta < desde || hasta > largoTotal)
+                throw new IOException("La tabla de textos del punto de control '" + archivo + "' está dañada.");
+            porcion.limit(inicioBytes + hasta).position(inicioBytes + desde);
+            // En UTF-8 cada carácter ocupa al menos un byte
+            if (caracteres.capacity() < hasta - desde) caracteres = CharBuffer.allocate(hasta - desde);
+            caracteres.clear();
+            decodificador.reset();
+            CoderResult resultado = decodificador.decode(porcion, caracteres, true);
+            if (resultado.isUnderflow()) resultado = decodificador.flush(caracteres);
+            if (resultado.isError())
+                throw new IOException("El texto " + i + " del punto de control '" + archivo + "' no es UTF-8 válido.");
+            textos[i] = caracteres.flip().toString();
+            desde = hasta;
+        }
+        return textos;
+    }
+
+    private static String texto(String[] textos, int indice) {
+        return indice == NULO ? null : textos[indice];
+    }
+}
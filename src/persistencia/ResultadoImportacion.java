@@ -0,0 +1,64 @@
+package persistencia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una importación: cuántos registros se leyeron y cargaron, y el detalle
+ * de los que fallaron con su número de línea. Para que un archivo con millones de
+ * errores no agote la memoria solo se guarda el detalle de los primeros
+ * {@link #MAXIMO_DETALLE}; el total se cuenta siempre.
+ */
+public class ResultadoImportacion {
+
+    public static final int MAXIMO_DETALLE = 1000;
+
+    /** Registro que no se pudo importar, con la línea donde empieza y el motivo. */
+    public static class ErrorLinea {
+        private final long linea;
+        private final String motivo;
+
+        public ErrorLinea(long linea, String motivo) {
+            this.linea = linea;
+            this.motivo = motivo;
+        }
+
+        public long getLinea()    { return linea; }
+        public String getMotivo() { return motivo; }
+
+        @Override
+        public String toString() {
+            return "línea " + linea + ": " + motivo;
+        }
+    }
+
+    private long leidos;
+    private long cargados;
+    private long totalErrores;
+    private final List<ErrorLinea> errores;
+
+    public ResultadoImportacion() {
+        this.errores = new ArrayList<>();
+    }
+
+    void sumarLeido()                  { leidos++; }
+    void sumarCargados(long cantidad)  { cargados += cantidad; }
+
+    void registrarError(long linea, String motivo) {
+        totalErrores++;
+        if (errores.size() < MAXIMO_DETALLE) errores.add(new ErrorLinea(linea, motivo));
+    }
+
+    public long getLeidos()               { return leidos; }
+    public long getCargados()             { return cargados; }
+    public long getTotalErrores()         { return totalErrores; }
+    /** Detalle de los primeros errores: los de formato al leer la fila, los rechazos al cargar su lote. */
+    public List<ErrorLinea> getErrores()  { return Collections.unmodifiableList(errores); }
+    public boolean sinErrores()           { return totalErrores == 0; }
+
+    @Override
+    public String toString() {
+        return leidos + " registro(s) leído(s), " + cargados + " cargado(s), " + totalErrores + " con error";
+    }
+}
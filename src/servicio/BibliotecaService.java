@@ -1,23 +1,189 @@
 package servicio;
 
-import estructura.ArbolBST;
+import estructura.Almacenamiento;
+import estructura.Catalogo;
+import estructura.IndicePrestatarios;
+import estructura.IndiceVencimientos;
+import estructura.ModoBalanceo;
+import estructura.ResultadoCarga;
+import estructura.VistaCatalogo;
+import metricas.MetricasCatalogo;
+import metricas.MetricasCatalogo.Operacion;
+import modelo.ClaveAutor;
 import modelo.Libro;
+import persistencia.DiarioEscritura;
+import persistencia.FormatoIntercambio;
+import persistencia.IntercambioCatalogo;
+import persistencia.OperacionDiario;
+import persistencia.PoliticaSincronizacion;
+import persistencia.PuntoControl;
+import persistencia.ResultadoImportacion;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Servicio de gestión de la biblioteca.
  * Encapsula la lógica de negocio para préstamos, devoluciones y consultas.
+ * <p>
+ * Es seguro para uso concurrente (varios puestos de atención a la vez). Las
+ * modificaciones toman el cerrojo de escritura y se serializan; un préstamo o una
+ * devolución verifica y cambia el estado del libro dentro de la misma sección de
+ * escritura, así que dos puestos no pueden prestar el mismo ejemplar.
+ * Las consultas sobre el árbol (búsqueda por autor, recorridos, filtros, páginas,
+ * rangos) trabajan sobre una instantánea inmutable y no toman ningún cerrojo, de modo
+ * que un reporte largo no frena préstamos ni devoluciones; el estado de préstamo de cada
+ * libro se reemplaza de una vez ({@link Libro#prestar}, {@link Libro#devolver}), así que
+ * esas consultas nunca ven un préstamo a medias. Las consultas a los índices
+ * auxiliares (ISBN, subcadena, categorías) usan el cerrojo de lectura, y los contadores
+ * de las estadísticas se leen con lectura optimista.
+ * <p>
+ * Con un directorio de datos el catálogo es persistente: cada modificación se valida para
+ * el diario antes de aplicarla, se anota en un {@link DiarioEscritura} bajo el cerrojo de
+ * escritura (así el orden del diario es el orden en que se aplicaron) y se espera su
+ * escritura después de soltarlo, de modo que
+ * las operaciones concurrentes comparten el mismo {@code fsync}. Al iniciar se carga el
+ * último {@link PuntoControl} y se reproducen las operaciones posteriores del diario.
+ * <p>
+ * El catálogo se guarda como árbol de nodos o, para catálogos grandes, en el
+ * {@link Almacenamiento#COMPACTO almacenamiento compacto}, según se elija al crearlo; los
+ * préstamos y devoluciones pasan por el catálogo, que en el compacto entrega copias.
+ * <p>
+ * Cada operación pública registra su latencia y si terminó con error en
+ * {@link #getMetricas()}, junto con las comparaciones de cada búsqueda por autor.
  */
 public class BibliotecaService {
 
-    private final ArbolBST catalogo;
+    private static final String ARCHIVO_PUNTO_CONTROL = "catalogo.chk";
+    private static final String ARCHIVO_DIARIO = "catalogo.wal";
+    /** Con la política periódica, tiempo máximo entre dos sincronizaciones del diario. */
+    private static final long INTERVALO_SINCRONIZACION_MS = 200;
+    /** Tamaño del diario a partir del cual se hace un punto de control automático. */
+    private static final long LIMITE_DIARIO_BYTES = 64L << 20;
+    /** Cada cuántas operaciones se revisa el tamaño del diario. */
+    private static final int REVISAR_DIARIO_CADA = 4096;
+    /** Duración de un préstamo, en días. */
+    public static final int DIAS_PRESTAMO = 14;
+    /** Valor de {@link #setLimitePrestamos} que no limita la cantidad de préstamos por lector. */
+    public static final int SIN_LIMITE = 0;
+    /** Cantidad de listados y filtros distintos que guarda la caché de resultados. */
+    private static final int CAPACIDAD_CACHE = 64;
 
+    private final Catalogo catalogo;
+    private final StampedLock cerrojo;
+    /** Libros actualmente prestados; se actualiza en cada préstamo, devolución, alta y baja. */
+    private int prestados;
+    /** Préstamos ordenados por vencimiento; se usa bajo el cerrojo como {@link #prestados}. */
+    private final IndiceVencimientos vencimientos = new IndiceVencimientos(DIAS_PRESTAMO);
+    /** Libros prestados por lector; se usa bajo el cerrojo como {@link #prestados}. */
+    private final IndicePrestatarios prestatarios = new IndicePrestatarios();
+    private volatile int limitePrestamos = SIN_LIMITE;
+    /**
+     * Versión del catálogo: aumenta después de cada modificación, todavía bajo el cerrojo de
+     * escritura. Un resultado calculado leyendo antes la versión nunca es más nuevo que ella.
+     */
+    private volatile long version;
+    private final CacheConsultas cache = new CacheConsultas(CAPACIDAD_CACHE);
+
+    private final Path directorio;
+    private final DiarioEscritura diario;
+    /** Secuencia en el diario de la última operación aplicada; solo se usa bajo el cerrojo de escritura. */
+    private long secuenciaPendiente;
+    private final Object guardandoPuntoControl = new Object();
+    /**
+     * Tamaño del diario al terminar el último punto de control: 0 si se vació, o lo que
+     * quedó si el sistema no permitió confirmar el punto de control en disco.
+     */
+    private volatile long diarioTrasPuntoControl;
+    private final MetricasCatalogo metricas;
+
+    /** Catálogo en memoria con los datos de prueba. */
     public BibliotecaService() {
-        this.catalogo = new ArbolBST();
+        this(ModoBalanceo.AVL);
+    }
+
+    /**
+     * Catálogo en memoria con los datos de prueba y el modo de balanceo indicado;
+     * {@link ModoBalanceo#SPLAY} conviene cuando pocos autores concentran las búsquedas.
+     */
+    public BibliotecaService(ModoBalanceo modo) {
+        this(modo, Almacenamiento.NODOS);
+    }
+
+    /**
+     * Catálogo en memoria con los datos de prueba, el modo de balanceo y el almacenamiento
+     * indicados; {@link Almacenamiento#COMPACTO} reduce la memoria de catálogos grandes.
+     * @throws IllegalArgumentException si el almacenamiento no admite el modo.
+     */
+    public BibliotecaService(ModoBalanceo modo, Almacenamiento almacenamiento) {
+        this.catalogo = almacenamiento.crear(modo);
+        this.cerrojo = new StampedLock();
+        this.metricas = crearMetricas();
+        this.directorio = null;
+        this.diario = null;
         cargarDatosPrueba();
     }
 
+    /** Catálogo persistente en el directorio indicado, con la política de sincronización por lotes. */
+    public BibliotecaService(Path directorio) {
+        this(directorio, PoliticaSincronizacion.POR_LOTE);
+    }
+
+    /**
+     * Catálogo persistente: carga el último punto de control del directorio (que se crea
+     * si no existe) y reproduce sobre él las operaciones del diario.
+     * @throws UncheckedIOException si los archivos no se pueden leer o están dañados.
+     */
+    public BibliotecaService(Path directorio, PoliticaSincronizacion politica) {
+        this(directorio, politica, ModoBalanceo.AVL);
+    }
+
+    /** Catálogo persistente con el modo de balanceo indicado para el árbol. */
+    public BibliotecaService(Path directorio, PoliticaSincronizacion politica, ModoBalanceo modo) {
+        this(directorio, politica, modo, Almacenamiento.NODOS);
+    }
+
+    /** Catálogo persistente con el modo de balanceo y el almacenamiento indicados. */
+    public BibliotecaService(Path directorio, PoliticaSincronizacion politica, ModoBalanceo modo,
+                             Almacenamiento almacenamiento) {
+        this.catalogo = almacenamiento.crear(modo);
+        this.cerrojo = new StampedLock();
+        this.metricas = crearMetricas();
+        this.directorio = directorio;
+        try {
+            Files.createDirectories(directorio);
+            PuntoControl punto = PuntoControl.cargar(directorio.resolve(ARCHIVO_PUNTO_CONTROL));
+            ResultadoCarga carga = cargarLibros(punto.getLibros());
+            if (!carga.sinRechazos())
+                throw new IOException("El punto de control tiene libros inválidos: " + carga.getRechazos());
+            long ultima = DiarioEscritura.reproducir(directorio.resolve(ARCHIVO_DIARIO),
+                                                     punto.getSecuencia(), this::reaplicar);
+            this.diario = new DiarioEscritura(directorio.resolve(ARCHIVO_DIARIO), politica,
+                                              INTERVALO_SINCRONIZACION_MS, ultima);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el catálogo en '" + directorio + "'.", e);
+        }
+    }
+
+    private MetricasCatalogo crearMetricas() {
+        MetricasCatalogo nuevas = new MetricasCatalogo(catalogo::altura, catalogo::contarNodos);
+        catalogo.medirComparaciones(nuevas.getComparaciones());
+        return nuevas;
+    }
+
     // =========================================================
     //  DATOS DE PRUEBA
     // =========================================================
@@ -33,26 +199,69 @@ public class BibliotecaService {
             new Libro("978-0-12", "La Ciudad y los Perros",  "Vargas Ll., Mario",    "Seix Barral",    1963, "Literatura"),
             new Libro("978-0-13", "Pedro Páramo",            "Rulfo, Juan",          "FCE",            1955, "Literatura"),
         };
-        for (Libro l : libros) catalogo.insertar(l);
+        cargarLibros(Arrays.asList(libros));
     }
 
     // =========================================================
     //  GESTIÓN DEL CATÁLOGO
     // =========================================================
 
+    /**
+     * Registra un libro nuevo en el catálogo.
+     * @throws IllegalArgumentException si ya existe un libro con el mismo autor o ISBN.
+     */
     public void registrarLibro(Libro libro) {
+        medir(Operacion.REGISTRAR, () -> modificar(() -> {
+            OperacionDiario operacion = preparar(OperacionDiario.registrar(libro));
+            aplicarRegistro(libro);
+            anotar(operacion);
+        }));
+    }
+
+    private void aplicarRegistro(Libro libro) {
+        if (libro != null && catalogo.existeIsbn(libro.getIsbn()))
+            throw new IllegalArgumentException(
+                "El ISBN '" + libro.getIsbn() + "' ya está registrado para el libro '"
+                + catalogo.buscarPorIsbn(libro.getIsbn()).getTitulo() + "'.");
         catalogo.insertar(libro);
+        if (!libro.isDisponible()) contarPrestamo(libro);
+    }
+
+    /**
+     * Carga un lote de libros (importaciones, recargas nocturnas) construyendo el árbol
+     * balanceado en tiempo lineal. Los libros repetidos o inválidos no detienen la carga;
+     * se informan todos en el resultado.
+     */
+    public ResultadoCarga cargarLibros(Collection<Libro> libros) {
+        return medir(Operacion.CARGA_MASIVA, () -> modificar(() -> {
+            ResultadoCarga resultado = diario == null ? catalogo.cargarMasivo(libros)
+                : catalogo.cargarMasivo(libros, libro -> OperacionDiario.registrar(libro).validar());
+            for (Libro l : resultado.getLibrosAceptados()) {
+                if (!l.isDisponible()) contarPrestamo(l);
+                anotar(OperacionDiario.registrar(l));
+            }
+            return resultado;
+        }));
     }
 
     public Libro buscarPorAutor(String autor) {
-        return catalogo.buscar(autor);
+        return medir(Operacion.BUSCAR_AUTOR, () -> catalogo.buscar(autor));
     }
 
     public Libro buscarPorIsbn(String isbn) {
-        return catalogo.buscarPorIsbn(isbn);
+        return medir(Operacion.BUSCAR_ISBN, () -> leer(() -> catalogo.buscarPorIsbn(isbn)));
     }
 
     public boolean eliminarLibro(String autor) {
+        return medir(Operacion.ELIMINAR, () -> modificar(() -> {
+            OperacionDiario operacion = preparar(OperacionDiario.eliminar(autor));
+            boolean eliminado = aplicarEliminacion(autor);
+            if (eliminado) anotar(operacion);
+            return eliminado;
+        }));
+    }
+
+    private boolean aplicarEliminacion(String autor) {
         Libro libro = catalogo.buscar(autor);
         if (libro != null && !libro.isDisponible()) {
             throw new IllegalStateException(
@@ -66,23 +275,68 @@ public class BibliotecaService {
     // =========================================================
 
     /**
-     * Registra el préstamo de un libro.
-     * @throws IllegalStateException si el libro no existe o ya está prestado.
+     * Registra el préstamo de un libro. La verificación de disponibilidad, la del límite de
+     * préstamos del lector y el cambio de estado ocurren bajo el mismo cerrojo de escritura;
+     * el libro se verifica primero, así que un libro inexistente o prestado se informa como
+     * tal aunque el lector esté en su límite.
+     * @throws IllegalStateException si el libro no existe, ya está prestado o el lector
+     *         alcanzó su límite de préstamos.
      */
     public void registrarPrestamo(String autor, String nombrePrestatario) {
-        if (nombrePrestatario == null || nombrePrestatario.trim().isEmpty())
-            throw new IllegalArgumentException("El nombre del prestatario no puede estar vacío.");
+        medir(Operacion.PRESTAMO, () -> {
+            if (nombrePrestatario == null || nombrePrestatario.trim().isEmpty())
+                throw new IllegalArgumentException("El nombre del prestatario no puede estar vacío.");
+
+            String prestatario = nombrePrestatario.trim();
+            modificar(() -> {
+                LocalDate hoy = LocalDate.now();
+                OperacionDiario operacion = preparar(OperacionDiario.prestamo(autor, prestatario, hoy));
+                Libro libro = libroParaPrestar(autor);
+                verificarLimite(prestatario);
+                prestar(libro, prestatario, hoy);
+                anotar(operacion);
+            });
+        });
+    }
+
+    private void aplicarPrestamo(String autor, String prestatario, LocalDate fecha) {
+        prestar(libroParaPrestar(autor), prestatario, fecha);
+    }
 
+    /** El libro del autor si existe y está disponible. */
+    private Libro libroParaPrestar(String autor) {
         Libro libro = catalogo.buscar(autor);
         if (libro == null)
             throw new IllegalStateException("No se encontró ningún libro del autor '" + autor + "'.");
-        if (!libro.isDisponible())
+        Libro.EstadoPrestamo estado = libro.getEstadoPrestamo();
+        if (!estado.isDisponible())
             throw new IllegalStateException(
-                "El libro ya está prestado a '" + libro.getPrestatario() + "' desde " + libro.getFechaPrestamo());
+                "El libro ya está prestado a '" + estado.getPrestatario() + "' desde " + estado.getFechaPrestamo());
+        return libro;
+    }
+
+    private void prestar(Libro libro, String prestatario, LocalDate fecha) {
+        catalogo.prestar(libro, prestatario, fecha);
+        contarPrestamo(libro);
+    }
 
-        libro.setDisponible(false);
-        libro.setPrestatario(nombrePrestatario.trim());
-        libro.setFechaPrestamo(LocalDate.now());
+    /** Suma un libro prestado a los contadores e índices de préstamos. */
+    private void contarPrestamo(Libro libro) {
+        prestados++;
+        vencimientos.agregar(libro);
+        prestatarios.agregar(libro);
+    }
+
+    /** El límite se controla solo en préstamos nuevos, no al reproducir el diario ni al importar. */
+    private void verificarLimite(String prestatario) {
+        int limite = limitePrestamos;
+        if (limiteAlcanzado(prestatario, limite))
+            throw new IllegalStateException(
+                "El lector '" + prestatario + "' ya tiene " + limite + " libro(s) prestado(s), el máximo permitido.");
+    }
+
+    private boolean limiteAlcanzado(String prestatario, int limite) {
+        return limite != SIN_LIMITE && prestatarios.cantidad(prestatario) >= limite;
     }
 
     /**
@@ -90,28 +344,372 @@ public class BibliotecaService {
      * @throws IllegalStateException si el libro no existe o no está prestado.
      */
     public void registrarDevolucion(String autor) {
+        medir(Operacion.DEVOLUCION, () -> modificar(() -> {
+            OperacionDiario operacion = preparar(OperacionDiario.devolucion(autor));
+            aplicarDevolucion(autor);
+            anotar(operacion);
+        }));
+    }
+
+    private void aplicarDevolucion(String autor) {
         Libro libro = catalogo.buscar(autor);
         if (libro == null)
             throw new IllegalStateException("No se encontró ningún libro del autor '" + autor + "'.");
         if (libro.isDisponible())
             throw new IllegalStateException("El libro de '" + autor + "' no está registrado como prestado.");
+        devolver(libro);
+    }
 
-        libro.setDisponible(true);
-        libro.setPrestatario(null);
-        libro.setFechaPrestamo(null);
+    private void devolver(Libro libro) {
+        vencimientos.quitar(libro);
+        prestatarios.quitar(libro);
+        catalogo.devolver(libro);
+        prestados--;
+    }
+
+    // =========================================================
+    //  LOTES DE PRÉSTAMOS Y DEVOLUCIONES
+    // =========================================================
+
+    /**
+     * Procesa un lote de préstamos y devoluciones (inicio y fin de cuatrimestre) bajo una
+     * sola toma del cerrojo de escritura y con una sola espera del diario. Las operaciones
+     * se ordenan por autor (sin alterar el orden entre las del mismo autor, así que un
+     * préstamo seguido de su devolución se aplica en ese orden) y los libros se buscan en
+     * una sola pasada por el árbol ({@link Catalogo#buscarClaves}).
+     * <p>
+     * Una operación que no puede aplicarse no detiene el lote: queda anotada en el
+     * resultado con su {@link ResultadoLote.Estado} y las demás siguen.
+     */
+    public ResultadoLote procesarLote(List<OperacionLote> operaciones) {
+        if (operaciones == null) throw new IllegalArgumentException("El lote de operaciones no puede ser nulo.");
+        List<OperacionLote> copia = new ArrayList<>(operaciones);
+        return medir(Operacion.LOTE, () -> modificar(() -> aplicarLote(copia)));
+    }
+
+    private ResultadoLote aplicarLote(List<OperacionLote> operaciones) {
+        int n = operaciones.size();
+        ResultadoLote.Estado[] estados = new ResultadoLote.Estado[n];
+        String[] claves = new String[n];
+        List<Integer> validas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            OperacionLote op = operaciones.get(i);
+            boolean valida = op != null && op.getAutor() != null && !op.getAutor().trim().isEmpty()
+                && (op.getTipo() == OperacionLote.Tipo.DEVOLUCION
+                    || op.getPrestatario() != null && !op.getPrestatario().trim().isEmpty());
+            if (!valida) {
+                estados[i] = ResultadoLote.Estado.INVALIDA;
+                continue;
+            }
+            claves[i] = ClaveAutor.de(op.getAutor());
+            validas.add(i);
+        }
+        validas.sort(Comparator.comparing(i -> claves[i]));   // orden estable
+
+        String[] distintas = validas.stream().map(i -> claves[i]).distinct().toArray(String[]::new);
+        Libro[] libros = catalogo.buscarClaves(distintas);
+        LocalDate hoy = LocalDate.now();
+        int limite = limitePrestamos;
+        for (int j = 0, k = -1; j < validas.size(); j++) {
+            int i = validas.get(j);
+            if (k < 0 || !distintas[k].equals(claves[i])) k++;
+            estados[i] = aplicarOperacionLote(operaciones.get(i), libros[k], hoy, limite);
+        }
+        return new ResultadoLote(operaciones, estados);
+    }
+
+    private ResultadoLote.Estado aplicarOperacionLote(OperacionLote op, Libro libro, LocalDate hoy, int limite) {
+        if (libro == null) return ResultadoLote.Estado.NO_ENCONTRADO;
+        if (op.getTipo() == OperacionLote.Tipo.DEVOLUCION) {
+            if (libro.isDisponible()) return ResultadoLote.Estado.NO_PRESTADO;
+            OperacionDiario operacion = OperacionDiario.devolucion(op.getAutor());
+            if (!anotable(operacion)) return ResultadoLote.Estado.INVALIDA;
+            devolver(libro);
+            anotar(operacion);
+        } else {
+            String prestatario = op.getPrestatario().trim();
+            if (!libro.isDisponible()) return ResultadoLote.Estado.YA_PRESTADO;
+            if (limiteAlcanzado(prestatario, limite)) return ResultadoLote.Estado.LIMITE_ALCANZADO;
+            OperacionDiario operacion = OperacionDiario.prestamo(op.getAutor(), prestatario, hoy);
+            if (!anotable(operacion)) return ResultadoLote.Estado.INVALIDA;
+            prestar(libro, prestatario, hoy);
+            anotar(operacion);
+        }
+        return ResultadoLote.Estado.EXITO;
+    }
+
+    // =========================================================
+    //  LECTORES
+    // =========================================================
+
+    /** Libros que tiene prestados el lector, en orden alfabético por autor. */
+    public List<Libro> librosDePrestatario(String prestatario) {
+        return medir(Operacion.PRESTATARIO, () -> leer(() -> prestatarios.libros(prestatario)));
+    }
+
+    /** Cantidad de libros que tiene prestados el lector, en O(1). */
+    public int prestamosDe(String prestatario) {
+        return leer(() -> prestatarios.cantidad(prestatario));
+    }
+
+    /**
+     * Máximo de libros que puede tener prestados un lector a la vez; {@link #SIN_LIMITE}
+     * (el valor inicial) no limita. Los préstamos que ya exceden un límite nuevo se
+     * conservan.
+     */
+    public void setLimitePrestamos(int limite) {
+        if (limite < 0) throw new IllegalArgumentException("El límite de préstamos no puede ser negativo.");
+        this.limitePrestamos = limite;
+    }
+
+    public int getLimitePrestamos() {
+        return limitePrestamos;
+    }
+
+    // =========================================================
+    //  VENCIMIENTOS
+    // =========================================================
+
+    /**
+     * Préstamos vencidos a la fecha indicada, del más atrasado al más reciente, sin
+     * recorrer el catálogo: O(log n + k).
+     */
+    public List<Libro> prestamosVencidos(LocalDate fecha) {
+        if (fecha == null) throw new IllegalArgumentException("La fecha no puede ser nula.");
+        return medir(Operacion.VENCIMIENTOS, () -> leer(() -> vencimientos.vencidos(fecha)));
+    }
+
+    /** Los próximos {@code cantidad} préstamos en vencer a partir de hoy, en orden de vencimiento. */
+    public List<Libro> proximosVencimientos(int cantidad) {
+        return medir(Operacion.VENCIMIENTOS, () -> leer(() -> vencimientos.proximos(LocalDate.now(), cantidad)));
+    }
+
+    /** Fecha de vencimiento del préstamo del libro, o null si no está prestado o no tiene fecha. */
+    public LocalDate fechaVencimiento(Libro libro) {
+        return vencimientos.vencimiento(libro);
+    }
+
+    // =========================================================
+    //  IMPORTACIÓN Y EXPORTACIÓN
+    // =========================================================
+
+    /**
+     * Importa libros desde un archivo CSV o JSON Lines (según su extensión), incluido su
+     * estado de préstamo. Se lee en streaming y se carga por lotes; cada lote toma el
+     * cerrojo de escritura por separado, así que la atención no se detiene durante una
+     * importación larga.
+     */
+    public ResultadoImportacion importarCatalogo(Path archivo) {
+        return importarCatalogo(archivo, FormatoIntercambio.deArchivo(archivo));
+    }
+
+    public ResultadoImportacion importarCatalogo(Path archivo, FormatoIntercambio formato) {
+        return medir(Operacion.IMPORTAR, () -> {
+            try {
+                return IntercambioCatalogo.importar(archivo, formato, this::cargarLibros);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer '" + archivo + "'.", e);
+            }
+        });
+    }
+
+    /**
+     * Exporta el catálogo en orden alfabético a un archivo CSV o JSON Lines (según su
+     * extensión). Recorre una instantánea, así que no bloquea préstamos ni altas.
+     * @return la cantidad de libros exportados.
+     */
+    public long exportarCatalogo(Path archivo) {
+        return exportarCatalogo(archivo, FormatoIntercambio.deArchivo(archivo));
+    }
+
+    public long exportarCatalogo(Path archivo, FormatoIntercambio formato) {
+        return medir(Operacion.EXPORTAR, () -> {
+            try {
+                try (VistaCatalogo instantanea = catalogo.instantanea()) {
+                    return IntercambioCatalogo.exportar(archivo, formato, instantanea.iterator());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo escribir '" + archivo + "'.", e);
+            }
+        });
+    }
+
+    // =========================================================
+    //  PERSISTENCIA
+    // =========================================================
+
+    /** Indica si el catálogo se guarda en disco (creado con un directorio de datos). */
+    public boolean esPersistente() {
+        return diario != null;
+    }
+
+    /**
+     * Guarda un punto de control con el catálogo completo y vacía el diario, para que el
+     * próximo inicio no tenga que reproducir esas operaciones. Toma el cerrojo de lectura
+     * mientras escribe: las consultas siguen respondiendo pero las modificaciones esperan.
+     * El diario se vacía solo cuando el reemplazo del punto de control quedó sincronizado
+     * en disco; si el sistema no permite confirmarlo se conserva entero (al iniciar se
+     * saltean las operaciones que ya están en el punto de control).
+     */
+    public void puntoDeControl() {
+        if (diario == null) throw new IllegalStateException("El catálogo no es persistente.");
+        medir(Operacion.PUNTO_CONTROL, () -> {
+            synchronized (guardandoPuntoControl) {
+                leer(() -> {
+                    try (VistaCatalogo instantanea = catalogo.instantanea()) {
+                        boolean durable = PuntoControl.guardar(directorio.resolve(ARCHIVO_PUNTO_CONTROL),
+                            diario.getUltimaSecuencia(), instantanea.contarNodos(), instantanea.iterator());
+                        if (durable) diario.reiniciar();
+                        diarioTrasPuntoControl = durable ? 0 : diario.tamanio();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("No se pudo guardar el punto de control.", e);
+                    }
+                    return null;
+                });
+            }
+        });
+    }
+
+    /**
+     * Detiene el volcado de métricas y las quita de JMX; si el catálogo es persistente,
+     * además guarda un punto de control y cierra el diario, y el servicio ya no acepta
+     * modificaciones.
+     */
+    public void cerrar() {
+        metricas.detener();
+        if (diario == null) return;
+        puntoDeControl();
+        try {
+            diario.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cerrar el diario de escritura.", e);
+        }
+    }
+
+    /** Repite una operación leída del diario al iniciar; no se vuelve a anotar. */
+    private void reaplicar(OperacionDiario operacion) {
+        switch (operacion.getTipo()) {
+            case REGISTRAR:  aplicarRegistro(operacion.getLibro()); break;
+            case ELIMINAR:   aplicarEliminacion(operacion.getAutor()); break;
+            case PRESTAMO:   aplicarPrestamo(operacion.getAutor(), operacion.getPrestatario(), operacion.getFecha()); break;
+            case DEVOLUCION: aplicarDevolucion(operacion.getAutor()); break;
+        }
+    }
+
+    /**
+     * Valida la operación para el diario antes de aplicarla, para que un error al anotarla
+     * no deje en memoria un cambio que no quedó guardado. Sin diario no hace nada.
+     * @throws IllegalArgumentException si la operación no se puede anotar.
+     */
+    private OperacionDiario preparar(OperacionDiario operacion) {
+        if (diario != null) operacion.validar();
+        return operacion;
+    }
+
+    /** Como {@link #preparar}, para los lotes: indica si la operación se puede anotar. */
+    private boolean anotable(OperacionDiario operacion) {
+        try {
+            preparar(operacion);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Anota en el diario una operación ya aplicada; debe llamarse bajo el cerrojo de escritura. */
+    private void anotar(OperacionDiario operacion) {
+        if (diario != null) secuenciaPendiente = diario.registrar(operacion);
     }
 
     // =========================================================
     //  LISTADOS Y FILTROS
     // =========================================================
 
-    public List<Libro> listarTodosInOrden()     { return catalogo.recorridoInOrden(); }
-    public List<Libro> listarTodosPreOrden()    { return catalogo.recorridoPreOrden(); }
-    public List<Libro> listarTodosPostOrden()   { return catalogo.recorridoPostOrden(); }
-    public List<Libro> listarDisponibles()      { return catalogo.listarDisponibles(); }
-    public List<Libro> listarPrestados()        { return catalogo.listarPrestados(); }
-    public List<Libro> buscarPorCategoria(String cat) { return catalogo.buscarPorCategoria(cat); }
-    public List<Libro> buscarPorAutorParcial(String sub) { return catalogo.buscarPorAutorParcial(sub); }
+    // Los listados completos y el filtro por categoría se guardan en la caché de resultados:
+    // mientras el catálogo no cambie, repetirlos copia la lista guardada sin recorrer el árbol.
+    // Salvo el InOrden, su orden depende de la forma del árbol (los filtros recorren en
+    // PreOrden); ver consultarSegunForma.
+
+    public List<Libro> listarTodosInOrden()     { return consultarConCache(Operacion.LISTADO, "inorden", catalogo::recorridoInOrden); }
+    public List<Libro> listarTodosPreOrden()    { return consultarSegunForma(Operacion.LISTADO, "preorden", catalogo::recorridoPreOrden); }
+    public List<Libro> listarTodosPostOrden()   { return consultarSegunForma(Operacion.LISTADO, "postorden", catalogo::recorridoPostOrden); }
+    public List<Libro> listarDisponibles()      { return consultarSegunForma(Operacion.LISTADO, "disponibles", catalogo::listarDisponibles); }
+    public List<Libro> listarPrestados()        { return consultarSegunForma(Operacion.LISTADO, "prestados", catalogo::listarPrestados); }
+
+    public List<Libro> buscarPorCategoria(String cat) {
+        return consultarSegunForma(Operacion.BUSCAR_CATEGORIA, "categoria:" + cat, () -> catalogo.buscarPorCategoria(cat));
+    }
+
+    public List<Libro> buscarPorAutorParcial(String sub) {
+        return medir(Operacion.BUSCAR_SUBCADENA, () -> leer(() -> catalogo.buscarPorAutorParcial(sub)));
+    }
+
+    public List<Libro> buscarPorPrefijoAutor(String prefijo) {
+        return medir(Operacion.BUSCAR_PREFIJO, () -> catalogo.buscarPorPrefijoAutor(prefijo));
+    }
+
+    public List<Libro> buscarRangoAutores(String desde, String hasta) {
+        return medir(Operacion.BUSCAR_RANGO, () -> catalogo.buscarRangoAutores(desde, hasta));
+    }
+
+    /**
+     * Abre una instantánea del catálogo para reportes con varias consultas: todas ven el
+     * mismo conjunto de libros, sin cerrojos y sin bloquear préstamos ni altas. Conviene
+     * cerrarla al terminar (ver {@link VistaCatalogo}).
+     */
+    public VistaCatalogo abrirInstantanea() {
+        return catalogo.instantanea();
+    }
+
+    // =========================================================
+    //  LISTADOS PEREZOSOS (STREAMS)
+    // =========================================================
+    // Recorren una instantánea del árbol a medida que se consumen: sirven para volcar el
+    // catálogo a un archivo o quedarse con los primeros resultados sin construir la lista
+    // completa, y no bloquean a las operaciones que modifican el catálogo.
+
+    public Stream<Libro> streamTodosInOrden()   { return catalogo.streamInOrden(); }
+    public Stream<Libro> streamTodosPreOrden()  { return catalogo.streamPreOrden(); }
+    public Stream<Libro> streamTodosPostOrden() { return catalogo.streamPostOrden(); }
+
+    public Stream<Libro> streamDisponibles() {
+        return catalogo.streamPreOrden().filter(Libro::isDisponible);
+    }
+
+    public Stream<Libro> streamPrestados() {
+        return catalogo.streamPreOrden().filter(l -> !l.isDisponible());
+    }
+
+    public Stream<Libro> streamPorCategoria(String cat) {
+        if (cat == null || cat.trim().isEmpty())
+            throw new IllegalArgumentException("La categoría no puede estar vacía.");
+        return catalogo.streamPorCategoria(cat);
+    }
+
+    // =========================================================
+    //  LISTADO PAGINADO (ORDEN ALFABÉTICO)
+    // =========================================================
+
+    /**
+     * Retorna la página indicada (empezando en 1) del listado alfabético por autor.
+     * Solo se recorren los libros de esa página: O(log n + tamanioPagina).
+     */
+    public List<Libro> listarPagina(int pagina, int tamanioPagina) {
+        if (pagina < 1) throw new IllegalArgumentException("El número de página debe ser mayor o igual a 1.");
+        if (tamanioPagina < 1) throw new IllegalArgumentException("El tamaño de página debe ser mayor o igual a 1.");
+        return medir(Operacion.PAGINA, () -> catalogo.rangoInOrden((pagina - 1) * tamanioPagina, tamanioPagina));
+    }
+
+    public int totalPaginas(int tamanioPagina) {
+        if (tamanioPagina < 1) throw new IllegalArgumentException("El tamaño de página debe ser mayor o igual a 1.");
+        return (totalLibros() + tamanioPagina - 1) / tamanioPagina;
+    }
+
+    /** Libro en la posición indicada del orden alfabético (empezando en 1). */
+    public Libro libroEnPosicion(int posicion)   { return catalogo.seleccionar(posicion - 1); }
+
+    /** Posición del autor en el orden alfabético (empezando en 1), o 0 si no existe. */
+    public int posicionDeAutor(String autor)     { return catalogo.posicion(autor) + 1; }
 
     // =========================================================
     //  ESTADÍSTICAS
@@ -121,9 +719,152 @@ public class BibliotecaService {
     public int alturaArbol()       { return catalogo.altura(); }
     public Libro primerAutor()     { return catalogo.encontrarMinimo(); }
     public Libro ultimoAutor()     { return catalogo.encontrarMaximo(); }
-    public int totalDisponibles()  { return catalogo.listarDisponibles().size(); }
-    public int totalPrestados()    { return catalogo.listarPrestados().size(); }
+    public int totalDisponibles()  { return leerOptimista(() -> catalogo.contarNodos() - prestados); }
+    public int totalPrestados()    { return leerOptimista(() -> prestados); }
+    public int totalPorCategoria(String cat)           { return leer(() -> catalogo.contarPorCategoria(cat)); }
+
+    /** Copia del conteo por categoría, tomada bajo el cerrojo de lectura. */
+    public Map<String, Integer> totalesPorCategoria() {
+        return leer(() -> new TreeMap<>(catalogo.conteoPorCategoria()));
+    }
 
     public void imprimirArbol()    { catalogo.imprimirArbol(); }
     public boolean catalogoVacio() { return catalogo.isEmpty(); }
+
+    // =========================================================
+    //  MÉTRICAS
+    // =========================================================
+
+    /** Métricas de las operaciones del servicio; ver {@link MetricasCatalogo#registrarEnJmx}. */
+    public MetricasCatalogo getMetricas() {
+        return metricas;
+    }
+
+    private <T> T medir(Operacion operacion, Supplier<T> accion) {
+        long inicio = System.nanoTime();
+        boolean exitosa = false;
+        try {
+            T resultado = accion.get();
+            exitosa = true;
+            return resultado;
+        } finally {
+            metricas.registrar(operacion, System.nanoTime() - inicio, exitosa);
+        }
+    }
+
+    private void medir(Operacion operacion, Runnable accion) {
+        medir(operacion, () -> {
+            accion.run();
+            return null;
+        });
+    }
+
+    // =========================================================
+    //  CACHÉ DE RESULTADOS
+    // =========================================================
+
+    /** Versión actual del catálogo; cambia con cada alta, baja, préstamo, devolución o carga. */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Devuelve una copia del resultado guardado para {@code clave} si se calculó sobre la
+     * versión actual del catálogo; si no, ejecuta la consulta y guarda su resultado. La
+     * versión se lee antes de consultar, así que un resultado que vio una modificación
+     * concurrente queda guardado con la versión anterior y no vuelve a usarse.
+     */
+    private List<Libro> consultarConCache(Operacion operacion, String clave, Supplier<List<Libro>> consulta) {
+        return medir(operacion, () -> {
+            long vista = version;
+            List<Libro> guardada = cache.obtener(clave, vista);
+            metricas.registrarCache(guardada != null);
+            if (guardada == null) {
+                guardada = consulta.get();
+                cache.guardar(clave, vista, guardada);
+            }
+            return new ArrayList<>(guardada);
+        });
+    }
+
+    /**
+     * Para los listados cuyo orden depende de la forma del árbol. En modo splay cada
+     * búsqueda reorganiza el árbol sin cambiar la versión del catálogo, así que un resultado
+     * guardado quedaría con el orden de una forma anterior: en ese modo se calculan siempre.
+     */
+    private List<Libro> consultarSegunForma(Operacion operacion, String clave, Supplier<List<Libro>> consulta) {
+        if (catalogo.getModo() != ModoBalanceo.SPLAY) return consultarConCache(operacion, clave, consulta);
+        return medir(operacion, consulta);
+    }
+
+    // =========================================================
+    //  CONTROL DE CONCURRENCIA
+    // =========================================================
+
+    private <T> T leer(Supplier<T> consulta) {
+        long sello = cerrojo.readLock();
+        try {
+            return consulta.get();
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Lectura optimista para valores O(1): no bloquea y solo repite la consulta bajo el
+     * cerrojo de lectura si una escritura ocurrió mientras tanto.
+     */
+    private int leerOptimista(IntSupplier consulta) {
+        long sello = cerrojo.tryOptimisticRead();
+        int valor = consulta.getAsInt();
+        if (cerrojo.validate(sello)) return valor;
+        sello = cerrojo.readLock();
+        try {
+            return consulta.getAsInt();
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Aplica una modificación bajo el cerrojo de escritura y, si quedó anotada en el
+     * diario, espera que se guarde después de soltarlo.
+     */
+    private <T> T modificar(Supplier<T> operacion) {
+        long anterior = 0, secuencia;
+        T resultado;
+        long sello = cerrojo.writeLock();
+        try {
+            if (diario != null) {
+                diario.verificar();
+                anterior = diario.getUltimaSecuencia();
+            }
+            resultado = operacion.get();
+            secuencia = secuenciaPendiente;
+        } finally {
+            secuenciaPendiente = 0;
+            version++;
+            cerrojo.unlockWrite(sello);
+        }
+        if (secuencia > 0) {
+            diario.esperarDurable(secuencia);
+            if (secuencia / REVISAR_DIARIO_CADA != anterior / REVISAR_DIARIO_CADA) puntoDeControlSiCorresponde();
+        }
+        return resultado;
+    }
+
+    private void modificar(Runnable operacion) {
+        modificar(() -> {
+            operacion.run();
+            return null;
+        });
+    }
+
+    private void puntoDeControlSiCorresponde() {
+        try {
+            if (diario.tamanio() - diarioTrasPuntoControl > LIMITE_DIARIO_BYTES) puntoDeControl();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo revisar el tamaño del diario.", e);
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package servicio;
+
+import modelo.Libro;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caché de resultados de listados y filtros, con capacidad fija y desalojo del menos
+ * usado recientemente (LRU).
+ * <p>
+ * Cada resultado se guarda con la versión del catálogo sobre la que se calculó; una
+ * entrada solo sirve mientras la versión no cambie, así que no hace falta invalidar
+ * nada al modificar el catálogo. Las entradas viejas se descartan al consultarlas o las
+ * desaloja el LRU. Es segura para uso concurrente.
+ */
+final class CacheConsultas {
+
+    private final Map<String, Entrada> entradas;
+
+    CacheConsultas(int capacidad) {
+        if (capacidad < 1) throw new IllegalArgumentException("La capacidad de la caché debe ser al menos 1.");
+        this.entradas = new LinkedHashMap<String, Entrada>(capacidad * 4 / 3 + 1, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    /** Resultado guardado para {@code clave} en la versión indicada, o null si no hay o es de otra versión. */
+    synchronized List<Libro> obtener(String clave, long version) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada == null) return null;
+        if (entrada.version != version) {
+            entradas.remove(clave);
+            return null;
+        }
+        return entrada.libros;
+    }
+
+    /** Guarda el resultado; la lista no debe modificarse después. */
+    synchronized void guardar(String clave, long version, List<Libro> libros) {
+        entradas.put(clave, new Entrada(version, libros));
+    }
+
+    private static final class Entrada {
+        final long version;
+        final List<Libro> libros;
+
+        Entrada(long version, List<Libro> libros) {
+            this.version = version;
+            this.libros = libros;
+        }
+    }
+}
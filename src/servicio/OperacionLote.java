@@ -0,0 +1,39 @@
+package servicio;
+
+/**
+ * Préstamo o devolución dentro de un lote procesado con
+ * {@link BibliotecaService#procesarLote}.
+ */
+public final class OperacionLote {
+
+    public enum Tipo { PRESTAMO, DEVOLUCION }
+
+    private final Tipo tipo;
+    private final String autor;
+    private final String prestatario;
+
+    private OperacionLote(Tipo tipo, String autor, String prestatario) {
+        this.tipo = tipo;
+        this.autor = autor;
+        this.prestatario = prestatario;
+    }
+
+    public static OperacionLote prestamo(String autor, String prestatario) {
+        return new OperacionLote(Tipo.PRESTAMO, autor, prestatario);
+    }
+
+    public static OperacionLote devolucion(String autor) {
+        return new OperacionLote(Tipo.DEVOLUCION, autor, null);
+    }
+
+    public Tipo getTipo()          { return tipo; }
+    public String getAutor()       { return autor; }
+    /** Solo en préstamos. */
+    public String getPrestatario() { return prestatario; }
+
+    @Override
+    public String toString() {
+        return tipo == Tipo.PRESTAMO ? "préstamo de '" + autor + "' a '" + prestatario + "'"
+                                     : "devolución de '" + autor + "'";
+    }
+}
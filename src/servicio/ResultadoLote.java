@@ -0,0 +1,64 @@
+package servicio;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de {@link BibliotecaService#procesarLote}: el estado de cada operación, en
+ * el mismo orden en que se entregaron.
+ */
+public class ResultadoLote {
+
+    /** Cómo terminó una operación del lote. */
+    public enum Estado {
+        /** Se aplicó. */
+        EXITO,
+        /** Préstamo de un libro que ya estaba prestado. */
+        YA_PRESTADO,
+        /** Devolución de un libro que no estaba prestado. */
+        NO_PRESTADO,
+        /** No hay ningún libro de ese autor. */
+        NO_ENCONTRADO,
+        /** El lector ya tiene la cantidad máxima de libros prestados. */
+        LIMITE_ALCANZADO,
+        /** Operación nula, sin autor, sin prestatario en un préstamo, o con textos que no caben en el diario. */
+        INVALIDA
+    }
+
+    private final List<OperacionLote> operaciones;
+    private final Estado[] estados;
+
+    ResultadoLote(List<OperacionLote> operaciones, Estado[] estados) {
+        this.operaciones = operaciones;
+        this.estados = estados;
+    }
+
+    public int getTotal()                        { return estados.length; }
+    public Estado getEstado(int indice)          { return estados[indice]; }
+    public OperacionLote getOperacion(int indice) { return operaciones.get(indice); }
+    public List<Estado> getEstados()             { return Collections.unmodifiableList(Arrays.asList(estados)); }
+
+    public int contar(Estado estado) {
+        int total = 0;
+        for (Estado e : estados) if (e == estado) total++;
+        return total;
+    }
+
+    public int getExitosas()                     { return contar(Estado.EXITO); }
+    public boolean todasExitosas()               { return getExitosas() == estados.length; }
+
+    /** Cantidad de operaciones por estado, solo de los estados que aparecen. */
+    public Map<Estado, Integer> resumen() {
+        Map<Estado, Integer> resumen = new EnumMap<>(Estado.class);
+        for (Estado e : estados) resumen.merge(e, 1, Integer::sum);
+        return resumen;
+    }
+
+    @Override
+    public String toString() {
+        return getExitosas() + " de " + estados.length + " operación(es) aplicada(s) " + resumen();
+    }
+}
@@ -0,0 +1,388 @@
+package verificacion;
+
+import estructura.Almacenamiento;
+import estructura.ModoBalanceo;
+import modelo.Libro;
+import servicio.BibliotecaService;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de estrés de {@link BibliotecaService} con varios hilos, ejecutable por sí sola:
+ * termina con código 0 si todo se cumple y con código 1 si encuentra un fallo.
+ * <p>
+ * Tiene dos etapas:
+ * <ol>
+ *   <li><b>Préstamo simultáneo.</b> En cada ronda varios hilos piden prestado el mismo
+ *       libro a la vez y, en una de cada cuatro rondas, otro hilo intenta eliminarlo. Si el
+ *       libro sigue en el catálogo, exactamente un hilo debe obtenerlo y los demás deben
+ *       recibir el rechazo; si la eliminación ganó, nadie debe haberlo obtenido.</li>
+ *   <li><b>Carga mixta.</b> Durante el tiempo indicado varios hilos prestan, devuelven,
+ *       eliminan y vuelven a registrar libros al azar, con un límite de préstamos por
+ *       lector, mientras otros buscan por autor y por ISBN y consultan los préstamos de
+ *       cada lector. Cada libro leído debe tener un estado de préstamo completo (con
+ *       prestatario y fecha, o sin ninguno) y ningún lector puede superar el límite.</li>
+ * </ol>
+ * Al terminar, los contadores del servicio deben coincidir con las operaciones exitosas,
+ * con un recorrido completo del catálogo y con los índices de ISBN, de lectores y de
+ * vencimientos. Con {@code --almacenamiento COMPACTO} se verifica el {@link Almacenamiento#COMPACTO}.
+ * <pre>
+ * java -cp out verificacion.VerificacionConcurrencia --libros 2000 --hilos 4 --segundos 5
+ * </pre>
+ */
+public class VerificacionConcurrencia {
+
+    private static final int RONDAS_PRESTAMO_UNICO = 500;
+    private static final int LECTORES = 20;
+    private static final int LIMITE_PRESTAMOS = 3;
+
+    private int libros = 2_000;
+    private int hilos = 4;
+    private int segundos = 5;
+    private Almacenamiento almacenamiento = Almacenamiento.NODOS;
+
+    private final List<Libro> catalogo = new ArrayList<>();
+    private BibliotecaService servicio;
+    private int librosIniciales;
+
+    // Operaciones exitosas, para compararlas con los contadores del servicio
+    private final AtomicLong prestamos = new AtomicLong();
+    private final AtomicLong devoluciones = new AtomicLong();
+    private final AtomicLong eliminaciones = new AtomicLong();
+    private final AtomicLong registros = new AtomicLong();
+    private final ConcurrentLinkedQueue<String> fallos = new ConcurrentLinkedQueue<>();
+
+    public static void main(String[] args) {
+        VerificacionConcurrencia verificacion = new VerificacionConcurrencia();
+        try {
+            verificacion.leerOpciones(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.exit(2);
+        }
+        List<String> fallos = verificacion.ejecutar();
+        if (fallos.isEmpty()) {
+            System.out.println("✅ Sin fallos de concurrencia.");
+            return;
+        }
+        fallos.stream().limit(20).forEach(f -> System.err.println("❌ " + f));
+        if (fallos.size() > 20) System.err.println("   ... y " + (fallos.size() - 20) + " fallo(s) más.");
+        System.exit(1);
+    }
+
+    private void leerOpciones(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) throw new IllegalArgumentException("Falta el valor de la opción '" + args[i] + "'.");
+            if (args[i].equals("--almacenamiento")) {
+                almacenamiento = almacenamiento(args[++i]);
+                continue;
+            }
+            int valor = Integer.parseInt(args[++i]);
+            switch (args[i - 1]) {
+                case "--libros":   libros = valor; break;
+                case "--hilos":    hilos = valor; break;
+                case "--segundos": segundos = valor; break;
+                default: throw new IllegalArgumentException("Opción desconocida: '" + args[i - 1] + "'.");
+            }
+        }
+        if (libros < 1 || hilos < 1 || segundos < 1)
+            throw new IllegalArgumentException("Los libros, los hilos y los segundos deben ser mayores que 0.");
+    }
+
+    private static Almacenamiento almacenamiento(String texto) {
+        try {
+            return Almacenamiento.valueOf(texto.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Valor desconocido para --almacenamiento: '" + texto
+                + "'. Valores permitidos: " + Arrays.toString(Almacenamiento.values()) + ".");
+        }
+    }
+
+    /** Ejecuta las dos etapas y las verificaciones finales; retorna los fallos encontrados. */
+    List<String> ejecutar() {
+        servicio = new BibliotecaService(ModoBalanceo.AVL, almacenamiento);
+        for (int i = 0; i < libros; i++) catalogo.add(libroNumero(i));
+        servicio.cargarLibros(catalogo);
+        librosIniciales = servicio.totalLibros();
+
+        verificarPrestamoUnico();
+        if (fallos.isEmpty()) verificarCargaMixta();
+        if (fallos.isEmpty()) verificarConsistencia();
+        return new ArrayList<>(fallos);
+    }
+
+    private static Libro libroNumero(int i) {
+        return new Libro(String.format("979-%08d", i), "Título " + i, String.format("Autor %06d, Prueba", i),
+                         "Editorial " + (i % 7), 1900 + i % 120, "Categoría " + (i % 5));
+    }
+
+    // =========================================================
+    //  PRÉSTAMO SIMULTÁNEO
+    // =========================================================
+
+    private void verificarPrestamoUnico() {
+        int competidores = Math.max(2, hilos * 2);
+        CyclicBarrier largada = new CyclicBarrier(competidores + 2);
+        CyclicBarrier llegada = new CyclicBarrier(competidores + 2);
+        String[] autor = new String[1];
+        boolean[] eliminar = new boolean[1];
+        AtomicInteger exitos = new AtomicInteger();
+        AtomicInteger rechazos = new AtomicInteger();
+        AtomicBoolean eliminado = new AtomicBoolean();
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < competidores; h++) {
+            String lector = "Competidor " + h;
+            trabajadores.add(new Thread(() -> {
+                for (int ronda = 0; ronda < RONDAS_PRESTAMO_UNICO; ronda++) {
+                    if (!esperar(largada)) return;
+                    try {
+                        servicio.registrarPrestamo(autor[0], lector);
+                        exitos.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rechazos.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        fallos.add("Préstamo de '" + autor[0] + "': " + e);
+                    }
+                    if (!esperar(llegada)) return;
+                }
+            }, "competidor-" + h));
+        }
+        trabajadores.add(new Thread(() -> {
+            for (int ronda = 0; ronda < RONDAS_PRESTAMO_UNICO; ronda++) {
+                if (!esperar(largada)) return;
+                try {
+                    if (eliminar[0] && servicio.eliminarLibro(autor[0])) eliminado.set(true);
+                } catch (IllegalStateException e) {
+                    // Lo prestó otro hilo antes: no se puede eliminar
+                } catch (RuntimeException e) {
+                    fallos.add("Eliminación de '" + autor[0] + "': " + e);
+                }
+                if (!esperar(llegada)) return;
+            }
+        }, "eliminador"));
+        trabajadores.forEach(Thread::start);
+
+        for (int ronda = 0; ronda < RONDAS_PRESTAMO_UNICO && fallos.isEmpty(); ronda++) {
+            int numero = (int) ((ronda * 7919L) % libros);
+            autor[0] = catalogo.get(numero).getAutor();
+            eliminar[0] = ronda % 4 == 3;
+            exitos.set(0);
+            rechazos.set(0);
+            eliminado.set(false);
+            int prestadosAntes = servicio.totalPrestados();
+            if (!esperar(largada) || !esperar(llegada)) {
+                fallos.add("Se interrumpió la verificación de préstamo simultáneo.");
+                break;
+            }
+            int esperados = eliminado.get() ? 0 : 1;
+            if (exitos.get() != esperados || rechazos.get() != competidores - esperados) {
+                fallos.add(String.format("Ronda %d con '%s'%s: %d préstamo(s) y %d rechazo(s), se esperaba %d préstamo(s).",
+                    ronda, autor[0], eliminado.get() ? " (eliminado)" : "", exitos.get(), rechazos.get(), esperados));
+            } else if (servicio.totalPrestados() != prestadosAntes + esperados) {
+                fallos.add(String.format("Ronda %d con '%s': %d libros prestados, se esperaban %d.",
+                    ronda, autor[0], servicio.totalPrestados(), prestadosAntes + esperados));
+            } else if (eliminado.get()) {
+                eliminaciones.incrementAndGet();
+                servicio.registrarLibro(libroNumero(numero));
+                registros.incrementAndGet();
+            } else {
+                prestamos.incrementAndGet();
+                servicio.registrarDevolucion(autor[0]);
+                devoluciones.incrementAndGet();
+            }
+        }
+        detener(trabajadores);
+        if (fallos.isEmpty())
+            System.out.printf("Préstamo simultáneo: %d ronda(s) con %d hilo(s), un solo préstamo por ronda.%n",
+                RONDAS_PRESTAMO_UNICO, competidores);
+    }
+
+    // =========================================================
+    //  CARGA MIXTA
+    // =========================================================
+
+    private void verificarCargaMixta() {
+        servicio.setLimitePrestamos(LIMITE_PRESTAMOS);
+        AtomicBoolean fin = new AtomicBoolean();
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicLong lecturas = new AtomicLong();
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            trabajadores.add(new Thread(() -> {
+                esperar(largada);
+                while (!fin.get()) modificarAlAzar();
+            }, "escritor-" + h));
+            trabajadores.add(new Thread(() -> {
+                esperar(largada);
+                while (!fin.get()) {
+                    leerAlAzar();
+                    lecturas.incrementAndGet();
+                }
+            }, "lector-" + h));
+        }
+        trabajadores.forEach(Thread::start);
+        largada.countDown();
+        try {
+            Thread.sleep(segundos * 1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        fin.set(true);
+        unir(trabajadores);
+        System.out.printf("Carga mixta: %d préstamo(s), %d devolución(es), %d eliminación(es), %d alta(s) "
+            + "y %d lectura(s) en %d s.%n",
+            prestamos.get(), devoluciones.get(), eliminaciones.get(), registros.get(), lecturas.get(), segundos);
+    }
+
+    private void modificarAlAzar() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        int numero = azar.nextInt(libros);
+        String autor = catalogo.get(numero).getAutor();
+        int tipo = azar.nextInt(10);
+        try {
+            if (tipo < 4) {
+                servicio.registrarPrestamo(autor, "Lector " + azar.nextInt(LECTORES));
+                prestamos.incrementAndGet();
+            } else if (tipo < 8) {
+                servicio.registrarDevolucion(autor);
+                devoluciones.incrementAndGet();
+            } else if (tipo < 9) {
+                if (servicio.eliminarLibro(autor)) eliminaciones.incrementAndGet();
+            } else {
+                servicio.registrarLibro(libroNumero(numero));
+                registros.incrementAndGet();
+            }
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // Rechazo esperable: libro inexistente, ya prestado o no prestado, límite
+            // alcanzado, libro prestado que no se puede eliminar o alta repetida
+        } catch (RuntimeException e) {
+            fallos.add("Operación sobre '" + autor + "': " + e);
+        }
+    }
+
+    private void leerAlAzar() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        Libro muestra = catalogo.get(azar.nextInt(libros));
+        try {
+            verificarEstado(servicio.buscarPorAutor(muestra.getAutor()));
+            verificarEstado(servicio.buscarPorIsbn(muestra.getIsbn()));
+            String lector = "Lector " + azar.nextInt(LECTORES);
+            List<Libro> suyos = servicio.librosDePrestatario(lector);
+            if (suyos.size() > LIMITE_PRESTAMOS)
+                fallos.add("'" + lector + "' tiene " + suyos.size() + " libros prestados; el límite es " + LIMITE_PRESTAMOS + ".");
+            int prestados = servicio.totalPrestados();
+            if (prestados < 0 || prestados > servicio.totalLibros())
+                fallos.add("Total de prestados fuera de rango: " + prestados + ".");
+        } catch (RuntimeException e) {
+            fallos.add("Lectura de '" + muestra.getAutor() + "': " + e);
+        }
+    }
+
+    /** Un libro leído sin cerrojo debe tener prestatario y fecha si está prestado, y ninguno si no. */
+    private void verificarEstado(Libro libro) {
+        if (libro == null) return;
+        Libro.EstadoPrestamo estado = libro.getEstadoPrestamo();
+        boolean completo = estado.isDisponible()
+            ? estado.getPrestatario() == null && estado.getFechaPrestamo() == null
+            : estado.getPrestatario() != null && estado.getFechaPrestamo() != null;
+        if (!completo)
+            fallos.add(String.format("Estado de préstamo a medias en '%s': disponible=%s, prestatario=%s, fecha=%s.",
+                libro.getAutor(), estado.isDisponible(), estado.getPrestatario(), estado.getFechaPrestamo()));
+    }
+
+    // =========================================================
+    //  VERIFICACIÓN FINAL
+    // =========================================================
+
+    /** Con el servicio quieto, compara sus contadores con las operaciones y con sus índices. */
+    private void verificarConsistencia() {
+        long esperadosLibros = librosIniciales - eliminaciones.get() + registros.get();
+        long esperadosPrestados = prestamos.get() - devoluciones.get();
+        comparar("total de libros", servicio.totalLibros(), esperadosLibros);
+        comparar("libros prestados", servicio.totalPrestados(), esperadosPrestados);
+        comparar("libros disponibles", servicio.totalDisponibles(), esperadosLibros - esperadosPrestados);
+
+        List<Libro> todos = servicio.listarTodosInOrden();
+        comparar("libros del recorrido InOrden", todos.size(), esperadosLibros);
+        comparar("libros del listado de prestados", servicio.listarPrestados().size(), esperadosPrestados);
+        comparar("préstamos vencidos a un año", servicio.prestamosVencidos(LocalDate.now().plusYears(1)).size(),
+                 esperadosPrestados);
+        comparar("libros por categoría", servicio.totalesPorCategoria().values().stream().mapToLong(Integer::longValue).sum(),
+                 esperadosLibros);
+
+        Map<String, Integer> porLector = new HashMap<>();
+        for (Libro libro : todos) {
+            Libro porIsbn = servicio.buscarPorIsbn(libro.getIsbn());
+            if (porIsbn == null || !porIsbn.getAutor().equals(libro.getAutor()))
+                fallos.add("El índice de ISBN no encuentra '" + libro.getIsbn() + "' de '" + libro.getAutor() + "'.");
+            if (servicio.buscarPorAutor(libro.getAutor()) == null)
+                fallos.add("La búsqueda por autor no encuentra a '" + libro.getAutor() + "'.");
+            verificarEstado(libro);
+            if (!libro.isDisponible()) porLector.merge(libro.getPrestatario(), 1, Integer::sum);
+        }
+        for (int i = 0; i < LECTORES; i++) {
+            String lector = "Lector " + i;
+            int enCatalogo = porLector.getOrDefault(lector, 0);
+            comparar("préstamos de '" + lector + "'", servicio.prestamosDe(lector), enCatalogo);
+            comparar("libros listados de '" + lector + "'", servicio.librosDePrestatario(lector).size(), enCatalogo);
+        }
+    }
+
+    private void comparar(String que, long obtenido, long esperado) {
+        if (obtenido != esperado) fallos.add("Inconsistencia en " + que + ": " + obtenido + ", se esperaba " + esperado + ".");
+    }
+
+    // =========================================================
+    //  AUXILIARES
+    // =========================================================
+
+    /** Interrumpe a los hilos que esperan en las barreras y los espera. */
+    private static void detener(List<Thread> trabajadores) {
+        trabajadores.forEach(Thread::interrupt);
+        unir(trabajadores);
+    }
+
+    private static void unir(List<Thread> trabajadores) {
+        for (Thread t : trabajadores) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Espera en la barrera; retorna false si se interrumpió o la barrera se rompió. */
+    private static boolean esperar(CyclicBarrier barrera) {
+        try {
+            barrera.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (BrokenBarrierException e) {
+            return false;
+        }
+    }
+
+    private static void esperar(CountDownLatch largada) {
+        try {
+            largada.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,8 +1,28 @@
 package vista;
 
+import estructura.Almacenamiento;
+import estructura.ModoBalanceo;
 import modelo.Libro;
+import persistencia.ResultadoImportacion;
+import persistencia.PoliticaSincronizacion;
 import servicio.BibliotecaService;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -10,11 +30,26 @@ import java.util.Scanner;
  */
 public class MenuPrincipal {
 
+    private static final int TAMANIO_PAGINA = 10;
+    /** Tiempo que se espera a las peticiones HTTP en curso antes de cerrar el catálogo. */
+    private static final int SEGUNDOS_CIERRE_HTTP = 2;
+
     private final BibliotecaService servicio;
+    private final ServidorCatalogo servidor;
     private final Scanner scanner;
 
     public MenuPrincipal() {
-        this.servicio = new BibliotecaService();
+        this(new BibliotecaService());
+    }
+
+    public MenuPrincipal(BibliotecaService servicio) {
+        this(servicio, null);
+    }
+
+    /** Menú que comparte el catálogo con un servidor HTTP, que se detiene al salir. */
+    public MenuPrincipal(BibliotecaService servicio, ServidorCatalogo servidor) {
+        this.servicio = servicio;
+        this.servidor = servidor;
         this.scanner  = new Scanner(System.in);
     }
 
@@ -22,8 +57,98 @@ public class MenuPrincipal {
     //  PUNTO DE ENTRADA
     // =========================================================
 
+    /**
+     * Sin argumentos trabaja en memoria con los datos de prueba; con un directorio como
+     * argumento el catálogo se guarda allí y se recupera en el próximo inicio.
+     * <p>
+     * Las métricas se publican en JMX como {@code biblioteca:type=Catalogo,name=catalogo}.
+     * Con {@code -Dbiblioteca.metricas.intervalo=<segundos>} además se vuelcan como texto
+     * a la salida de errores cada ese tiempo. Con {@code -Dbiblioteca.prestamos.limite=<n>}
+     * cada lector puede tener a lo sumo {@code n} libros prestados a la vez. Con
+     * {@code -Dbiblioteca.sincronizacion=PERIODICA} (o {@code SIN_ESPERA}) el catálogo
+     * persistente no espera el {@code fsync} de cada operación, y con
+     * {@code -Dbiblioteca.balanceo=SPLAY} el árbol acerca a la raíz los autores más
+     * buscados (ver {@link ModoBalanceo#SPLAY}); con {@code -Dbiblioteca.almacenamiento=COMPACTO}
+     * los libros se guardan en arreglos en lugar de objetos (ver {@link Almacenamiento#COMPACTO}),
+     * lo que no admite el modo splay. Con
+     * {@code -Dbiblioteca.http.puerto=<puerto>} el catálogo también se atiende por HTTP
+     * ({@link ServidorCatalogo}) mientras el menú o el guion están en marcha.
+     * <p>
+     * Con {@code --guion <archivo>} (o {@code --guion -} para la entrada estándar) no se
+     * muestra el menú: los comandos del archivo se ejecutan con {@link ModoGuion} y el
+     * proceso termina con código 1 si alguno falló. Un valor desconocido en las propiedades
+     * anteriores se informa con los valores permitidos, y tanto eso como un modo de balanceo
+     * que el almacenamiento no admite terminan el proceso con código 2.
+     */
     public static void main(String[] args) {
-        new MenuPrincipal().ejecutar();
+        String directorio = null;
+        String guion = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--guion")) guion = i + 1 < args.length ? args[++i] : "-";
+            else directorio = args[i];
+        }
+        BibliotecaService servicio;
+        try {
+            PoliticaSincronizacion politica = leerPropiedad("biblioteca.sincronizacion",
+                PoliticaSincronizacion.class, PoliticaSincronizacion.POR_LOTE);
+            ModoBalanceo balanceo = leerPropiedad("biblioteca.balanceo", ModoBalanceo.class, ModoBalanceo.AVL);
+            Almacenamiento almacenamiento = leerPropiedad("biblioteca.almacenamiento", Almacenamiento.class,
+                                                          Almacenamiento.NODOS);
+            servicio = directorio != null
+                ? new BibliotecaService(Paths.get(directorio), politica, balanceo, almacenamiento)
+                : new BibliotecaService(balanceo, almacenamiento);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        servicio.setLimitePrestamos(Integer.getInteger("biblioteca.prestamos.limite", BibliotecaService.SIN_LIMITE));
+        servicio.getMetricas().registrarEnJmx("catalogo");
+        Long intervalo = Long.getLong("biblioteca.metricas.intervalo");
+        if (intervalo != null) servicio.getMetricas().iniciarVolcado(intervalo, System.err::print);
+        Integer puerto = Integer.getInteger("biblioteca.http.puerto");
+        ServidorCatalogo servidor = puerto == null ? null : new ServidorCatalogo(servicio, puerto);
+        if (servidor != null) {
+            servidor.iniciar();
+            System.err.println("API HTTP del catálogo en el puerto " + servidor.getPuerto());
+        }
+        if (guion == null) {
+            new MenuPrincipal(servicio, servidor).ejecutar();
+            return;
+        }
+        long errores = ejecutarGuion(servicio, servidor, guion);
+        System.exit(errores == 0 ? 0 : 1);
+    }
+
+    /**
+     * Valor de la propiedad del sistema {@code propiedad} como constante de {@code tipo}, sin
+     * distinguir mayúsculas, o {@code porDefecto} si no está definida.
+     *
+     * @throws IllegalArgumentException si el valor no es ninguna constante, con las permitidas
+     */
+    private static <E extends Enum<E>> E leerPropiedad(String propiedad, Class<E> tipo, E porDefecto) {
+        String valor = System.getProperty(propiedad);
+        if (valor == null) return porDefecto;
+        try {
+            return Enum.valueOf(tipo, valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Valor desconocido para -D" + propiedad + ": '" + valor
+                + "'. Valores permitidos: " + Arrays.toString(tipo.getEnumConstants()) + ".");
+        }
+    }
+
+    private static long ejecutarGuion(BibliotecaService servicio, ServidorCatalogo servidor, String guion) {
+        Writer salida = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        try (BufferedReader entrada = guion.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Paths.get(guion), StandardCharsets.UTF_8)) {
+            return new ModoGuion(servicio, salida).ejecutar(entrada);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el guion '" + guion + "'", e);
+        } finally {
+            if (servidor != null) servidor.detener(SEGUNDOS_CIERRE_HTTP);
+            servicio.cerrar();
+        }
     }
 
     public void ejecutar() {
@@ -34,6 +159,8 @@ public class MenuPrincipal {
             opcion = leerEntero("Seleccione una opción: ");
             procesarOpcion(opcion);
         } while (opcion != 0);
+        if (servidor != null) servidor.detener(SEGUNDOS_CIERRE_HTTP);
+        servicio.cerrar();
         System.out.println("\n  ¡Hasta luego! Sistema cerrado.\n");
         scanner.close();
     }
@@ -47,7 +174,10 @@ public class MenuPrincipal {
         System.out.println("║         BIBLIOTECA UNIVERSITARIA - BST v1.0         ║");
         System.out.println("║    Sistema de Gestión de Catálogo con Árbol BST     ║");
         System.out.println("╚══════════════════════════════════════════════════════╝");
-        System.out.println("  Catálogo inicializado con " + servicio.totalLibros() + " libros de prueba.");
+        if (servicio.esPersistente())
+            System.out.println("  Catálogo recuperado del disco con " + servicio.totalLibros() + " libros.");
+        else
+            System.out.println("  Catálogo inicializado con " + servicio.totalLibros() + " libros de prueba.");
     }
 
     private void mostrarMenu() {
@@ -70,14 +200,21 @@ public class MenuPrincipal {
         System.out.println("║   9. Registrar devolución de libro                 ║");
         System.out.println("║  10. Listar libros disponibles                     ║");
         System.out.println("║  11. Listar libros prestados                       ║");
+        System.out.println("║  21. Préstamos vencidos y próximos vencimientos    ║");
+        System.out.println("║  22. Libros en poder de un lector                  ║");
         System.out.println("║                                                     ║");
         System.out.println("║  🔍 BÚSQUEDAS                                       ║");
         System.out.println("║  12. Buscar libros por categoría                   ║");
         System.out.println("║  14. Buscar por subcadena de autor                 ║");
+        System.out.println("║  16. Buscar autores por prefijo                    ║");
+        System.out.println("║  17. Buscar autores por rango (desde - hasta)      ║");
         System.out.println("║                                                     ║");
         System.out.println("║  📊 EXTRA                                           ║");
         System.out.println("║  13. Estadísticas del catálogo                     ║");
         System.out.println("║  15. Visualizar árbol BST                          ║");
+        System.out.println("║  18. Importar catálogo (CSV / JSON Lines)          ║");
+        System.out.println("║  19. Exportar catálogo (CSV / JSON Lines)          ║");
+        System.out.println("║  20. Métricas de rendimiento                       ║");
         System.out.println("║                                                     ║");
         System.out.println("║   0. Salir                                          ║");
         System.out.println("╚══════════════════════════════════════════════════════╝");
@@ -102,13 +239,22 @@ public class MenuPrincipal {
                 case 13: mostrarEstadisticas();    break;
                 case 14: buscarAutorParcial();     break;
                 case 15: visualizarArbol();        break;
+                case 16: buscarPorPrefijo();       break;
+                case 17: buscarRangoAutores();     break;
+                case 18: importarCatalogo();       break;
+                case 19: exportarCatalogo();       break;
+                case 20: mostrarMetricas();        break;
+                case 21: mostrarVencimientos();    break;
+                case 22: librosDeLector();         break;
                 case  0: break; // Salir
-                default: System.out.println("  ⚠️  Opción no válida. Ingrese un número entre 0 y 15.");
+                default: System.out.println("  ⚠️  Opción no válida. Ingrese un número entre 0 y 22.");
             }
         } catch (IllegalArgumentException e) {
             System.out.println("  ⚠️  Entrada inválida: " + e.getMessage());
         } catch (IllegalStateException e) {
             System.out.println("  ❌ Error: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            System.out.println("  ❌ Error de archivo: " + e.getMessage() + " (" + e.getCause().getMessage() + ")");
         } catch (Exception e) {
             System.out.println("  ❌ Error inesperado: " + e.getMessage());
         }
@@ -172,7 +318,38 @@ public class MenuPrincipal {
 
     private void listarInOrden() {
         System.out.println("─── LISTADO INORDEN (ALFABÉTICO) ────────────────────");
-        imprimirListado(servicio.listarTodosInOrden());
+        int totalPaginas = servicio.totalPaginas(TAMANIO_PAGINA);
+        if (totalPaginas == 0) {
+            System.out.println("  ℹ️  No hay libros para mostrar.");
+            return;
+        }
+        int pagina = 1;
+        while (true) {
+            System.out.println("  Página " + pagina + " de " + totalPaginas
+                + " (" + servicio.totalLibros() + " libro(s) en el catálogo)\n");
+            imprimirListado(servicio.listarPagina(pagina, TAMANIO_PAGINA), (pagina - 1) * TAMANIO_PAGINA + 1);
+            if (totalPaginas == 1) return;
+
+            System.out.print("\n  [s]iguiente, [a]nterior, Nº de página o autor a ubicar (Enter para salir): ");
+            String entrada = scanner.nextLine().trim();
+            if (entrada.isEmpty()) return;
+            if (entrada.equalsIgnoreCase("s")) {
+                pagina = Math.min(pagina + 1, totalPaginas);
+            } else if (entrada.equalsIgnoreCase("a")) {
+                pagina = Math.max(pagina - 1, 1);
+            } else if (entrada.chars().allMatch(Character::isDigit)) {
+                pagina = Math.max(1, Math.min(Integer.parseInt(entrada), totalPaginas));
+            } else {
+                int posicion = servicio.posicionDeAutor(entrada);
+                if (posicion == 0) {
+                    System.out.println("  ℹ️  No se encontró el autor '" + entrada + "'.");
+                } else {
+                    System.out.println("  📍 '" + entrada + "' ocupa la posición " + posicion + " del catálogo.");
+                    pagina = (posicion - 1) / TAMANIO_PAGINA + 1;
+                }
+            }
+            System.out.println();
+        }
     }
 
     private void listarPreOrden() {
@@ -220,7 +397,8 @@ public class MenuPrincipal {
             System.out.println("  Total: " + lista.size() + " libro(s) prestado(s)\n");
             for (Libro l : lista) {
                 System.out.printf("  📕 %-35s | Autor: %-20s%n", l.getTitulo(), l.getAutor());
-                System.out.printf("     Prestatario: %-20s | Fecha: %s%n", l.getPrestatario(), l.getFechaPrestamo());
+                Libro.EstadoPrestamo estado = l.getEstadoPrestamo();
+                System.out.printf("     Prestatario: %-20s | Fecha: %s%n", estado.getPrestatario(), estado.getFechaPrestamo());
                 System.out.println("  " + "─".repeat(60));
             }
         }
@@ -257,6 +435,11 @@ public class MenuPrincipal {
             primero != null ? primero.getAutor() : "N/A");
         System.out.printf ("  │  Último autor (A-Z)   : %-24s│%n",
             ultimo  != null ? ultimo.getAutor()  : "N/A");
+        System.out.println("  ├─────────────────────────────────────────────────┤");
+        System.out.println("  │  Libros por categoría:                          │");
+        for (Map.Entry<String, Integer> e : servicio.totalesPorCategoria().entrySet()) {
+            System.out.printf ("  │    %-19s: %-24d│%n", e.getKey(), e.getValue());
+        }
         System.out.println("  └─────────────────────────────────────────────────┘");
     }
 
@@ -272,17 +455,111 @@ public class MenuPrincipal {
         }
     }
 
+    private void buscarPorPrefijo() {
+        System.out.println("─── BÚSQUEDA POR PREFIJO DE AUTOR ───────────────────");
+        String prefijo = leerCadena("Prefijo del autor (ej: Gar): ");
+        List<Libro> lista = servicio.buscarPorPrefijoAutor(prefijo);
+        if (lista.isEmpty()) {
+            System.out.println("  ℹ️  No se encontraron autores que empiecen por '" + prefijo + "'.");
+        } else {
+            System.out.println("  " + lista.size() + " resultado(s):\n");
+            imprimirListado(lista);
+        }
+    }
+
+    private void buscarRangoAutores() {
+        System.out.println("─── BÚSQUEDA POR RANGO DE AUTORES ───────────────────");
+        String desde = leerCadena("Desde el autor : ");
+        String hasta = leerCadena("Hasta el autor : ");
+        List<Libro> lista = servicio.buscarRangoAutores(desde, hasta);
+        if (lista.isEmpty()) {
+            System.out.println("  ℹ️  No hay autores entre '" + desde + "' y '" + hasta + "'.");
+        } else {
+            System.out.println("  " + lista.size() + " resultado(s):\n");
+            imprimirListado(lista);
+        }
+    }
+
     private void visualizarArbol() {
         System.out.println("─── ÁRBOL BST (ESTRUCTURA) ──────────────────────────");
         System.out.println("  (Ordenado alfabéticamente por autor)\n");
         servicio.imprimirArbol();
     }
 
+    private void importarCatalogo() {
+        System.out.println("─── IMPORTAR CATÁLOGO ───────────────────────────────");
+        Path archivo = Paths.get(leerCadena("Archivo (.csv o .jsonl): "));
+        long inicio = System.nanoTime();
+        ResultadoImportacion resultado = servicio.importarCatalogo(archivo);
+        System.out.printf("  ✅ %s en %.1f s.%n", resultado, (System.nanoTime() - inicio) / 1e9);
+        for (ResultadoImportacion.ErrorLinea error : resultado.getErrores()) {
+            System.out.println("     • " + error);
+        }
+        if (resultado.getTotalErrores() > resultado.getErrores().size()) {
+            System.out.println("     … y " + (resultado.getTotalErrores() - resultado.getErrores().size()) + " error(es) más.");
+        }
+    }
+
+    private void exportarCatalogo() {
+        System.out.println("─── EXPORTAR CATÁLOGO ───────────────────────────────");
+        Path archivo = Paths.get(leerCadena("Archivo destino (.csv o .jsonl): "));
+        long inicio = System.nanoTime();
+        long total = servicio.exportarCatalogo(archivo);
+        System.out.printf("  ✅ %d libro(s) exportado(s) a '%s' en %.1f s.%n", total, archivo, (System.nanoTime() - inicio) / 1e9);
+    }
+
+    private void mostrarVencimientos() {
+        System.out.println("─── VENCIMIENTOS DE PRÉSTAMOS ───────────────────────");
+        System.out.println("  (Préstamos de " + BibliotecaService.DIAS_PRESTAMO + " días)");
+        LocalDate hoy = LocalDate.now();
+        List<Libro> vencidos = servicio.prestamosVencidos(hoy);
+        if (vencidos.isEmpty()) {
+            System.out.println("  ✅ No hay préstamos vencidos.");
+        } else {
+            System.out.println("  ⚠️  Vencidos (" + vencidos.size() + "):");
+            for (Libro libro : vencidos) {
+                LocalDate vence = servicio.fechaVencimiento(libro);
+                System.out.printf("     • %-30s %-20s venció %s (%d día(s) de atraso)%n", libro.getTitulo(),
+                    libro.getPrestatario(), vence, ChronoUnit.DAYS.between(vence, hoy));
+            }
+        }
+        int cantidad = leerEntero("¿Cuántos próximos vencimientos mostrar? ");
+        List<Libro> proximos = servicio.proximosVencimientos(cantidad);
+        if (proximos.isEmpty()) System.out.println("  ℹ️  No hay préstamos por vencer.");
+        for (Libro libro : proximos) {
+            System.out.printf("     • %-30s %-20s vence %s%n", libro.getTitulo(), libro.getPrestatario(),
+                servicio.fechaVencimiento(libro));
+        }
+    }
+
+    private void librosDeLector() {
+        System.out.println("─── LIBROS EN PODER DE UN LECTOR ────────────────────");
+        String lector = leerCadena("Nombre del lector: ");
+        List<Libro> libros = servicio.librosDePrestatario(lector);
+        int limite = servicio.getLimitePrestamos();
+        System.out.println("  📋 " + libros.size() + " libro(s) prestado(s)"
+            + (limite == BibliotecaService.SIN_LIMITE ? "" : " de un máximo de " + limite) + ":");
+        for (Libro libro : libros) {
+            System.out.printf("     • %-30s %-20s vence %s%n", libro.getTitulo(), libro.getAutor(),
+                servicio.fechaVencimiento(libro));
+        }
+    }
+
+    private void mostrarMetricas() {
+        System.out.println("─── MÉTRICAS DE RENDIMIENTO ─────────────────────────");
+        System.out.print(servicio.getMetricas().resumen());
+    }
+
     // =========================================================
     //  UTILIDADES
     // =========================================================
 
     private void imprimirListado(List<Libro> lista) {
+        imprimirListado(lista, 1);
+    }
+
+    /** Imprime el listado numerando desde {@code primerNumero} (útil para páginas). */
+    private void imprimirListado(List<Libro> lista, int primerNumero) {
         if (lista == null || lista.isEmpty()) {
             System.out.println("  ℹ️  No hay libros para mostrar.");
             return;
@@ -290,7 +567,7 @@ public class MenuPrincipal {
         System.out.printf("  %-3s %-32s %-22s %-15s %s%n",
             "#", "Título", "Autor", "Categoría", "Estado");
         System.out.println("  " + "─".repeat(90));
-        int i = 1;
+        int i = primerNumero;
         for (Libro l : lista) {
             System.out.printf("  %-3d %s%n", i++, l.toStringCorto());
         }
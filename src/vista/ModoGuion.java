@@ -0,0 +1,217 @@
+package vista;
+
+import modelo.Libro;
+import persistencia.FormatoJson;
+import servicio.BibliotecaService;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Ejecución no interactiva del catálogo: lee un guion con un comando por línea, lo aplica
+ * sobre {@link BibliotecaService} y escribe un resultado por comando, pensado para
+ * procesos nocturnos y para encadenar con otras herramientas.
+ * <p>
+ * Cada línea es un comando y sus argumentos separados por {@code |}, por ejemplo
+ * {@code prestar|García Márquez, Gabriel|Ana Torres}. Las líneas vacías y las que
+ * empiezan con {@code #} se ignoran. Por cada comando se escribe una línea
+ * {@code <nº de línea>|OK}, {@code <nº de línea>|OK|<datos>} o
+ * {@code <nº de línea>|ERR|<mensaje>}. Los datos son un valor JSON que ocupa el resto de
+ * la línea: un libro (con los mismos campos que la exportación JSON Lines) o
+ * {@code null}, un arreglo de libros, {@code true}/{@code false} o un objeto de totales.
+ * Al final se agrega un comentario {@code #} con la cantidad de comandos y el
+ * rendimiento. Un comando que falla no detiene el guion.
+ * <p>
+ * La salida se escribe en un {@link Writer} con búfer que se vacía por bloques y al
+ * terminar, así que el costo por comando es el de la operación y no el de escribir en
+ * la consola.
+ */
+public class ModoGuion {
+
+    private static final Pattern SEPARADOR = Pattern.compile("\\|");
+
+    private final BibliotecaService servicio;
+    private final Writer salida;
+    private final StringBuilder linea = new StringBuilder(256);
+
+    private long comandos;
+    private long errores;
+
+    public ModoGuion(BibliotecaService servicio, Writer salida) {
+        this.servicio = servicio;
+        this.salida = salida;
+    }
+
+    // =========================================================
+    //  EJECUCIÓN
+    // =========================================================
+
+    /**
+     * Ejecuta todos los comandos de {@code entrada} y vuelca la salida al terminar.
+     * @return la cantidad de comandos que terminaron con error.
+     * @throws UncheckedIOException si no se puede leer la entrada o escribir la salida.
+     */
+    public long ejecutar(BufferedReader entrada) {
+        long inicio = System.nanoTime();
+        try {
+            String texto;
+            long numero = 0;
+            while ((texto = entrada.readLine()) != null) {
+                numero++;
+                texto = texto.trim();
+                if (texto.isEmpty() || texto.charAt(0) == '#') continue;
+                ejecutarLinea(numero, texto);
+            }
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            salida.write(String.format("# %d comando(s), %d con error, en %.3f s (%.0f comandos/s)%n",
+                comandos, errores, segundos, segundos == 0 ? 0 : comandos / segundos));
+            salida.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo procesar el guion", e);
+        }
+        return errores;
+    }
+
+    private void ejecutarLinea(long numero, String texto) throws IOException {
+        comandos++;
+        linea.setLength(0);
+        linea.append(numero).append("|OK");
+        try {
+            String[] campos = SEPARADOR.split(texto, -1);
+            for (int i = 0; i < campos.length; i++) campos[i] = campos[i].trim();
+            ejecutarComando(campos);
+        } catch (IllegalArgumentException | IllegalStateException | UncheckedIOException e) {
+            errores++;
+            linea.setLength(0);
+            linea.append(numero).append("|ERR|").append(enUnaLinea(e.getMessage()));
+        }
+        linea.append(System.lineSeparator());
+        salida.append(linea);
+    }
+
+    // =========================================================
+    //  COMANDOS
+    // =========================================================
+
+    private void ejecutarComando(String[] campos) {
+        String comando = campos[0].toLowerCase(Locale.ROOT);
+        switch (comando) {
+            case "alta":
+                argumentos(campos, 6, "alta|isbn|título|autor|editorial|año|categoría");
+                servicio.registrarLibro(new Libro(campos[1], campos[2], campos[3], campos[4],
+                    entero(campos[5]), campos[6]));
+                break;
+            case "baja":
+                argumentos(campos, 1, "baja|autor");
+                datos(String.valueOf(servicio.eliminarLibro(campos[1])));
+                break;
+            case "buscar":
+                argumentos(campos, 1, "buscar|autor");
+                libro(servicio.buscarPorAutor(campos[1]));
+                break;
+            case "isbn":
+                argumentos(campos, 1, "isbn|isbn");
+                libro(servicio.buscarPorIsbn(campos[1]));
+                break;
+            case "prestar":
+                argumentos(campos, 2, "prestar|autor|lector");
+                servicio.registrarPrestamo(campos[1], campos[2]);
+                break;
+            case "devolver":
+                argumentos(campos, 1, "devolver|autor");
+                servicio.registrarDevolucion(campos[1]);
+                break;
+            case "lector":
+                argumentos(campos, 1, "lector|nombre");
+                libros(servicio.librosDePrestatario(campos[1]));
+                break;
+            case "categoria":
+                argumentos(campos, 1, "categoria|categoría");
+                libros(servicio.buscarPorCategoria(campos[1]));
+                break;
+            case "prefijo":
+                argumentos(campos, 1, "prefijo|prefijo");
+                libros(servicio.buscarPorPrefijoAutor(campos[1]));
+                break;
+            case "subcadena":
+                argumentos(campos, 1, "subcadena|texto");
+                libros(servicio.buscarPorAutorParcial(campos[1]));
+                break;
+            case "rango":
+                argumentos(campos, 2, "rango|desde|hasta");
+                libros(servicio.buscarRangoAutores(campos[1], campos[2]));
+                break;
+            case "vencidos":
+                argumentos(campos, 1, "vencidos|aaaa-mm-dd");
+                libros(servicio.prestamosVencidos(fecha(campos[1])));
+                break;
+            case "total":
+                argumentos(campos, 0, "total");
+                datos("{\"libros\":" + servicio.totalLibros() + ",\"disponibles\":" + servicio.totalDisponibles()
+                    + ",\"prestados\":" + servicio.totalPrestados() + "}");
+                break;
+            case "punto_control":
+                argumentos(campos, 0, "punto_control");
+                servicio.puntoDeControl();
+                break;
+            default:
+                throw new IllegalArgumentException("Comando desconocido: '" + campos[0] + "'");
+        }
+    }
+
+    private static void argumentos(String[] campos, int cantidad, String uso) {
+        if (campos.length != cantidad + 1)
+            throw new IllegalArgumentException("Se esperaba " + uso);
+    }
+
+    private static int entero(String texto) {
+        try {
+            return Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Se esperaba un número entero, se recibió: '" + texto + "'");
+        }
+    }
+
+    private static LocalDate fecha(String texto) {
+        try {
+            return LocalDate.parse(texto);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Se esperaba una fecha aaaa-mm-dd, se recibió: '" + texto + "'");
+        }
+    }
+
+    // =========================================================
+    //  SALIDA
+    // =========================================================
+
+    private void datos(String texto) {
+        linea.append('|').append(texto);
+    }
+
+    /** El libro como objeto JSON, o {@code null} si no se encontró. */
+    private void libro(Libro libro) {
+        linea.append('|');
+        if (libro == null) linea.append("null");
+        else FormatoJson.escribirLibro(libro, linea);
+    }
+
+    /** Los libros como arreglo JSON. */
+    private void libros(List<Libro> libros) {
+        linea.append("|[");
+        for (int i = 0; i < libros.size(); i++) {
+            if (i > 0) linea.append(',');
+            FormatoJson.escribirLibro(libros.get(i), linea);
+        }
+        linea.append(']');
+    }
+
+    private static String enUnaLinea(String mensaje) {
+        return mensaje == null ? "" : mensaje.replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,321 @@
+package vista;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import modelo.Libro;
+import persistencia.FormatoJson;
+import servicio.BibliotecaService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * API HTTP de consulta y préstamos sobre el mismo {@link BibliotecaService} que usa la
+ * consola, para los kioscos y el catálogo web. Usa el servidor HTTP del JDK
+ * ({@code com.sun.net.httpserver}) y atiende cada petición en su propio hilo virtual
+ * cuando la JVM los ofrece (Java 21 o posterior); en versiones anteriores usa un
+ * conjunto de hilos que crece según la demanda. Las consultas no se bloquean entre sí:
+ * el servicio las resuelve sobre instantáneas del árbol o con lecturas optimistas.
+ * <p>
+ * Todas las respuestas son JSON con {@code Content-Type: application/json}:
+ * <pre>
+ * GET  /api/libros/autor?nombre=...      libro del autor             (404 si no existe)
+ * GET  /api/libros/isbn?codigo=...       libro con ese ISBN          (404 si no existe)
+ * GET  /api/libros/categoria?nombre=...  libros de la categoría
+ * GET  /api/libros/prefijo?texto=...     libros cuyo autor empieza así
+ * GET  /api/disponibles?limite=100       primeros libros disponibles
+ * GET  /api/disponibilidad?autor=...     {"autor","disponible","vence"} (404 si no existe)
+ * GET  /api/lectores?nombre=...          libros prestados al lector
+ * GET  /api/totales                      {"libros","disponibles","prestados"}
+ * POST /api/prestamos      {"autor":"...","prestatario":"..."}
+ * POST /api/devoluciones   {"autor":"..."}
+ * </pre>
+ * Los errores se responden como {@code {"error":"..."}}: 400 ante datos inválidos, 409
+ * si la operación no es posible en el estado actual (libro ya prestado, límite del
+ * lector) y 405 ante un método no admitido.
+ */
+public class ServidorCatalogo {
+
+    /** Conexiones pendientes de aceptar; el valor por omisión del sistema se queda corto con muchos kioscos. */
+    private static final int COLA_CONEXIONES = 1024;
+    private static final int LIMITE_LISTADO = 100;
+    private static final int LIMITE_LISTADO_MAXIMO = 10_000;
+
+    private final BibliotecaService servicio;
+    private final HttpServer servidor;
+    private final ExecutorService ejecutor;
+
+    /**
+     * Crea el servidor escuchando en el puerto indicado (0 elige uno libre); no atiende
+     * peticiones hasta {@link #iniciar}.
+     * @throws UncheckedIOException si el puerto no está disponible.
+     */
+    public ServidorCatalogo(BibliotecaService servicio, int puerto) {
+        if (puerto < 0 || puerto > 65535) throw new IllegalArgumentException("Puerto inválido: " + puerto);
+        this.servicio = servicio;
+        try {
+            this.servidor = HttpServer.create(new InetSocketAddress(puerto), COLA_CONEXIONES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el puerto " + puerto, e);
+        }
+        this.ejecutor = crearEjecutor();
+        servidor.setExecutor(ejecutor);
+        servidor.createContext("/api/libros/autor",     consulta(this::libroPorAutor));
+        servidor.createContext("/api/libros/isbn",      consulta(this::libroPorIsbn));
+        servidor.createContext("/api/libros/categoria", consulta(this::librosPorCategoria));
+        servidor.createContext("/api/libros/prefijo",   consulta(this::librosPorPrefijo));
+        servidor.createContext("/api/disponibles",      consulta(this::disponibles));
+        servidor.createContext("/api/disponibilidad",   consulta(this::disponibilidad));
+        servidor.createContext("/api/lectores",         consulta(this::librosDeLector));
+        servidor.createContext("/api/totales",          consulta(parametros -> totales()));
+        servidor.createContext("/api/prestamos",        operacion(this::prestar));
+        servidor.createContext("/api/devoluciones",     operacion(this::devolver));
+    }
+
+    /**
+     * Un hilo virtual por petición si la JVM los ofrece; se busca por reflexión para
+     * seguir compilando y corriendo en Java 11.
+     */
+    private static ExecutorService crearEjecutor() {
+        try {
+            Method virtuales = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtuales.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger numero = new AtomicInteger();
+            return Executors.newCachedThreadPool(tarea -> {
+                Thread hilo = new Thread(tarea, "http-catalogo-" + numero.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /** Deja de aceptar conexiones y espera hasta {@code segundos} a que terminen las peticiones en curso. */
+    public void detener(int segundos) {
+        servidor.stop(segundos);
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(segundos, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    // =========================================================
+    //  CONSULTAS
+    // =========================================================
+
+    private Respuesta libroPorAutor(Map<String, String> parametros) {
+        return libroONoEncontrado(servicio.buscarPorAutor(obligatorio(parametros, "nombre")));
+    }
+
+    private Respuesta libroPorIsbn(Map<String, String> parametros) {
+        return libroONoEncontrado(servicio.buscarPorIsbn(obligatorio(parametros, "codigo")));
+    }
+
+    private Respuesta librosPorCategoria(Map<String, String> parametros) {
+        return Respuesta.ok(libros(servicio.buscarPorCategoria(obligatorio(parametros, "nombre"))));
+    }
+
+    private Respuesta librosPorPrefijo(Map<String, String> parametros) {
+        return Respuesta.ok(libros(servicio.buscarPorPrefijoAutor(obligatorio(parametros, "texto"))));
+    }
+
+    private Respuesta disponibles(Map<String, String> parametros) {
+        int limite = entero(parametros, "limite", LIMITE_LISTADO);
+        if (limite < 0 || limite > LIMITE_LISTADO_MAXIMO)
+            throw new IllegalArgumentException("El límite debe estar entre 0 y " + LIMITE_LISTADO_MAXIMO + ".");
+        return Respuesta.ok(libros(servicio.streamDisponibles().limit(limite).collect(Collectors.toList())));
+    }
+
+    private Respuesta disponibilidad(Map<String, String> parametros) {
+        Libro libro = servicio.buscarPorAutor(obligatorio(parametros, "autor"));
+        if (libro == null) return Respuesta.noEncontrado();
+        Libro.EstadoPrestamo estado = libro.getEstadoPrestamo();   // disponibilidad y fecha del mismo momento
+        LocalDate vence = estado.isDisponible() || estado.getFechaPrestamo() == null
+            ? null : estado.getFechaPrestamo().plusDays(BibliotecaService.DIAS_PRESTAMO);
+        StringBuilder sb = new StringBuilder(96);
+        sb.append("{\"autor\":");
+        FormatoJson.texto(libro.getAutor(), sb);
+        sb.append(",\"disponible\":").append(estado.isDisponible());
+        sb.append(",\"vence\":");
+        FormatoJson.texto(vence == null ? null : vence.toString(), sb);
+        return Respuesta.ok(sb.append('}').toString());
+    }
+
+    private Respuesta librosDeLector(Map<String, String> parametros) {
+        return Respuesta.ok(libros(servicio.librosDePrestatario(obligatorio(parametros, "nombre"))));
+    }
+
+    private Respuesta totales() {
+        return Respuesta.ok("{\"libros\":" + servicio.totalLibros() + ",\"disponibles\":" + servicio.totalDisponibles()
+            + ",\"prestados\":" + servicio.totalPrestados() + "}");
+    }
+
+    // =========================================================
+    //  PRÉSTAMOS
+    // =========================================================
+
+    private Respuesta prestar(Map<String, Object> cuerpo) {
+        servicio.registrarPrestamo(texto(cuerpo, "autor"), texto(cuerpo, "prestatario"));
+        return libroONoEncontrado(servicio.buscarPorAutor(texto(cuerpo, "autor")));
+    }
+
+    private Respuesta devolver(Map<String, Object> cuerpo) {
+        servicio.registrarDevolucion(texto(cuerpo, "autor"));
+        return libroONoEncontrado(servicio.buscarPorAutor(texto(cuerpo, "autor")));
+    }
+
+    // =========================================================
+    //  HTTP
+    // =========================================================
+
+    private interface Consulta {
+        Respuesta responder(Map<String, String> parametros);
+    }
+
+    private interface Operacion {
+        Respuesta aplicar(Map<String, Object> cuerpo);
+    }
+
+    private static final class Respuesta {
+        final int estado;
+        final String cuerpo;
+
+        private Respuesta(int estado, String cuerpo) {
+            this.estado = estado;
+            this.cuerpo = cuerpo;
+        }
+
+        static Respuesta ok(String cuerpo)    { return new Respuesta(200, cuerpo); }
+        static Respuesta noEncontrado()       { return error(404, "No encontrado."); }
+
+        static Respuesta error(int estado, String mensaje) {
+            StringBuilder sb = new StringBuilder(64).append("{\"error\":");
+            FormatoJson.texto(mensaje, sb);
+            return new Respuesta(estado, sb.append('}').toString());
+        }
+    }
+
+    /** GET con parámetros en la URL. */
+    private HttpHandler consulta(Consulta consulta) {
+        return intercambio -> atender(intercambio, "GET",
+            () -> consulta.responder(parametros(intercambio.getRequestURI().getRawQuery())));
+    }
+
+    /** POST con un objeto JSON en el cuerpo. */
+    private HttpHandler operacion(Operacion operacion) {
+        return intercambio -> atender(intercambio, "POST",
+            () -> operacion.aplicar(FormatoJson.leerObjeto(leerCuerpo(intercambio))));
+    }
+
+    private interface Accion {
+        Respuesta ejecutar() throws IOException;
+    }
+
+    private static void atender(HttpExchange intercambio, String metodo, Accion accion) throws IOException {
+        Respuesta respuesta;
+        try {
+            if (!intercambio.getRequestMethod().equalsIgnoreCase(metodo)) {
+                intercambio.getResponseHeaders().set("Allow", metodo);
+                respuesta = Respuesta.error(405, "Método no admitido; use " + metodo + ".");
+            } else {
+                respuesta = accion.ejecutar();
+            }
+        } catch (IllegalArgumentException e) {
+            respuesta = Respuesta.error(400, e.getMessage());
+        } catch (IllegalStateException e) {
+            respuesta = Respuesta.error(409, e.getMessage());
+        } catch (RuntimeException e) {
+            respuesta = Respuesta.error(500, "Error inesperado: " + e.getMessage());
+        }
+        byte[] bytes = respuesta.cuerpo.getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(respuesta.estado, bytes.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+
+    private static String leerCuerpo(HttpExchange intercambio) throws IOException {
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // =========================================================
+    //  UTILIDADES
+    // =========================================================
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) return parametros;
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.put(URLDecoder.decode(clave, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return parametros;
+    }
+
+    private static String obligatorio(Map<String, String> parametros, String nombre) {
+        String valor = parametros.get(nombre);
+        if (valor == null || valor.trim().isEmpty())
+            throw new IllegalArgumentException("Falta el parámetro '" + nombre + "'.");
+        return valor.trim();
+    }
+
+    private static int entero(Map<String, String> parametros, String nombre, int porOmision) {
+        String valor = parametros.get(nombre);
+        if (valor == null || valor.isEmpty()) return porOmision;
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El parámetro '" + nombre + "' debe ser un número entero.");
+        }
+    }
+
+    private static String texto(Map<String, Object> cuerpo, String campo) {
+        Object valor = cuerpo.get(campo);
+        if (!(valor instanceof String) || ((String) valor).trim().isEmpty())
+            throw new IllegalArgumentException("Falta el campo de texto '" + campo + "'.");
+        return ((String) valor).trim();
+    }
+
+    private static Respuesta libroONoEncontrado(Libro libro) {
+        return libro == null ? Respuesta.noEncontrado() : Respuesta.ok(FormatoJson.libro(libro));
+    }
+
+    private static String libros(List<Libro> libros) {
+        StringBuilder sb = new StringBuilder(libros.size() * 192 + 2).append('[');
+        for (int i = 0; i < libros.size(); i++) {
+            if (i > 0) sb.append(',');
+            FormatoJson.escribirLibro(libros.get(i), sb);
+        }
+        return sb.append(']').toString();
+    }
+}